@@ -0,0 +1,128 @@
+package org.altervista.breve.awesome.pizza.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.request.OrderEntry;
+import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+import org.altervista.breve.awesome.pizza.model.response.SubmitOrderResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The order payloads in JSON and in CBOR, with ObjectMappers configured like the Spring Boot ones.
+ * <p>
+ * Time and allocations come from JMH, the size of every payload, plain and gzipped, is printed once per format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderFormatBenchmark {
+
+    private static final LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+
+    @Param({"json", "cbor"})
+    private String format;
+
+    private ObjectWriter orderWriter;
+    private ObjectWriter pageWriter;
+    private ObjectWriter responseWriter;
+    private ObjectReader orderReader;
+    private ObjectReader requestReader;
+
+    private Order order;
+    private List<Order> page;
+    private SubmitOrderResponse response;
+    private byte[] orderBytes;
+    private byte[] request;
+
+    @Setup
+    public void setUp() throws IOException {
+        final ObjectMapper objectMapper = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json().build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+            default -> throw new IllegalArgumentException(format);
+        };
+        orderWriter = objectMapper.writerFor(Order.class);
+        pageWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Order.class));
+        responseWriter = objectMapper.writerFor(SubmitOrderResponse.class);
+        orderReader = objectMapper.readerFor(Order.class);
+        requestReader = objectMapper.readerFor(SubmitOrderRequest.class);
+
+        order = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 2, Pizza.DIAVOLA, 1), SOMEWHERE_IN_TIME.plusMinutes(5), null, 0, 1L);
+        page = new ArrayList<>(50);
+        for (int i = 0; i < 50; i++) {
+            page.add(new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME.plusSeconds(i), OrderStatus.READY, Map.of(Pizza.CAPRICCIOSA, i % 5 + 1)));
+        }
+        response = new SubmitOrderResponse(UUID.randomUUID());
+        orderBytes = orderWriter.writeValueAsBytes(order);
+        request = objectMapper.writeValueAsBytes(new SubmitOrderRequest(List.of(
+                new OrderEntry("margherita", 2),
+                new OrderEntry("diavola", 1)
+        )));
+
+        final byte[] pageBytes = pageWriter.writeValueAsBytes(page);
+        System.out.printf("[format] format=%s order=%d bytes request=%d bytes response=%d bytes page=%d bytes (gzip %d bytes)%n",
+                format, orderBytes.length, request.length, responseWriter.writeValueAsBytes(response).length, pageBytes.length, gzip(pageBytes).length);
+    }
+
+    @Benchmark
+    public byte[] writeOrder() throws IOException {
+        return orderWriter.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public byte[] writeQueuePage() throws IOException {
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] writeSubmitOrderResponse() throws IOException {
+        return responseWriter.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public Order readOrder() throws IOException {
+        return orderReader.readValue(orderBytes);
+    }
+
+    @Benchmark
+    public SubmitOrderRequest readSubmitOrderRequest() throws IOException {
+        return requestReader.readValue(request);
+    }
+
+    private static byte[] gzip(final byte[] bytes) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
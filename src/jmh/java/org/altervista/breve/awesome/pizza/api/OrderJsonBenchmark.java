@@ -0,0 +1,84 @@
+package org.altervista.breve.awesome.pizza.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.request.OrderEntry;
+import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of the order payloads, with an ObjectMapper configured like the Spring Boot one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderJsonBenchmark {
+
+    private static final LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+
+    private ObjectWriter orderWriter;
+    private ObjectWriter pageWriter;
+    private ObjectReader requestReader;
+
+    private Order order;
+    private List<Order> page;
+    private byte[] request;
+
+    @Setup
+    public void setUp() throws IOException {
+        final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        orderWriter = objectMapper.writerFor(Order.class);
+        pageWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Order.class));
+        requestReader = objectMapper.readerFor(SubmitOrderRequest.class);
+
+        order = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 2, Pizza.DIAVOLA, 1));
+        page = new ArrayList<>(50);
+        for (int i = 0; i < 50; i++) {
+            page.add(new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME.plusSeconds(i), OrderStatus.READY, Map.of(Pizza.CAPRICCIOSA, i % 5 + 1)));
+        }
+        request = objectMapper.writeValueAsBytes(new SubmitOrderRequest(List.of(
+                new OrderEntry("margherita", 2),
+                new OrderEntry("diavola", 1)
+        )));
+    }
+
+    @Benchmark
+    public byte[] writeOrder() throws IOException {
+        return orderWriter.writeValueAsBytes(order);
+    }
+
+    @Benchmark
+    public byte[] writeQueuePage() throws IOException {
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public SubmitOrderRequest readSubmitOrderRequest() throws IOException {
+        return requestReader.readValue(request);
+    }
+}
@@ -0,0 +1,116 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.request.OrderEntry;
+import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+import org.altervista.breve.awesome.pizza.repository.EmbeddedOrderStore;
+import org.altervista.breve.awesome.pizza.utils.DateTimeUtils;
+import org.altervista.breve.awesome.pizza.utils.TimeOrderedUUIDGenerator;
+import org.altervista.breve.awesome.pizza.utils.UUIDUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The order service wired to the embedded store and a real queue projection,
+ * to measure the application code around the database calls without a MongoDB server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderServiceBenchmark {
+
+    private static final LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+
+    @Param({"100", "10000"})
+    private int readyOrders;
+
+    private final SubmitOrderRequest request = new SubmitOrderRequest(List.of(
+            new OrderEntry("margherita", 2),
+            new OrderEntry("diavola", 1)
+    ));
+
+    private Path directory;
+    private EmbeddedOrderStore repository;
+    private OrderService service;
+    private String[] orderCodes;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("order-service-benchmark");
+        repository = new EmbeddedOrderStore(directory, DataSize.ofMegabytes(64), false);
+        final UUIDUtils uuidUtils = new UUIDUtils(new TimeOrderedUUIDGenerator());
+        orderCodes = new String[readyOrders];
+        for (int i = 0; i < readyOrders; i++) {
+            final UUID id = uuidUtils.get();
+            repository.save(new Order(id, SOMEWHERE_IN_TIME.plusSeconds(i), OrderStatus.READY, Map.of(Pizza.MARGHERITA, 1)));
+            orderCodes[i] = id.toString();
+        }
+
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final OrderQueueProjection projection = new OrderQueueProjection(repository, registry);
+        projection.load();
+        final OrderCache cache = new OrderCache(registry, 10_000, Duration.ofSeconds(10), Duration.ofHours(1));
+        service = new OrderService(uuidUtils, new DateTimeUtils(), repository, projection, cache, new KitchenScheduler(1, KitchenScheduler.Policy.FIFO), event -> {
+            projection.onOrderChanged((OrderChangedEvent) event);
+            cache.onOrderChanged((OrderChangedEvent) event);
+        }, new OrderLifecycleMetrics(registry), null);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        repository.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public UUID submit() {
+        return service.submit(request);
+    }
+
+    @Benchmark
+    public Optional<Order> getOrder() {
+        return service.getOrder(orderCodes[ThreadLocalRandom.current().nextInt(orderCodes.length)]);
+    }
+
+    @Benchmark
+    public List<Order> firstQueuePage() {
+        return service.findNotCompletedOrders(null, OrderService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Order> wholeQueue() {
+        return service.findNotCompletedOrders();
+    }
+}
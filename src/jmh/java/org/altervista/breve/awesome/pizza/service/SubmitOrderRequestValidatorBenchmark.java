@@ -0,0 +1,89 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import org.altervista.breve.awesome.pizza.exception.InvalidOrderPizzaException;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.request.OrderEntry;
+import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and merging of the order entries done by every submit, with and without duplicated pizzas.
+ * {@code hashMapValidate} keeps the former HashMap and {@code valueOf} implementation as the baseline:
+ * compare the two with the {@code gc.alloc.rate.norm} of the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubmitOrderRequestValidatorBenchmark {
+
+    private static final String[] NAMES = {"margherita", "Capricciosa", "DIAVOLA"};
+
+    @Param({"3", "30"})
+    private int entries;
+
+    private SubmitOrderRequest request;
+    private SubmitOrderRequest invalidPizzaRequest;
+
+    @Setup
+    public void setUp() {
+        final List<OrderEntry> order = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            order.add(new OrderEntry(NAMES[i % NAMES.length], i % 5 + 1));
+        }
+        request = new SubmitOrderRequest(order);
+
+        final List<OrderEntry> invalid = new ArrayList<>(order);
+        invalid.add(new OrderEntry("ananas", 1));
+        invalidPizzaRequest = new SubmitOrderRequest(invalid);
+    }
+
+    @Benchmark
+    public Map<Pizza, Integer> validate() {
+        return SubmitOrderRequestValidator.validate(request);
+    }
+
+    @Benchmark
+    public Map<Pizza, Integer> hashMapValidate() {
+        final Map<Pizza, Integer> pizzas = new HashMap<>();
+        request.order().forEach(e -> {
+            final Pizza pizza;
+            try {
+                pizza = Pizza.valueOf(e.name().toUpperCase());
+            } catch (IllegalArgumentException ex) {
+                throw new InvalidOrderPizzaException();
+            }
+            final int qty = e.qty();
+            pizzas.computeIfPresent(pizza, (k, v) -> v + qty);
+            pizzas.putIfAbsent(pizza, qty);
+        });
+        return pizzas;
+    }
+
+    @Benchmark
+    public Object rejectInvalidPizza() {
+        try {
+            return SubmitOrderRequestValidator.validate(invalidPizzaRequest);
+        } catch (final InvalidOrderPizzaException e) {
+            return e;
+        }
+    }
+}
@@ -2,8 +2,10 @@ package org.altervista.breve.awesome.pizza;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class PizzaApplication {
 
 	public static void main(String[] args) {
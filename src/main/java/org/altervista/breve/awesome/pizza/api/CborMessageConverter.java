@@ -0,0 +1,25 @@
+package org.altervista.breve.awesome.pizza.api;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Serves and accepts {@code application/cbor} next to JSON, chosen by the Accept and Content-Type headers.
+ * <p>
+ * It's built from the same builder as the JSON ObjectMapper, so the payloads have the same fields: only the encoding
+ * changes. CBOR carries numbers and lengths in binary and the order codes as 16 raw bytes instead of 36 characters.
+ * JSON is still the default when the client doesn't ask for anything.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CborMessageConverter extends MappingJackson2CborHttpMessageConverter {
+
+    @Autowired
+    public CborMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        super(builder.createXmlMapper(false).factory(new CBORFactory()).build());
+    }
+}
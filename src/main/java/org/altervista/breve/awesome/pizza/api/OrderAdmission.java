@@ -0,0 +1,160 @@
+package org.altervista.breve.awesome.pizza.api;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.altervista.breve.awesome.pizza.exception.OrderQueueFullException;
+import org.altervista.breve.awesome.pizza.exception.TooManyOrdersException;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.service.OrderQueueProjection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether a submission gets in before it reaches the service and MongoDB.
+ * <p>
+ * Every client, identified by the {@code client-header} or else by its address, has its own token bucket, and all of
+ * them share a global one: a client going over its rate gets {@code 429 Too Many Requests}, the whole shop going over
+ * the global rate gets {@code 503 Service Unavailable}, both with the time to wait. Orders are refused with
+ * {@code 503} as well while {@code max-ready} or more of them wait to be cooked, whatever the rate.
+ * A batch takes one token per order, even more than the burst: it gets in when the buckets are full and the
+ * following submissions wait until the extra orders have been refilled. A submission refused by the global bucket
+ * gives its tokens back to the client's one.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class OrderAdmission {
+
+    enum Decision {
+        ADMITTED,
+        CLIENT_LIMITED,
+        GLOBAL_LIMITED,
+        BACKLOG_FULL
+    }
+
+    private final OrderQueueProjection projection;
+    private final boolean enabled;
+    private final String clientHeader;
+    private final double clientRate;
+    private final int clientBurst;
+    private final int maxReady;
+    private final Duration backlogRetryAfter;
+    private final LongSupplier nanos;
+    private final TokenBucket global;
+    private final Cache<String, TokenBucket> clients;
+    private final Map<Decision, Counter> decisions = new EnumMap<>(Decision.class);
+
+    @Autowired
+    public OrderAdmission(
+            OrderQueueProjection projection,
+            MeterRegistry registry,
+            @Value("${awesome.pizza.admission.enabled}") final boolean enabled,
+            @Value("${awesome.pizza.admission.client-header}") final String clientHeader,
+            @Value("${awesome.pizza.admission.client.rate}") final double clientRate,
+            @Value("${awesome.pizza.admission.client.burst}") final int clientBurst,
+            @Value("${awesome.pizza.admission.client.max-clients}") final long maxClients,
+            @Value("${awesome.pizza.admission.global.rate}") final double globalRate,
+            @Value("${awesome.pizza.admission.global.burst}") final int globalBurst,
+            @Value("${awesome.pizza.admission.max-ready}") final int maxReady,
+            @Value("${awesome.pizza.admission.retry-after}") final Duration backlogRetryAfter
+    ) {
+        this(projection, registry, enabled, clientHeader, clientRate, clientBurst, maxClients, globalRate, globalBurst, maxReady, backlogRetryAfter, System::nanoTime);
+    }
+
+    OrderAdmission(OrderQueueProjection projection, MeterRegistry registry, boolean enabled, String clientHeader, double clientRate, int clientBurst, long maxClients, double globalRate, int globalBurst, int maxReady, Duration backlogRetryAfter, LongSupplier nanos) {
+        this.projection = projection;
+        this.enabled = enabled;
+        this.clientHeader = clientHeader;
+        this.clientRate = clientRate;
+        this.clientBurst = clientBurst;
+        this.maxReady = maxReady;
+        this.backlogRetryAfter = backlogRetryAfter;
+        this.nanos = nanos;
+        this.global = new TokenBucket(globalRate, globalBurst, nanos);
+        this.clients = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfter(new UntilFull())
+                .ticker(nanos::getAsLong)
+                .build();
+        for (final Decision decision : Decision.values()) {
+            decisions.put(decision, Counter.builder("awesome.pizza.admission.decisions")
+                    .tag("decision", decision.name().toLowerCase())
+                    .register(registry));
+        }
+    }
+
+    /**
+     * Throws TooManyOrdersException when the client goes too fast, OrderQueueFullException when the shop does or the
+     * kitchen is too far behind.
+     */
+    public void admit(final HttpServletRequest request, final int orders) {
+        if (!enabled) {
+            return;
+        }
+        if (projection.count(OrderStatus.READY) >= maxReady) {
+            record(Decision.BACKLOG_FULL);
+            throw new OrderQueueFullException(backlogRetryAfter);
+        }
+        // Taken inside compute, so that the bucket is kept as long as the debt of a big batch.
+        final Duration[] waits = new Duration[1];
+        final TokenBucket client = clients.asMap().compute(client(request), (key, bucket) -> {
+            final TokenBucket current = bucket == null ? new TokenBucket(clientRate, clientBurst, nanos) : bucket;
+            waits[0] = current.tryTake(orders);
+            return current;
+        });
+        final Duration clientWait = waits[0];
+        if (!clientWait.isZero()) {
+            record(Decision.CLIENT_LIMITED);
+            throw new TooManyOrdersException(clientWait);
+        }
+        final Duration globalWait = global.tryTake(orders);
+        if (!globalWait.isZero()) {
+            // The orders don't get in, the client shouldn't pay for them.
+            client.refund(orders);
+            record(Decision.GLOBAL_LIMITED);
+            throw new OrderQueueFullException(globalWait);
+        }
+        record(Decision.ADMITTED);
+    }
+
+    private void record(final Decision decision) {
+        decisions.get(decision).increment();
+    }
+
+    private String client(final HttpServletRequest request) {
+        final String key = request.getHeader(clientHeader);
+        return key == null || key.isBlank() ? request.getRemoteAddr() : key;
+    }
+
+    /**
+     * A client's bucket is forgotten once it's full again, which is the same as a new one: a client in debt after a
+     * batch bigger than the burst is remembered until it has paid it back.
+     */
+    private static final class UntilFull implements Expiry<String, TokenBucket> {
+
+        @Override
+        public long expireAfterCreate(final String client, final TokenBucket bucket, final long currentTime) {
+            return bucket.nanosUntilFull(currentTime);
+        }
+
+        @Override
+        public long expireAfterUpdate(final String client, final TokenBucket bucket, final long currentTime, final long currentDuration) {
+            return bucket.nanosUntilFull(currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(final String client, final TokenBucket bucket, final long currentTime, final long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -1,16 +1,34 @@
 package org.altervista.breve.awesome.pizza.api;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.altervista.breve.awesome.pizza.exception.InvalidBatchSizeException;
+import org.altervista.breve.awesome.pizza.exception.OrderQueueFullException;
+import org.altervista.breve.awesome.pizza.exception.OrderWriteTimeoutException;
+import org.altervista.breve.awesome.pizza.exception.TooManyOrdersException;
 import org.altervista.breve.awesome.pizza.model.Order;
 import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
 import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+import org.altervista.breve.awesome.pizza.model.response.KitchenStatsResponse;
+import org.altervista.breve.awesome.pizza.model.response.SubmitOrderBatchResponse;
 import org.altervista.breve.awesome.pizza.model.response.SubmitOrderResponse;
 import org.altervista.breve.awesome.pizza.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -19,53 +37,193 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/v1/orders")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 public class OrderController {
 
     private final OrderService service;
+    private final OrderEventBroadcaster broadcaster;
+    private final OrderAdmission admission;
+    private final ObjectWriter ndjsonWriter;
 
     @Autowired
-    public OrderController(OrderService service) {
+    public OrderController(OrderService service, OrderEventBroadcaster broadcaster, OrderAdmission admission, ObjectMapper objectMapper) {
         this.service = service;
+        this.broadcaster = broadcaster;
+        this.admission = admission;
+        this.ndjsonWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
     @PostMapping
     @Operation(summary = "Submit an order", description = "Add your favourite Pizza to queue and get them delivered as soon as possible")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "The order has been submitted and the orderCode for tracking purpose is returned"),
-            @ApiResponse(responseCode = "400", description = "You're asking something that we can't or don't want to handle")
+            @ApiResponse(responseCode = "400", description = "You're asking something that we can't or don't want to handle"),
+            @ApiResponse(responseCode = "429", description = "You're ordering too fast, come back after Retry-After seconds"),
+            @ApiResponse(responseCode = "503", description = "The oven is full, come back after Retry-After seconds"),
+            @ApiResponse(responseCode = "504", description = "The order is taking long to be written, follow it with the returned orderCode instead of submitting it again")
     })
     public ResponseEntity<SubmitOrderResponse> submit(@RequestBody SubmitOrderRequest request, final HttpServletRequest httpRequest) {
+        admission.admit(httpRequest, 1);
         final SubmitOrderResponse response = new SubmitOrderResponse(service.submit(request));
         final URI location = URI.create(
                 httpRequest.getRequestURL()
                         .append("/")
+                        .append(response.orderCode())
                         .toString()
         );
         return ResponseEntity.created(location).body(response);
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Submit many orders at once", description = "Every order is checked on its own, the valid ones are queued together")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "One result per order, in the same order: the orderCode when it has been submitted, the reason when it hasn't"),
+            @ApiResponse(responseCode = "400", description = "Between 1 and 1000 orders, please"),
+            @ApiResponse(responseCode = "429", description = "You're ordering too fast, come back after Retry-After seconds"),
+            @ApiResponse(responseCode = "503", description = "The oven is full, come back after Retry-After seconds")
+    })
+    public ResponseEntity<SubmitOrderBatchResponse> submitBatch(@RequestBody List<SubmitOrderRequest> requests, final HttpServletRequest httpRequest) {
+        if (requests.isEmpty() || requests.size() > OrderService.MAX_BATCH_SIZE) {
+            throw new InvalidBatchSizeException();
+        }
+        admission.admit(httpRequest, requests.size());
+        return ResponseEntity.ok(new SubmitOrderBatchResponse(service.submitAll(requests)));
+    }
+
+    @PostMapping("/claim")
+    @Operation(summary = "What's next?", description = "Hands the next READY order to a station, the first free one when it's not given, and sets it IN_PROGRESS in one go")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "It's yours, start cooking!"),
+            @ApiResponse(responseCode = "204", description = "Nothing to cook, enjoy the break"),
+            @ApiResponse(responseCode = "400", description = "We don't have such a station, are you sure you work from us?!"),
+            @ApiResponse(responseCode = "409", description = "The station is busy, or someone else was faster: try again")
+    })
+    public ResponseEntity<Order> claim(@RequestParam(required = false) final Integer station) {
+        return service.claimNext(station)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.noContent().build());
+    }
+
     @GetMapping
-    @Operation(summary = "It's your turn now!", description = "This is the order queue, if there isn't an IN_PROGRESS order just pick one!")
-    public ResponseEntity<List<Order>> list() {
-        return ResponseEntity.ok(service.findNotCompletedOrders());
+    @Operation(summary = "It's your turn now!", description = "This is the order queue, if there isn't an IN_PROGRESS order just pick one! Use limit and after to read it one page at a time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Here's the queue, when paginated the Link header points to the next page"),
+            @ApiResponse(responseCode = "304", description = "Nothing new in the queue since your ETag"),
+            @ApiResponse(responseCode = "400", description = "We can't recognize this cursor or limit, are you sure you got them from us?!")
+    })
+    public ResponseEntity<List<Order>> list(@RequestParam(required = false) final Integer limit, @RequestParam(required = false) final String after, final WebRequest webRequest, final HttpServletResponse response) {
+        final int pageSize = limit == null ? OrderService.DEFAULT_PAGE_SIZE : limit;
+        if (limit != null || after != null) {
+            OrderService.checkPage(after, pageSize);
+        }
+
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        final Optional<String> version = service.queueVersion();
+        if (version.isPresent() && webRequest.checkNotModified(weak(version.get()))) {
+            return null;
+        }
+
+        if (limit == null && after == null) {
+            return ResponseEntity.ok(service.findNotCompletedOrders());
+        }
+
+        final List<Order> page = service.findNotCompletedOrders(after, pageSize);
+        if (page.size() < pageSize) {
+            return ResponseEntity.ok(page);
+        }
+
+        final URI next = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("limit", pageSize)
+                .replaceQueryParam("after", QueueCursor.of(page.getLast()).encode())
+                .build()
+                .toUri();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<%s>; rel=\"next\"".formatted(next))
+                .body(page);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Keep them coming!", description = "The whole order queue, one order per line, written while it's read")
+    public ResponseEntity<StreamingResponseBody> stream() {
+        final StreamingResponseBody body = out -> {
+            try (Stream<Order> orders = service.streamNotCompletedOrders()) {
+                final Iterator<Order> iterator = orders.iterator();
+                while (iterator.hasNext()) {
+                    ndjsonWriter.writeValue(out, iterator.next());
+                    out.write('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @GetMapping("/stats")
+    @Operation(summary = "How is the kitchen doing?", description = "Throughput, wait and prep times per pizza of the orders delivered in a time window")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Numbers don't lie"),
+            @ApiResponse(responseCode = "400", description = "The window must start before it ends and last at most 31 days")
+    })
+    public ResponseEntity<KitchenStatsResponse> stats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime to
+    ) {
+        return ResponseEntity.ok(service.kitchenStats(from, to));
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Keep an eye on the kitchen", description = "A Server-Sent Events stream with an order event for every change of the queue")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Stay tuned, and read the queue again on a resync event")
+    })
+    public SseEmitter watchQueue() {
+        return broadcaster.watchQueue();
+    }
+
+    @GetMapping(value = "/{orderCode}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Is it ready yet?", description = "A Server-Sent Events stream with the current order followed by every change, until it's delivered")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "No more polling, we'll let you know"),
+            @ApiResponse(responseCode = "400", description = "We can't recognize this code, are you sure you ordered from us?!"),
+            @ApiResponse(responseCode = "404", description = "Oops, we can't find this order, are you sure the orderCode is correct?!")
+    })
+    public ResponseEntity<SseEmitter> track(@PathVariable final String orderCode) {
+        return service.getOrder(orderCode)
+                .map(order -> ResponseEntity.ok(broadcaster.track(order.id(), () -> service.getOrder(orderCode).orElse(order))))
+                .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/{orderCode}")
     @Operation(summary = "Are you hungry?", description = "Use the provided orderCode to keep an eye on your order status")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Here's what you ordered and its status, we'll try to deliver it as soon as possible!"),
+            @ApiResponse(responseCode = "304", description = "Still the same, hang in there"),
             @ApiResponse(responseCode = "400", description = "We can't recognize this code, are you sure you ordered from us?!"),
             @ApiResponse(responseCode = "404", description = "Oops, we can't find your order, are you sure the orderCode is correct?!")
     })
     public ResponseEntity<Order> get(@PathVariable final String orderCode) {
         return service.getOrder(orderCode)
-                .map(ResponseEntity::ok)
+                .map(order -> ResponseEntity.ok()
+                        .eTag(etag(order))
+                        .cacheControl(CacheControl.noCache())
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(order))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -75,6 +233,7 @@ public class OrderController {
             @ApiResponse(responseCode = "200", description = "As my father always says: you've done half your duty..."),
             @ApiResponse(responseCode = "400", description = "We don't recognize the code or the status, are you sure you work from us?!"),
             @ApiResponse(responseCode = "404", description = "Oops, we can't find this order, are you sure the orderCode is correct?!"),
+            @ApiResponse(responseCode = "409", description = "Too many cooks on this order right now, try again"),
             @ApiResponse(responseCode = "422", description = "You shall not pass! [rules: 1. Pick the READY orders one at a time!, 2. Deliver only the IN_PROGRESS order, 3. Never go back to READY]")
     })
     public ResponseEntity<?> update(@PathVariable final String orderCode, @RequestParam final OrderStatus status) {
@@ -85,4 +244,49 @@ public class OrderController {
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    @ExceptionHandler(OrderQueueFullException.class)
+    public ResponseEntity<Void> queueFull(final OrderQueueFullException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfter(e.getRetryAfter()))
+                .build();
+    }
+
+    /**
+     * The order may still be written: its code is returned, so that the client follows it instead of submitting it again.
+     */
+    @ExceptionHandler(OrderWriteTimeoutException.class)
+    public ResponseEntity<SubmitOrderResponse> writeTimeout(final OrderWriteTimeoutException e, final HttpServletRequest httpRequest) {
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT)
+                .location(URI.create(httpRequest.getRequestURL().append("/").append(e.getOrderCode()).toString()))
+                .body(new SubmitOrderResponse(e.getOrderCode()));
+    }
+
+    @ExceptionHandler(TooManyOrdersException.class)
+    public ResponseEntity<Void> tooManyOrders(final TooManyOrdersException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, retryAfter(e.getRetryAfter()))
+                .build();
+    }
+
+    /**
+     * Every write bumps the version of the order, a missing one counts as 0.
+     */
+    private static String etag(final Order order) {
+        return weak(String.valueOf(order.version() == null ? 0 : order.version()));
+    }
+
+    /**
+     * The same version is sent as JSON, CBOR and gzipped: it tells the content apart, not the bytes.
+     */
+    static String weak(final String version) {
+        return "W/\"" + version + "\"";
+    }
+
+    /**
+     * Whole seconds, rounded up: retrying earlier would be refused again.
+     */
+    private static String retryAfter(final Duration wait) {
+        return String.valueOf(Math.max(1, wait.plusNanos(999_999_999).toSeconds()));
+    }
 }
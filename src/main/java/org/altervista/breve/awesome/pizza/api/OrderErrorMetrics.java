@@ -0,0 +1,44 @@
+package org.altervista.breve.awesome.pizza.api;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Counts the exceptions thrown while serving the order API, by exception type and endpoint.
+ * It runs before the other resolvers and never resolves anything itself, so the status codes don't change.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class OrderErrorMetrics implements HandlerExceptionResolver, Ordered {
+
+    private final MeterRegistry registry;
+
+    @Autowired
+    public OrderErrorMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public ModelAndView resolveException(final HttpServletRequest request, final HttpServletResponse response, final Object handler, final Exception ex) {
+        if (handler instanceof HandlerMethod method && OrderController.class.isAssignableFrom(method.getBeanType())) {
+            registry.counter("awesome.pizza.orders.errors",
+                    "exception", ex.getClass().getSimpleName(),
+                    "endpoint", method.getMethod().getName()
+            ).increment();
+        }
+        return null;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+}
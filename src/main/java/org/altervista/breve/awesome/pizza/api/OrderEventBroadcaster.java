@@ -0,0 +1,270 @@
+package org.altervista.breve.awesome.pizza.api;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * Pushes the order changes to the Server-Sent Events subscribers: the ones tracking a single order and the ones
+ * watching the whole queue.
+ * <p>
+ * An idle subscriber costs an emitter and an empty backlog, no thread. Changes are conflated per order while they
+ * wait to be sent, so a subscriber never holds more than one change per order: a single one when tracking an order,
+ * at most {@code queue-backlog} when watching the queue. A queue watcher falling further behind gets a {@code resync}
+ * event instead and is expected to read the queue again.
+ * Sending happens on virtual threads, a slow connection never blocks the write that produced the change.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class OrderEventBroadcaster {
+
+    static final String ORDER_EVENT = "order";
+    static final String RESYNC_EVENT = "resync";
+
+    private final Map<UUID, Set<Subscriber>> trackers = new ConcurrentHashMap<>();
+    private final Set<Subscriber> watchers = ConcurrentHashMap.newKeySet();
+    private final LongFunction<SseEmitter> emitters;
+    private final Executor executor;
+    private final Duration timeout;
+    private final int queueBacklog;
+    private final Counter resyncs;
+
+    @Autowired
+    public OrderEventBroadcaster(
+            MeterRegistry registry,
+            @Value("${awesome.pizza.events.timeout}") final Duration timeout,
+            @Value("${awesome.pizza.events.queue-backlog}") final int queueBacklog
+    ) {
+        this(registry, timeout, queueBacklog, SseEmitter::new, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    OrderEventBroadcaster(MeterRegistry registry, Duration timeout, int queueBacklog, LongFunction<SseEmitter> emitters, Executor executor) {
+        this.emitters = emitters;
+        this.executor = executor;
+        this.timeout = timeout;
+        this.queueBacklog = queueBacklog;
+        Gauge.builder("awesome.pizza.events.subscribers", trackers, t -> t.values().stream().mapToInt(Set::size).sum())
+                .tag("type", "order")
+                .register(registry);
+        Gauge.builder("awesome.pizza.events.subscribers", watchers, Set::size)
+                .tag("type", "queue")
+                .register(registry);
+        this.resyncs = Counter.builder("awesome.pizza.events.resyncs")
+                .register(registry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+
+    /**
+     * Subscribes to the changes of a single order. The subscriber is registered before the current state is read,
+     * so no change can slip in between. The stream is completed once the order is delivered.
+     */
+    public SseEmitter track(final UUID orderId, final Supplier<Order> current) {
+        final Subscriber subscriber = new Subscriber(emitters.apply(timeout.toMillis()), 1, true);
+        trackers.computeIfAbsent(orderId, id -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        subscriber.onClose(() -> trackers.computeIfPresent(orderId, (id, subscribers) -> {
+            subscribers.remove(subscriber);
+            return subscribers.isEmpty() ? null : subscribers;
+        }));
+        subscriber.offer(current.get());
+        return subscriber.emitter;
+    }
+
+    /**
+     * Subscribes to the changes of every order, starting from now.
+     */
+    public SseEmitter watchQueue() {
+        final Subscriber subscriber = new Subscriber(emitters.apply(timeout.toMillis()), queueBacklog, false);
+        watchers.add(subscriber);
+        subscriber.onClose(() -> watchers.remove(subscriber));
+        subscriber.heartbeat();
+        return subscriber.emitter;
+    }
+
+    @EventListener
+    public void onOrderChanged(final OrderChangedEvent event) {
+        final Order order = event.order();
+        final Set<Subscriber> subscribers = trackers.get(order.id());
+        if (subscribers != null) {
+            subscribers.forEach(subscriber -> subscriber.offer(order));
+        }
+        watchers.forEach(subscriber -> subscriber.offer(order));
+    }
+
+    /**
+     * A comment line keeps the idle connections alive through proxies and detects the closed ones.
+     */
+    @Scheduled(fixedDelayString = "${awesome.pizza.events.heartbeat}", initialDelayString = "${awesome.pizza.events.heartbeat}")
+    public void heartbeat() {
+        trackers.values().forEach(subscribers -> subscribers.forEach(Subscriber::heartbeat));
+        watchers.forEach(Subscriber::heartbeat);
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final int backlog;
+        private final boolean completeOnDelivery;
+        private final Map<UUID, Order> pending = new LinkedHashMap<>();
+        private final Map<UUID, OrderStatus> offered = new LinkedHashMap<>();
+
+        private Runnable unsubscribe = () -> {
+        };
+        private boolean overflow;
+        private boolean heartbeat;
+        private boolean scheduled;
+        private boolean closed;
+
+        private Subscriber(final SseEmitter emitter, final int backlog, final boolean completeOnDelivery) {
+            this.emitter = emitter;
+            this.backlog = backlog;
+            this.completeOnDelivery = completeOnDelivery;
+        }
+
+        private void onClose(final Runnable unsubscribe) {
+            this.unsubscribe = unsubscribe;
+            emitter.onCompletion(this::close);
+            emitter.onTimeout(this::close);
+            emitter.onError(e -> close());
+        }
+
+        private void close() {
+            synchronized (this) {
+                closed = true;
+                pending.clear();
+                offered.clear();
+            }
+            unsubscribe.run();
+        }
+
+        private void offer(final Order order) {
+            synchronized (this) {
+                if (closed || overflow) {
+                    return;
+                }
+                final OrderStatus last = offered.get(order.id());
+                if (last != null && last.compareTo(order.status()) >= 0) {
+                    return;
+                }
+                remember(order);
+                pending.remove(order.id());
+                pending.put(order.id(), order);
+                if (pending.size() > backlog) {
+                    pending.clear();
+                    overflow = true;
+                }
+            }
+            schedule();
+        }
+
+        private void heartbeat() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                heartbeat = true;
+            }
+            schedule();
+        }
+
+        /**
+         * Only the last statuses of the backlog are needed to drop the stale changes, older ones are forgotten.
+         */
+        private void remember(final Order order) {
+            offered.remove(order.id());
+            offered.put(order.id(), order.status());
+            if (offered.size() > backlog) {
+                offered.remove(offered.keySet().iterator().next());
+            }
+        }
+
+        private void schedule() {
+            synchronized (this) {
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            executor.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                final List<Order> orders;
+                final boolean resync;
+                final boolean ping;
+                synchronized (this) {
+                    if (closed || (pending.isEmpty() && !overflow && !heartbeat)) {
+                        scheduled = false;
+                        return;
+                    }
+                    orders = new ArrayList<>(pending.values());
+                    resync = overflow;
+                    ping = heartbeat;
+                    pending.clear();
+                    overflow = false;
+                    heartbeat = false;
+                }
+                if (!send(orders, resync, ping)) {
+                    return;
+                }
+            }
+        }
+
+        private boolean send(final List<Order> orders, final boolean resync, final boolean ping) {
+            try {
+                if (resync) {
+                    resyncs.increment();
+                    emitter.send(SseEmitter.event().name(RESYNC_EVENT).data(""));
+                }
+                for (final Order order : orders) {
+                    emitter.send(SseEmitter.event().name(ORDER_EVENT).id(order.id().toString()).data(order));
+                }
+                if (ping && orders.isEmpty() && !resync) {
+                    emitter.send(SseEmitter.event().comment(""));
+                }
+                if (completeOnDelivery && orders.stream().anyMatch(order -> order.status() == OrderStatus.DELIVERED)) {
+                    close();
+                    emitter.complete();
+                    return false;
+                }
+                return true;
+            } catch (final IOException | IllegalStateException e) {
+                close();
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+    }
+}
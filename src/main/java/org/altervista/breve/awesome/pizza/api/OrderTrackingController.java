@@ -0,0 +1,62 @@
+package org.altervista.breve.awesome.pizza.api;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.altervista.breve.awesome.pizza.model.response.OrderPositionResponse;
+import org.altervista.breve.awesome.pizza.model.response.OrderTrackingResponse;
+import org.altervista.breve.awesome.pizza.service.OrderTrackingProjection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * The customer side of the orders, served by the tracking projection only: it never touches the kitchen write path.
+ */
+@RestController
+@RequestMapping("/api/v1/orders")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class OrderTrackingController {
+
+    private final OrderTrackingProjection tracking;
+
+    @Autowired
+    public OrderTrackingController(OrderTrackingProjection tracking) {
+        this.tracking = tracking;
+    }
+
+    @GetMapping("/{orderCode}/tracking")
+    @Operation(summary = "Where's my pizza?", description = "The status of your order, how many orders are ahead of it and when it should reach you")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Almost there, probably"),
+            @ApiResponse(responseCode = "400", description = "We can't recognize this code, are you sure you ordered from us?!"),
+            @ApiResponse(responseCode = "404", description = "Oops, we can't find your order, are you sure the orderCode is correct?!")
+    })
+    public ResponseEntity<OrderTrackingResponse> track(@PathVariable final String orderCode) {
+        return tracking.track(orderCode)
+                .map(response -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.noStore())
+                        .body(response))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{orderCode}/position")
+    @Operation(summary = "How many before me?", description = "How many orders will be picked before yours and when it should reach you")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Counting down"),
+            @ApiResponse(responseCode = "400", description = "We can't recognize this code, are you sure you ordered from us?!"),
+            @ApiResponse(responseCode = "404", description = "Oops, we can't find your order, are you sure the orderCode is correct?!")
+    })
+    public ResponseEntity<OrderPositionResponse> position(@PathVariable final String orderCode) {
+        return tracking.position(orderCode)
+                .map(response -> ResponseEntity.ok()
+                        .cacheControl(CacheControl.noStore())
+                        .body(response))
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
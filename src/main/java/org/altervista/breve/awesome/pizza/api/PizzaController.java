@@ -2,18 +2,33 @@ package org.altervista.breve.awesome.pizza.api;
 
 import io.swagger.v3.oas.annotations.Operation;
 import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.Duration;
+import java.util.Arrays;
+
 @RestController
 @RequestMapping("/api/v1/pizzas")
 public class PizzaController {
 
+    /**
+     * The menu only changes with a new release, the names are enough to tell its versions apart.
+     */
+    private static final String ETAG = OrderController.weak(Integer.toHexString(Arrays.stream(Pizza.values()).map(Pizza::name).toList().hashCode()));
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ofDays(1)).cachePublic();
+
     @GetMapping
     @Operation(summary = "All the available Pizzas", description = "These are the names of the Pizza that you can add to your order")
     public ResponseEntity<Pizza[]> list() {
-        return ResponseEntity.ok(Pizza.values());
+        return ResponseEntity.ok()
+                .eTag(ETAG)
+                .cacheControl(CACHE_CONTROL)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(Pizza.values());
     }
 }
@@ -0,0 +1,128 @@
+package org.altervista.breve.awesome.pizza.api;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
+import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+import org.altervista.breve.awesome.pizza.model.response.SubmitOrderResponse;
+import org.altervista.breve.awesome.pizza.service.OrderService;
+import org.altervista.breve.awesome.pizza.service.ReactiveOrderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * WebFlux twin of {@link OrderController}, active when the application runs with the {@code reactive} profile.
+ */
+@RestController
+@RequestMapping("/api/v1/orders")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveOrderController {
+
+    private final ReactiveOrderService service;
+
+    @Autowired
+    public ReactiveOrderController(ReactiveOrderService service) {
+        this.service = service;
+    }
+
+    @PostMapping
+    @Operation(summary = "Submit an order", description = "Add your favourite Pizza to queue and get them delivered as soon as possible")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "The order has been submitted and the orderCode for tracking purpose is returned"),
+            @ApiResponse(responseCode = "400", description = "You're asking something that we can't or don't want to handle")
+    })
+    public Mono<ResponseEntity<SubmitOrderResponse>> submit(@RequestBody SubmitOrderRequest request, final ServerHttpRequest httpRequest) {
+        return service.submit(request)
+                .map(orderCode -> {
+                    final URI location = UriComponentsBuilder.fromUri(httpRequest.getURI())
+                            .path("/{orderCode}")
+                            .buildAndExpand(orderCode)
+                            .toUri();
+                    return ResponseEntity.created(location).body(new SubmitOrderResponse(orderCode));
+                });
+    }
+
+    @GetMapping
+    @Operation(summary = "It's your turn now!", description = "This is the order queue, if there isn't an IN_PROGRESS order just pick one! Use limit and after to read it one page at a time")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Here's the queue, when paginated the Link header points to the next page"),
+            @ApiResponse(responseCode = "400", description = "We can't recognize this cursor or limit, are you sure you got them from us?!")
+    })
+    public Mono<ResponseEntity<List<Order>>> list(@RequestParam(required = false) final Integer limit, @RequestParam(required = false) final String after, final ServerHttpRequest httpRequest) {
+        if (limit == null && after == null) {
+            return service.findNotCompletedOrders().map(ResponseEntity::ok);
+        }
+
+        final int pageSize = limit == null ? OrderService.DEFAULT_PAGE_SIZE : limit;
+        return service.findNotCompletedOrders(after, pageSize)
+                .map(page -> {
+                    if (page.size() < pageSize) {
+                        return ResponseEntity.ok(page);
+                    }
+                    final URI next = UriComponentsBuilder.fromUri(httpRequest.getURI())
+                            .replaceQueryParam("limit", pageSize)
+                            .replaceQueryParam("after", QueueCursor.of(page.getLast()).encode())
+                            .build()
+                            .toUri();
+                    return ResponseEntity.ok()
+                            .header(HttpHeaders.LINK, "<%s>; rel=\"next\"".formatted(next))
+                            .body(page);
+                });
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Keep them coming!", description = "The whole order queue, one order per line, written while it's read")
+    public Flux<Order> stream() {
+        return service.streamNotCompletedOrders();
+    }
+
+    @GetMapping("/{orderCode}")
+    @Operation(summary = "Are you hungry?", description = "Use the provided orderCode to keep an eye on your order status")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Here's what you ordered and its status, we'll try to deliver it as soon as possible!"),
+            @ApiResponse(responseCode = "400", description = "We can't recognize this code, are you sure you ordered from us?!"),
+            @ApiResponse(responseCode = "404", description = "Oops, we can't find your order, are you sure the orderCode is correct?!")
+    })
+    public Mono<ResponseEntity<Order>> get(@PathVariable final String orderCode) {
+        return service.getOrder(orderCode)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PatchMapping("/{orderCode}")
+    @Operation(summary = "Let's work on it", description = "Pick a READY order or deliver an IN_PROGRESS order, just remember: one at a time!")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "As my father always says: you've done half your duty..."),
+            @ApiResponse(responseCode = "400", description = "We don't recognize the code or the status, are you sure you work from us?!"),
+            @ApiResponse(responseCode = "404", description = "Oops, we can't find this order, are you sure the orderCode is correct?!"),
+            @ApiResponse(responseCode = "422", description = "You shall not pass! [rules: 1. Pick the READY orders one at a time!, 2. Deliver only the IN_PROGRESS order, 3. Never go back to READY]")
+    })
+    public Mono<ResponseEntity<Void>> update(@PathVariable final String orderCode, @RequestParam final OrderStatus status) {
+        final ResponseEntity<Void> ok = ResponseEntity.ok().build();
+        final ResponseEntity<Void> notFound = ResponseEntity.notFound().build();
+        return service.getOrder(orderCode)
+                .flatMap(order -> service.updateStatus(order, status).thenReturn(ok))
+                .defaultIfEmpty(notFound);
+    }
+}
@@ -0,0 +1,60 @@
+package org.altervista.breve.awesome.pizza.api;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * A token bucket refilled with {@code rate} tokens per second and holding at most {@code burst} of them, kept as the
+ * time at which it will be full again (the generic cell rate algorithm): taking tokens is a single compare-and-set,
+ * no lock and no refill thread.
+ */
+final class TokenBucket {
+
+    private final long interval;
+    private final long capacity;
+    private final LongSupplier nanos;
+    private final AtomicLong fullAt;
+
+    TokenBucket(final double rate, final int burst, final LongSupplier nanos) {
+        this.interval = Math.max(1, Math.round(1_000_000_000 / rate));
+        this.capacity = interval * burst;
+        this.nanos = nanos;
+        this.fullAt = new AtomicLong(nanos.getAsLong());
+    }
+
+    /**
+     * Takes {@code tokens} tokens if there are enough, otherwise takes nothing and tells how long to wait for them.
+     * More tokens than the burst are never there: they're taken from a full bucket, which then stays in debt and
+     * refuses everything until the extra ones have been refilled, so the rate holds whatever the size of the requests.
+     */
+    Duration tryTake(final int tokens) {
+        final long cost = interval * tokens;
+        final long needed = Math.min(cost, capacity);
+        while (true) {
+            final long now = nanos.getAsLong();
+            final long current = fullAt.get();
+            final long wait = Math.max(current, now) + needed - capacity - now;
+            if (wait > 0) {
+                return Duration.ofNanos(wait);
+            }
+            if (fullAt.compareAndSet(current, Math.max(current, now) + cost)) {
+                return Duration.ZERO;
+            }
+        }
+    }
+
+    /**
+     * How long until the bucket is full again, as seen at {@code now}: forgetting it after that changes nothing.
+     */
+    long nanosUntilFull(final long now) {
+        return Math.max(0, fullAt.get() - now);
+    }
+
+    /**
+     * Gives back {@code tokens} tokens taken by a request refused afterwards.
+     */
+    void refund(final int tokens) {
+        fullAt.addAndGet(-interval * tokens);
+    }
+}
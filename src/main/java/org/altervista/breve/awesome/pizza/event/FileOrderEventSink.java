@@ -0,0 +1,64 @@
+package org.altervista.breve.awesome.pizza.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.altervista.breve.awesome.pizza.model.OrderOutboxEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends the events to a file, one JSON document per line, and flushes it to disk before returning.
+ * A stand-in for a real broker, handy on a single machine and in the tests.
+ */
+@Component
+@ConditionalOnProperty(name = "awesome.pizza.outbox.sink.type", havingValue = "file")
+public class FileOrderEventSink implements OrderEventSink {
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public FileOrderEventSink(@Value("${awesome.pizza.outbox.sink.file.path}") final Path path, final ObjectMapper objectMapper) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public synchronized void publish(final List<OrderOutboxEvent> events) {
+        final StringBuilder lines = new StringBuilder();
+        try {
+            for (final OrderOutboxEvent event : events) {
+                lines.append(objectMapper.writeValueAsString(event)).append('\n');
+            }
+        } catch (final JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize the order events", e);
+        }
+
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (final FileChannel out = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                final ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(false);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
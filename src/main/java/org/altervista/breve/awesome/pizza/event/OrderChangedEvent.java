@@ -0,0 +1,10 @@
+package org.altervista.breve.awesome.pizza.event;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+
+/**
+ * Published after an order has been written, either by this instance or, when change streams are enabled, by any other.
+ * The same change can be seen more than once, listeners must be idempotent.
+ */
+public record OrderChangedEvent(Order order) {
+}
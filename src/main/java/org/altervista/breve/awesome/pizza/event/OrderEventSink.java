@@ -0,0 +1,20 @@
+package org.altervista.breve.awesome.pizza.event;
+
+import org.altervista.breve.awesome.pizza.model.OrderOutboxEvent;
+
+import java.util.List;
+
+/**
+ * Where the outbox relay publishes the changes of the orders: a broker, a webhook, a file.
+ * Plug another one by declaring a bean implementing this interface and setting {@code awesome.pizza.outbox.sink.type}
+ * to anything but {@code file}.
+ */
+public interface OrderEventSink {
+
+    /**
+     * Publishes the events in the given order and returns once they're all safely delivered.
+     * Throwing means that none of them is considered delivered: they're all published again later, including the
+     * ones that went through, so the downstream systems may see an event more than once.
+     */
+    void publish(List<OrderOutboxEvent> events);
+}
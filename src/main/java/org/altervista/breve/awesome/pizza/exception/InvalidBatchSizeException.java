@@ -0,0 +1,8 @@
+package org.altervista.breve.awesome.pizza.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST, reason = "A batch must contain between 1 and 1000 orders")
+public class InvalidBatchSizeException extends IllegalArgumentException {
+}
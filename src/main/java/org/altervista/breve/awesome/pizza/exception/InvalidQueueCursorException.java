@@ -0,0 +1,8 @@
+package org.altervista.breve.awesome.pizza.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST, reason = "The provided cursor is not valid")
+public class InvalidQueueCursorException extends IllegalArgumentException {
+}
@@ -0,0 +1,8 @@
+package org.altervista.breve.awesome.pizza.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST, reason = "There's no such station in the kitchen")
+public class InvalidStationException extends RuntimeException {
+}
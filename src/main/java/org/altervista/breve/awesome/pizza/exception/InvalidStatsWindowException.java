@@ -0,0 +1,8 @@
+package org.altervista.breve.awesome.pizza.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST, reason = "The time window must start before it ends and last at most 31 days")
+public class InvalidStatsWindowException extends IllegalArgumentException {
+}
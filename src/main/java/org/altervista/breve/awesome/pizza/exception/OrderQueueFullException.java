@@ -0,0 +1,20 @@
+package org.altervista.breve.awesome.pizza.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.time.Duration;
+
+@ResponseStatus(code = HttpStatus.SERVICE_UNAVAILABLE, reason = "Too many orders, please retry later")
+public class OrderQueueFullException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public OrderQueueFullException(final Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
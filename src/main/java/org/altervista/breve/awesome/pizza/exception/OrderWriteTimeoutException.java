@@ -0,0 +1,20 @@
+package org.altervista.breve.awesome.pizza.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.UUID;
+
+@ResponseStatus(code = HttpStatus.GATEWAY_TIMEOUT, reason = "The order is still being written, look it up by its code")
+public class OrderWriteTimeoutException extends RuntimeException {
+
+    private final UUID orderCode;
+
+    public OrderWriteTimeoutException(final UUID orderCode) {
+        this.orderCode = orderCode;
+    }
+
+    public UUID getOrderCode() {
+        return orderCode;
+    }
+}
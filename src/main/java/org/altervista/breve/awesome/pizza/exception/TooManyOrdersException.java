@@ -0,0 +1,20 @@
+package org.altervista.breve.awesome.pizza.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.time.Duration;
+
+@ResponseStatus(code = HttpStatus.TOO_MANY_REQUESTS, reason = "Too many orders from you, please slow down")
+public class TooManyOrdersException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public TooManyOrdersException(final Duration retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
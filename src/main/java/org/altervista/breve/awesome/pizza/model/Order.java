@@ -1,16 +1,60 @@
 package org.altervista.breve.awesome.pizza.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.PersistenceCreator;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.UUID;
 
+/**
+ * The active_station index is the guard of the kitchen stations: MongoDB rejects a second IN_PROGRESS order on the same station.
+ * startedAt and deliveredAt are written together with the IN_PROGRESS and the DELIVERED status and are missing until then,
+ * the station is written when the order is picked.
+ * The version is bumped by every write and guards them against the concurrent ones, a missing version counts as 0.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 @Document(collection = "orders")
+@CompoundIndexes({
+        @CompoundIndex(name = "status_submittedAt_id", def = "{'status': 1, 'submittedAt': 1, '_id': 1}"),
+        @CompoundIndex(name = "active_station", def = "{'station': 1}", unique = true, partialFilter = "{'status': 'IN_PROGRESS'}"),
+        @CompoundIndex(name = "status_deliveredAt", def = "{'status': 1, 'deliveredAt': 1}")
+})
 public record Order(
         @Id UUID id,
         LocalDateTime submittedAt,
         OrderStatus status,
-        Map<Pizza, Integer> pizzas) {
-}
\ No newline at end of file
+        Map<Pizza, Integer> pizzas,
+        LocalDateTime startedAt,
+        LocalDateTime deliveredAt,
+        Integer station,
+        @Version Long version) {
+
+    @PersistenceCreator
+    public Order {
+    }
+
+    public Order(UUID id, LocalDateTime submittedAt, OrderStatus status, Map<Pizza, Integer> pizzas) {
+        this(id, submittedAt, status, pizzas, null, null, null, null);
+    }
+
+    public Order(UUID id, LocalDateTime submittedAt, OrderStatus status, Map<Pizza, Integer> pizzas, LocalDateTime startedAt, LocalDateTime deliveredAt) {
+        this(id, submittedAt, status, pizzas, startedAt, deliveredAt, null, null);
+    }
+
+    public Order(UUID id, LocalDateTime submittedAt, OrderStatus status, Map<Pizza, Integer> pizzas, LocalDateTime startedAt, LocalDateTime deliveredAt, Long version) {
+        this(id, submittedAt, status, pizzas, startedAt, deliveredAt, null, version);
+    }
+
+    /**
+     * The number of pizzas in the order, whatever their kind.
+     */
+    public int size() {
+        return pizzas.values().stream().mapToInt(Integer::intValue).sum();
+    }
+}
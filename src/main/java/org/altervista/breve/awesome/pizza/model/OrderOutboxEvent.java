@@ -0,0 +1,25 @@
+package org.altervista.breve.awesome.pizza.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A change of an order waiting to be published, written together with the order itself.
+ * The order is the one just written: its version orders the events of the same order, the id lets the consumers
+ * drop the events delivered more than once.
+ */
+@Document(collection = "orders_outbox")
+@CompoundIndexes({
+        @CompoundIndex(name = "occurredAt_id", def = "{'occurredAt': 1, '_id': 1}"),
+        @CompoundIndex(name = "order_id_version", def = "{'order._id': 1, 'order.version': 1}")
+})
+public record OrderOutboxEvent(
+        @Id UUID id,
+        LocalDateTime occurredAt,
+        Order order) {
+}
@@ -3,5 +3,22 @@ package org.altervista.breve.awesome.pizza.model;
 public enum Pizza {
     MARGHERITA,
     CAPRICCIOSA,
-    DIAVOLA
+    DIAVOLA;
+
+    private static final Pizza[] VALUES = values();
+
+    /**
+     * Case-insensitive lookup by name that doesn't allocate, returns null when no pizza matches.
+     */
+    public static Pizza byName(final String name) {
+        if (name == null) {
+            return null;
+        }
+        for (final Pizza pizza : VALUES) {
+            if (pizza.name().equalsIgnoreCase(name)) {
+                return pizza;
+            }
+        }
+        return null;
+    }
 }
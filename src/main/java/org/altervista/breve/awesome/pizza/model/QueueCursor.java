@@ -0,0 +1,58 @@
+package org.altervista.breve.awesome.pizza.model;
+
+import org.altervista.breve.awesome.pizza.exception.InvalidQueueCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.UUID;
+
+/**
+ * Keyset position in the order queue, which is sorted by status, submittedAt and id.
+ * It travels to the clients as an opaque base64url token.
+ */
+public record QueueCursor(OrderStatus status, LocalDateTime submittedAt, UUID id) {
+
+    /**
+     * The ordering of the queue as MongoDB sorts it: the ids are compared like the bytes of a binary {@code _id},
+     * unsigned, and not like {@link UUID#compareTo} does.
+     */
+    public static final Comparator<QueueCursor> QUEUE_ORDER = Comparator
+            .comparing((QueueCursor c) -> c.status().name())
+            .thenComparing(QueueCursor::submittedAt)
+            .thenComparing(QueueCursor::id, QueueCursor::compareIds);
+
+    private static final String SEPARATOR = "|";
+
+    public static QueueCursor of(final Order order) {
+        return new QueueCursor(order.status(), order.submittedAt(), order.id());
+    }
+
+    public static QueueCursor decode(final String token) {
+        try {
+            final String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                    .split("\\" + SEPARATOR, -1);
+            if (parts.length != 3) {
+                throw new InvalidQueueCursorException();
+            }
+            return new QueueCursor(OrderStatus.valueOf(parts[0]), LocalDateTime.parse(parts[1]), UUID.fromString(parts[2]));
+        } catch (final IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidQueueCursorException();
+        }
+    }
+
+    /**
+     * Compares two ids like MongoDB compares them as standard binary UUIDs: byte by byte, unsigned.
+     */
+    public static int compareIds(final UUID a, final UUID b) {
+        final int byMost = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return byMost != 0 ? byMost : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    public String encode() {
+        final String raw = status + SEPARATOR + submittedAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,7 @@
+package org.altervista.breve.awesome.pizza.model.response;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record KitchenStatsResponse(LocalDateTime from, LocalDateTime to, List<PizzaKitchenStats> pizzas) {
+}
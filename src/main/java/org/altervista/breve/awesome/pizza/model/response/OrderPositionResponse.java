@@ -0,0 +1,10 @@
+package org.altervista.breve.awesome.pizza.model.response;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * How many READY orders will be picked before the order, 0 once it's picked, and when it should be delivered.
+ */
+public record OrderPositionResponse(UUID orderCode, int ahead, LocalDateTime eta) {
+}
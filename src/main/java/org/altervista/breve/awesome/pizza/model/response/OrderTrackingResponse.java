@@ -0,0 +1,15 @@
+package org.altervista.breve.awesome.pizza.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * What a customer needs to follow an order: its status, how many READY orders will be picked before it and when it
+ * should be delivered, or when it was. The position is only given while the order is READY.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OrderTrackingResponse(UUID orderCode, OrderStatus status, Integer position, LocalDateTime eta) {
+}
@@ -0,0 +1,22 @@
+package org.altervista.breve.awesome.pizza.model.response;
+
+import org.altervista.breve.awesome.pizza.model.Pizza;
+
+/**
+ * The delivered orders containing a pizza in a time window: how many, how fast, and how long they waited and took.
+ * Times are in milliseconds, the percentiles are approximated by MongoDB.
+ */
+public record PizzaKitchenStats(
+        Pizza pizza,
+        long orders,
+        long pizzas,
+        double ordersPerHour,
+        Double avgWaitMs,
+        Double p50WaitMs,
+        Double p95WaitMs,
+        Double p99WaitMs,
+        Double avgPrepMs,
+        Double p50PrepMs,
+        Double p95PrepMs,
+        Double p99PrepMs) {
+}
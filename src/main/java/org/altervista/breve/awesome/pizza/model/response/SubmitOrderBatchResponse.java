@@ -0,0 +1,6 @@
+package org.altervista.breve.awesome.pizza.model.response;
+
+import java.util.List;
+
+public record SubmitOrderBatchResponse(List<SubmitOrderBatchResult> results) {
+}
@@ -0,0 +1,17 @@
+package org.altervista.breve.awesome.pizza.model.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.UUID;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record SubmitOrderBatchResult(UUID orderCode, String error) {
+
+    public static SubmitOrderBatchResult submitted(final UUID orderCode) {
+        return new SubmitOrderBatchResult(orderCode, null);
+    }
+
+    public static SubmitOrderBatchResult rejected(final String error) {
+        return new SubmitOrderBatchResult(null, error);
+    }
+}
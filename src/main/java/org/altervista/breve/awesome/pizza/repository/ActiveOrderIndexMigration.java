@@ -0,0 +1,43 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops the active_order index of the single station kitchen, which allows one IN_PROGRESS order in the whole
+ * collection, the active_station one replacing it allows one per station.
+ * <p>
+ * Instances still running the single station kitchen rely on it to keep two orders from being picked together, so it's
+ * a one-off step, turned on by {@code awesome.pizza.migration.drop-active-order-index} once all of them are upgraded.
+ */
+@Component
+@ConditionalOnProperty(name = "awesome.pizza.migration.drop-active-order-index", havingValue = "true")
+public class ActiveOrderIndexMigration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ActiveOrderIndexMigration.class);
+
+    static final String ACTIVE_ORDER_INDEX = "active_order";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    public ActiveOrderIndexMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @PostConstruct
+    public void migrate() {
+        final IndexOperations indexOps = mongoTemplate.indexOps(Order.class);
+        if (indexOps.getIndexInfo().stream().anyMatch(index -> ACTIVE_ORDER_INDEX.equals(index.getName()))) {
+            indexOps.dropIndex(ACTIVE_ORDER_INDEX);
+            LOGGER.info("Dropped the {} index of {}", ACTIVE_ORDER_INDEX, mongoTemplate.getCollectionName(Order.class));
+        }
+    }
+}
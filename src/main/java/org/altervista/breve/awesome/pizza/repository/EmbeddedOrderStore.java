@@ -0,0 +1,385 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import jakarta.annotation.PreDestroy;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
+import org.altervista.breve.awesome.pizza.model.response.PizzaKitchenStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * In-process {@link OrderStore} for the single shop deployments which can't run a MongoDB server.
+ * <p>
+ * The orders live in memory: a concurrent map by id, a skip list sorted like the queue (status name, submittedAt, id)
+ * and one by delivery time for the archive and the stats, so reads never take a lock. Writes are serialized by a
+ * single lock, checked against the stored version and the kitchen stations like MongoDB does, appended to the
+ * {@link OrderLog} and only then applied. Everything is snapshotted every {@code snapshot-interval} and on shutdown,
+ * which also drops the log written before.
+ * <p>
+ * Writes reach the memory-mapped log before returning, so they survive a crash of the process; with
+ * {@code force-writes} every write is flushed to the disk too, surviving a power loss at the cost of a sync per write.
+ */
+@Component
+@ConditionalOnProperty(name = "awesome.pizza.store.type", havingValue = "embedded")
+public class EmbeddedOrderStore implements OrderStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EmbeddedOrderStore.class);
+
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+    private static final UUID LAST_ID = new UUID(-1L, -1L);
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final Map<UUID, Order> orders = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<QueueCursor, Order> queue = new ConcurrentSkipListMap<>(QueueCursor.QUEUE_ORDER);
+    private final ConcurrentNavigableMap<Delivery, Order> delivered = new ConcurrentSkipListMap<>();
+    private final Map<UUID, Order> archive = new ConcurrentHashMap<>();
+    private final ConcurrentNavigableMap<Delivery, Order> archivedByDelivery = new ConcurrentSkipListMap<>();
+    private final Map<Integer, UUID> stations = new HashMap<>();
+    private final ReentrantLock writes = new ReentrantLock();
+    private final ReentrantLock snapshots = new ReentrantLock();
+    private final OrderLog log;
+
+    @Autowired
+    public EmbeddedOrderStore(
+            @Value("${awesome.pizza.store.embedded.path}") final Path path,
+            @Value("${awesome.pizza.store.embedded.segment-size}") final DataSize segmentSize,
+            @Value("${awesome.pizza.store.embedded.force-writes}") final boolean forceWrites
+    ) {
+        this.log = new OrderLog(path, Math.toIntExact(segmentSize.toBytes()), forceWrites);
+        log.recover(this::replay);
+        LOGGER.info("Recovered {} orders and {} archived ones from {}", orders.size(), archive.size(), path);
+    }
+
+    @Override
+    public Optional<Order> findById(final UUID id) {
+        return Optional.ofNullable(orders.get(id));
+    }
+
+    /**
+     * Like MongoDB, an order without a version is inserted at version 0 and an existing one is only replaced at the
+     * stored version, bumping it.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <S extends Order> S save(final S order) {
+        return (S) write(() -> {
+            final Order current = orders.get(order.id());
+            final long version;
+            if (order.version() == null) {
+                if (current != null) {
+                    throw new DuplicateKeyException("Duplicate order id " + order.id());
+                }
+                version = 0;
+            } else {
+                if (current == null || !order.version().equals(current.version())) {
+                    throw new OptimisticLockingFailureException("Order " + order.id() + " is not at version " + order.version());
+                }
+                version = order.version() + 1;
+            }
+            final Order saved = new Order(order.id(), order.submittedAt(), order.status(), order.pizzas(),
+                    order.startedAt(), order.deliveredAt(), order.station(), version);
+            checkStation(saved);
+            log.append(List.of(OrderCodec.put(saved)));
+            put(saved);
+            return saved;
+        });
+    }
+
+    @Override
+    public List<Order> findByStatusOrderBySubmittedAtAsc(final OrderStatus status) {
+        return List.copyOf(segment(status).values());
+    }
+
+    @Override
+    public List<Order> findByStatusInOrderByStatusAscSubmittedAtAsc(final Collection<OrderStatus> statuses) {
+        return streamByStatusInOrderByStatusAscSubmittedAtAscIdAsc(statuses).toList();
+    }
+
+    @Override
+    public Stream<Order> streamByStatusInOrderByStatusAscSubmittedAtAscIdAsc(final Collection<OrderStatus> statuses) {
+        return sortedByName(statuses).flatMap(status -> segment(status).values().stream());
+    }
+
+    /**
+     * Walks only the segments of the requested statuses, starting right after the cursor.
+     */
+    @Override
+    public List<Order> findQueuePage(final Collection<OrderStatus> statuses, final QueueCursor after, final int limit) {
+        return sortedByName(statuses)
+                .filter(status -> after == null || status.name().compareTo(after.status().name()) >= 0)
+                .flatMap(status -> after != null && status == after.status()
+                        ? segment(status).tailMap(after, false).values().stream()
+                        : segment(status).values().stream())
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public Optional<Order> transition(final UUID id, final Long version, final OrderStatus from, final OrderStatus to, final LocalDateTime at) {
+        return write(() -> update(id, version, from, to, at, null));
+    }
+
+    @Override
+    public Optional<Order> claim(final UUID id, final Long version, final int station, final LocalDateTime at) {
+        return write(() -> update(id, version, OrderStatus.READY, OrderStatus.IN_PROGRESS, at, station));
+    }
+
+    @Override
+    public Set<Integer> insertUnordered(final List<Order> batch) {
+        return write(() -> {
+            final Set<Integer> failed = new HashSet<>();
+            final Map<UUID, Order> inserted = new LinkedHashMap<>();
+            for (int i = 0; i < batch.size(); i++) {
+                final Order order = batch.get(i);
+                if (orders.containsKey(order.id()) || inserted.putIfAbsent(order.id(), order) != null) {
+                    failed.add(i);
+                }
+            }
+            if (!inserted.isEmpty()) {
+                log.append(inserted.values().stream().map(OrderCodec::put).toList());
+                inserted.values().forEach(this::put);
+            }
+            return failed;
+        });
+    }
+
+    /**
+     * Exact percentiles by nearest rank, over the delivered orders and the archived ones.
+     */
+    @Override
+    public List<PizzaKitchenStats> kitchenStats(final LocalDateTime from, final LocalDateTime to) {
+        final double hours = Duration.between(from, to).toMillis() / 3_600_000d;
+        final Map<Pizza, List<Order>> byPizza = new EnumMap<>(Pizza.class);
+        Stream.concat(deliveredBetween(delivered, from, to), deliveredBetween(archivedByDelivery, from, to))
+                .forEach(order -> order.pizzas().keySet()
+                        .forEach(pizza -> byPizza.computeIfAbsent(pizza, p -> new ArrayList<>()).add(order)));
+
+        return byPizza.entrySet().stream()
+                .sorted(Comparator.comparing(entry -> entry.getKey().name()))
+                .map(entry -> {
+                    final List<Order> matching = entry.getValue();
+                    final long[] waits = matching.stream().mapToLong(order -> Duration.between(order.submittedAt(), order.startedAt()).toMillis()).sorted().toArray();
+                    final long[] preps = matching.stream().mapToLong(order -> Duration.between(order.startedAt(), order.deliveredAt()).toMillis()).sorted().toArray();
+                    return new PizzaKitchenStats(
+                            entry.getKey(),
+                            matching.size(),
+                            matching.stream().mapToLong(order -> order.pizzas().get(entry.getKey())).sum(),
+                            matching.size() / hours,
+                            average(waits), percentile(waits, PERCENTILES[0]), percentile(waits, PERCENTILES[1]), percentile(waits, PERCENTILES[2]),
+                            average(preps), percentile(preps, PERCENTILES[0]), percentile(preps, PERCENTILES[1]), percentile(preps, PERCENTILES[2])
+                    );
+                })
+                .toList();
+    }
+
+    @Override
+    public int archiveDelivered(final LocalDateTime before, final int limit) {
+        return write(() -> {
+            final List<Order> expired = delivered.headMap(new Delivery(before, FIRST_ID), false).values().stream()
+                    .limit(limit)
+                    .toList();
+            if (!expired.isEmpty()) {
+                log.append(expired.stream().map(order -> OrderCodec.archive(order.id())).toList());
+                expired.forEach(order -> moveToArchive(order.id()));
+            }
+            return expired.size();
+        });
+    }
+
+    @Override
+    public Optional<Order> findArchivedById(final UUID id) {
+        return Optional.ofNullable(archive.get(id));
+    }
+
+    /**
+     * Starts a new log segment under the write lock, then writes the copy of the orders it was taken with while the
+     * writes go on.
+     */
+    @Scheduled(fixedDelayString = "${awesome.pizza.store.embedded.snapshot-interval}", initialDelayString = "${awesome.pizza.store.embedded.snapshot-interval}")
+    public void snapshot() {
+        snapshots.lock();
+        try {
+            final long generation;
+            final List<Order> live;
+            final List<Order> archived;
+            writes.lock();
+            try {
+                generation = log.checkpoint();
+                live = List.copyOf(orders.values());
+                archived = List.copyOf(archive.values());
+            } finally {
+                writes.unlock();
+            }
+            log.snapshot(generation, Stream.concat(live.stream().map(OrderCodec::put), archived.stream().map(OrderCodec::archived)));
+            LOGGER.debug("Snapshot {} written with {} orders and {} archived ones", generation, live.size(), archived.size());
+        } finally {
+            snapshots.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        snapshot();
+        writes.lock();
+        try {
+            log.close();
+        } finally {
+            writes.unlock();
+        }
+    }
+
+    private Optional<Order> update(final UUID id, final Long version, final OrderStatus from, final OrderStatus to, final LocalDateTime at, final Integer station) {
+        final Order current = orders.get(id);
+        if (current == null || current.status() != from || !Objects.equals(current.version(), version)) {
+            return Optional.empty();
+        }
+        final Order updated = new Order(id, current.submittedAt(), to, current.pizzas(),
+                to == OrderStatus.IN_PROGRESS ? at : current.startedAt(),
+                to == OrderStatus.DELIVERED ? at : current.deliveredAt(),
+                station == null ? current.station() : station,
+                (version == null ? 0 : version) + 1);
+        checkStation(updated);
+        log.append(List.of(OrderCodec.put(updated)));
+        put(updated);
+        return Optional.of(updated);
+    }
+
+    /**
+     * The in-memory twin of the active_station index, a missing station counting as one more station.
+     */
+    private void checkStation(final Order order) {
+        if (order.status() != OrderStatus.IN_PROGRESS) {
+            return;
+        }
+        final UUID cooking = stations.get(order.station());
+        if (cooking != null && !cooking.equals(order.id())) {
+            throw new DuplicateKeyException("active_station: station " + order.station() + " is cooking order " + cooking);
+        }
+    }
+
+    private void replay(final ByteBuffer record) {
+        switch (OrderCodec.type(record)) {
+            case OrderCodec.PUT -> put(OrderCodec.order(record));
+            case OrderCodec.ARCHIVE -> moveToArchive(OrderCodec.id(record));
+            case OrderCodec.ARCHIVED -> archived(OrderCodec.order(record));
+            default -> throw new IllegalStateException("Unknown record type " + OrderCodec.type(record));
+        }
+    }
+
+    private void put(final Order order) {
+        final Order previous = orders.put(order.id(), order);
+        if (previous != null) {
+            unindex(previous);
+        }
+        queue.put(QueueCursor.of(order), order);
+        if (order.status() == OrderStatus.DELIVERED && order.deliveredAt() != null) {
+            delivered.put(Delivery.of(order), order);
+        }
+        if (order.status() == OrderStatus.IN_PROGRESS) {
+            stations.put(order.station(), order.id());
+        }
+    }
+
+    private void moveToArchive(final UUID id) {
+        final Order order = orders.remove(id);
+        if (order != null) {
+            unindex(order);
+            archived(order);
+        }
+    }
+
+    private void archived(final Order order) {
+        archive.put(order.id(), order);
+        if (order.deliveredAt() != null) {
+            archivedByDelivery.put(Delivery.of(order), order);
+        }
+    }
+
+    private void unindex(final Order order) {
+        queue.remove(QueueCursor.of(order));
+        if (order.status() == OrderStatus.DELIVERED && order.deliveredAt() != null) {
+            delivered.remove(Delivery.of(order));
+        }
+        if (order.status() == OrderStatus.IN_PROGRESS) {
+            stations.remove(order.station(), order.id());
+        }
+    }
+
+    private <T> T write(final Supplier<T> action) {
+        writes.lock();
+        try {
+            return action.get();
+        } finally {
+            writes.unlock();
+        }
+    }
+
+    private ConcurrentNavigableMap<QueueCursor, Order> segment(final OrderStatus status) {
+        return queue.subMap(new QueueCursor(status, LocalDateTime.MIN, FIRST_ID), true, new QueueCursor(status, LocalDateTime.MAX, LAST_ID), true);
+    }
+
+    private static Stream<OrderStatus> sortedByName(final Collection<OrderStatus> statuses) {
+        return statuses.stream().distinct().sorted(Comparator.comparing(OrderStatus::name));
+    }
+
+    private static Stream<Order> deliveredBetween(final ConcurrentNavigableMap<Delivery, Order> index, final LocalDateTime from, final LocalDateTime to) {
+        return index.subMap(new Delivery(from, FIRST_ID), true, new Delivery(to, FIRST_ID), false).values().stream();
+    }
+
+    private static Double average(final long[] values) {
+        return values.length == 0 ? null : (double) Arrays.stream(values).sum() / values.length;
+    }
+
+    private static Double percentile(final long[] sorted, final double p) {
+        return sorted.length == 0 ? null : (double) sorted[Math.max(0, (int) Math.ceil(p * sorted.length) - 1)];
+    }
+
+    private record Delivery(LocalDateTime deliveredAt, UUID id) implements Comparable<Delivery> {
+
+        private static Delivery of(final Order order) {
+            return new Delivery(order.deliveredAt(), order.id());
+        }
+
+        @Override
+        public int compareTo(final Delivery other) {
+            final int byTime = deliveredAt.compareTo(other.deliveredAt);
+            return byTime != 0 ? byTime : QueueCursor.compareIds(id, other.id);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import jakarta.annotation.PostConstruct;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.bson.BsonBinary;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.UuidRepresentation;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Moves the orders stored with the Java legacy UUID representation to the standard one.
+ * <p>
+ * The first orders were written with the driver default, binary subtype 3 with the bytes of each half reversed, while
+ * the application now reads and writes subtype 4: the old orders could still be listed by status, but not found by
+ * code nor moved forward. At startup every subtype 3 id of the orders and of the archive is rewritten as subtype 4,
+ * keeping the same UUID, so the codes handed out before keep working.
+ * <p>
+ * A document can't change its _id: it's copied to a staging collection first, then removed and inserted again with
+ * the new id. A run interrupted in between leaves the copy in the staging collection and the next one puts it back.
+ * Removing before inserting keeps an IN_PROGRESS order from clashing with itself on the active_station index.
+ */
+@Component
+@ConditionalOnProperty(name = "awesome.pizza.store.type", havingValue = "mongo", matchIfMissing = true)
+public class LegacyOrderIdMigration {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LegacyOrderIdMigration.class);
+
+    private static final String STAGING_SUFFIX = "_legacy_ids";
+    private static final Bson LEGACY_IDS = Filters.and(
+            Filters.gte("_id", new BsonBinary(BsonBinarySubType.UUID_LEGACY, filled((byte) 0x00))),
+            Filters.lte("_id", new BsonBinary(BsonBinarySubType.UUID_LEGACY, filled((byte) 0xFF)))
+    );
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    public LegacyOrderIdMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * An unreachable database doesn't stop the application, the orders are moved at the next start.
+     */
+    @PostConstruct
+    public void migrate() {
+        for (final String collection : List.of(mongoTemplate.getCollectionName(Order.class), OrderArchiveRepository.ARCHIVE_COLLECTION)) {
+            try {
+                final int migrated = migrate(collection);
+                if (migrated > 0) {
+                    LOGGER.info("Moved {} orders of {} to the standard UUID representation", migrated, collection);
+                }
+            } catch (final RuntimeException e) {
+                LOGGER.warn("Unable to move the orders of {} to the standard UUID representation", collection, e);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of orders moved, including the ones left in the staging collection by a previous run.
+     */
+    int migrate(final String collectionName) {
+        final MongoCollection<BsonDocument> collection = collection(collectionName);
+        final MongoCollection<BsonDocument> staging = collection(collectionName + STAGING_SUFFIX);
+
+        final List<BsonDocument> copies = staging.find().into(new ArrayList<>());
+        copies.forEach(copy -> restore(collection, staging, copy));
+
+        final List<BsonDocument> legacy = collection.find(LEGACY_IDS).into(new ArrayList<>());
+        for (final BsonDocument order : legacy) {
+            final BsonBinary legacyId = order.getBinary("_id");
+            final BsonDocument copy = order.clone();
+            copy.put("_id", new BsonBinary(legacyId.asUuid(UuidRepresentation.JAVA_LEGACY), UuidRepresentation.STANDARD));
+            staging.replaceOne(Filters.eq("_id", copy.get("_id")), copy, new ReplaceOptions().upsert(true));
+            collection.deleteOne(Filters.eq("_id", legacyId));
+            restore(collection, staging, copy);
+        }
+        return copies.size() + legacy.size();
+    }
+
+    /**
+     * Inserts the copy unless an earlier run already did, then drops it from the staging collection.
+     */
+    private static void restore(final MongoCollection<BsonDocument> collection, final MongoCollection<BsonDocument> staging, final BsonDocument copy) {
+        final BsonValue id = copy.get("_id");
+        try {
+            collection.insertOne(copy);
+        } catch (final MongoWriteException e) {
+            if (e.getError().getCategory() != ErrorCategory.DUPLICATE_KEY || collection.countDocuments(Filters.eq("_id", id)) == 0) {
+                throw e;
+            }
+        }
+        staging.deleteOne(Filters.eq("_id", id));
+    }
+
+    private MongoCollection<BsonDocument> collection(final String name) {
+        return mongoTemplate.getCollection(name).withDocumentClass(BsonDocument.class);
+    }
+
+    private static byte[] filled(final byte value) {
+        final byte[] bytes = new byte[16];
+        Arrays.fill(bytes, value);
+        return bytes;
+    }
+}
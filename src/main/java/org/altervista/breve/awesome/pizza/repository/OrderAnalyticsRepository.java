@@ -0,0 +1,15 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.response.PizzaKitchenStats;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface OrderAnalyticsRepository {
+
+    /**
+     * Computes the stats of the orders delivered in [from, to) per pizza, with a single aggregation run by MongoDB.
+     * An order with more pizzas counts for each of them, archived orders included.
+     */
+    List<PizzaKitchenStats> kitchenStats(LocalDateTime from, LocalDateTime to);
+}
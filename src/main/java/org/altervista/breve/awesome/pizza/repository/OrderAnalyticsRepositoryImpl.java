@@ -0,0 +1,93 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.response.PizzaKitchenStats;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.TypedAggregation;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Only the matches are mapped from the Order properties, the following stages work on the raw documents.
+ * The archived orders are matched too, through a $unionWith of the archive collection.
+ * $percentile needs MongoDB 7.0 or later.
+ */
+class OrderAnalyticsRepositoryImpl implements OrderAnalyticsRepository {
+
+    private static final List<Double> PERCENTILES = List.of(0.5, 0.95, 0.99);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    OrderAnalyticsRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<PizzaKitchenStats> kitchenStats(final LocalDateTime from, final LocalDateTime to) {
+        final double hours = Duration.between(from, to).toMillis() / 3_600_000d;
+
+        final Criteria delivered = where("status").is(OrderStatus.DELIVERED).and("deliveredAt").gte(from).lt(to);
+
+        final TypedAggregation<Order> aggregation = Aggregation.newAggregation(Order.class,
+                Aggregation.match(delivered),
+                UnionWithOperation.unionWith(OrderArchiveRepository.ARCHIVE_COLLECTION)
+                        .mappedAs(Order.class)
+                        .pipeline(Aggregation.match(delivered)),
+                stage("$project", new Document("pizzas", new Document("$objectToArray", "$pizzas"))
+                        .append("wait", millisBetween("$submittedAt", "$startedAt"))
+                        .append("prep", millisBetween("$startedAt", "$deliveredAt"))),
+                stage("$unwind", "$pizzas"),
+                stage("$group", new Document("_id", "$pizzas.k")
+                        .append("orders", new Document("$sum", 1))
+                        .append("pizzas", new Document("$sum", "$pizzas.v"))
+                        .append("avgWait", new Document("$avg", "$wait"))
+                        .append("waitPercentiles", percentiles("$wait"))
+                        .append("avgPrep", new Document("$avg", "$prep"))
+                        .append("prepPercentiles", percentiles("$prep"))),
+                stage("$project", new Document("_id", 0)
+                        .append("pizza", "$_id")
+                        .append("orders", 1)
+                        .append("pizzas", 1)
+                        .append("ordersPerHour", new Document("$divide", List.of("$orders", hours)))
+                        .append("avgWaitMs", "$avgWait")
+                        .append("p50WaitMs", new Document("$arrayElemAt", List.of("$waitPercentiles", 0)))
+                        .append("p95WaitMs", new Document("$arrayElemAt", List.of("$waitPercentiles", 1)))
+                        .append("p99WaitMs", new Document("$arrayElemAt", List.of("$waitPercentiles", 2)))
+                        .append("avgPrepMs", "$avgPrep")
+                        .append("p50PrepMs", new Document("$arrayElemAt", List.of("$prepPercentiles", 0)))
+                        .append("p95PrepMs", new Document("$arrayElemAt", List.of("$prepPercentiles", 1)))
+                        .append("p99PrepMs", new Document("$arrayElemAt", List.of("$prepPercentiles", 2)))),
+                stage("$sort", new Document("pizza", 1))
+        );
+
+        return mongoTemplate.aggregate(aggregation, PizzaKitchenStats.class).getMappedResults();
+    }
+
+    private static AggregationOperation stage(final String operator, final Object value) {
+        return context -> new Document(operator, value);
+    }
+
+    private static Document millisBetween(final String start, final String end) {
+        return new Document("$dateDiff", new Document("startDate", start)
+                .append("endDate", end)
+                .append("unit", "millisecond"));
+    }
+
+    private static Document percentiles(final String input) {
+        return new Document("$percentile", new Document("input", input)
+                .append("p", PERCENTILES)
+                .append("method", "approximate"));
+    }
+}
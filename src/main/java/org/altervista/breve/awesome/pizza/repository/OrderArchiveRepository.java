@@ -0,0 +1,21 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface OrderArchiveRepository {
+
+    String ARCHIVE_COLLECTION = "orders_archive";
+
+    /**
+     * Moves up to {@code limit} orders delivered before the given time, oldest first, to the archive collection.
+     * They're copied before being removed, so an order is never missing from both collections and a move
+     * interrupted halfway is completed by the next one. Returns the number of orders moved.
+     */
+    int archiveDelivered(LocalDateTime before, int limit);
+
+    Optional<Order> findArchivedById(UUID id);
+}
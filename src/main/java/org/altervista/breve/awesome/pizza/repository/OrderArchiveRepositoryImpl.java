@@ -0,0 +1,62 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import jakarta.annotation.PostConstruct;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+class OrderArchiveRepositoryImpl implements OrderArchiveRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    OrderArchiveRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * The archive only holds DELIVERED orders, the kitchen stats look them up by delivery time.
+     */
+    @PostConstruct
+    void ensureIndexes() {
+        mongoTemplate.indexOps(ARCHIVE_COLLECTION)
+                .ensureIndex(new Index("deliveredAt", Sort.Direction.ASC).named("deliveredAt"));
+    }
+
+    @Override
+    public int archiveDelivered(final LocalDateTime before, final int limit) {
+        final Query expired = Query.query(where("status").is(OrderStatus.DELIVERED).and("deliveredAt").lt(before))
+                .with(Sort.by("deliveredAt"))
+                .limit(limit);
+        final List<Order> orders = mongoTemplate.find(expired, Order.class);
+        if (orders.isEmpty()) {
+            return 0;
+        }
+
+        final BulkOperations copy = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class, ARCHIVE_COLLECTION);
+        orders.forEach(order -> copy.replaceOne(Query.query(where("id").is(order.id())), order, FindAndReplaceOptions.options().upsert()));
+        copy.execute();
+
+        final List<UUID> ids = orders.stream().map(Order::id).toList();
+        mongoTemplate.remove(Query.query(where("id").in(ids).and("status").is(OrderStatus.DELIVERED)), Order.class);
+        return orders.size();
+    }
+
+    @Override
+    public Optional<Order> findArchivedById(final UUID id) {
+        return Optional.ofNullable(mongoTemplate.findById(id, Order.class, ARCHIVE_COLLECTION));
+    }
+}
@@ -0,0 +1,16 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+
+import java.util.List;
+import java.util.Set;
+
+public interface OrderBulkRepository {
+
+    /**
+     * Inserts all the orders with a single unordered bulk write: a failing order doesn't stop the others.
+     * Returns the positions in the list of the orders that couldn't be inserted: when an id repeats, the first copy is
+     * inserted and the later ones are reported.
+     */
+    Set<Integer> insertUnordered(List<Order> orders);
+}
@@ -0,0 +1,40 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import com.mongodb.bulk.BulkWriteError;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+class OrderBulkRepositoryImpl implements OrderBulkRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    OrderBulkRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Set<Integer> insertUnordered(final List<Order> orders) {
+        if (orders.isEmpty()) {
+            return Collections.emptySet();
+        }
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Order.class)
+                    .insert(orders)
+                    .execute();
+            return Collections.emptySet();
+        } catch (final BulkOperationException e) {
+            return e.getErrors().stream()
+                    .map(BulkWriteError::getIndex)
+                    .collect(Collectors.toSet());
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The records of the embedded store log and snapshots.
+ * <p>
+ * A record starts with its type: {@link #PUT} carries a whole order written to the live orders, {@link #ARCHIVE} the
+ * id of a live order moved to the archive, {@link #ARCHIVED} a whole archived order. Statuses and pizzas are written
+ * by name, so adding new ones doesn't break the files already written.
+ */
+final class OrderCodec {
+
+    static final byte PUT = 1;
+    static final byte ARCHIVE = 2;
+    static final byte ARCHIVED = 3;
+
+    private OrderCodec() {
+    }
+
+    static byte[] put(final Order order) {
+        return encode(PUT, order);
+    }
+
+    static byte[] archived(final Order order) {
+        return encode(ARCHIVED, order);
+    }
+
+    static byte[] archive(final UUID id) {
+        return ByteBuffer.allocate(17)
+                .put(ARCHIVE)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    static byte type(final ByteBuffer record) {
+        return record.get(0);
+    }
+
+    static UUID id(final ByteBuffer record) {
+        return new UUID(record.getLong(1), record.getLong(9));
+    }
+
+    static Order order(final ByteBuffer record) {
+        record.position(17);
+        final UUID id = id(record);
+        final LocalDateTime submittedAt = readTime(record);
+        final OrderStatus status = OrderStatus.valueOf(readName(record));
+        final int kinds = record.get();
+        final Map<Pizza, Integer> pizzas = new EnumMap<>(Pizza.class);
+        for (int i = 0; i < kinds; i++) {
+            pizzas.put(Pizza.valueOf(readName(record)), record.getInt());
+        }
+        final LocalDateTime startedAt = readTime(record);
+        final LocalDateTime deliveredAt = readTime(record);
+        final Integer station = record.get() == 0 ? null : record.getInt();
+        final Long version = record.get() == 0 ? null : record.getLong();
+        return new Order(id, submittedAt, status, pizzas, startedAt, deliveredAt, station, version);
+    }
+
+    private static byte[] encode(final byte type, final Order order) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (final DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            out.writeLong(order.id().getMostSignificantBits());
+            out.writeLong(order.id().getLeastSignificantBits());
+            writeTime(out, order.submittedAt());
+            writeName(out, order.status().name());
+            out.writeByte(order.pizzas().size());
+            for (final Map.Entry<Pizza, Integer> pizza : order.pizzas().entrySet()) {
+                writeName(out, pizza.getKey().name());
+                out.writeInt(pizza.getValue());
+            }
+            writeTime(out, order.startedAt());
+            writeTime(out, order.deliveredAt());
+            out.writeBoolean(order.station() != null);
+            if (order.station() != null) {
+                out.writeInt(order.station());
+            }
+            out.writeBoolean(order.version() != null);
+            if (order.version() != null) {
+                out.writeLong(order.version());
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeTime(final DataOutputStream out, final LocalDateTime time) throws IOException {
+        out.writeBoolean(time != null);
+        if (time != null) {
+            out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(time.getNano());
+        }
+    }
+
+    private static LocalDateTime readTime(final ByteBuffer record) {
+        if (record.get() == 0) {
+            return null;
+        }
+        final long seconds = record.getLong();
+        return LocalDateTime.ofEpochSecond(seconds, record.getInt(), ZoneOffset.UTC);
+    }
+
+    private static void writeName(final DataOutputStream out, final String name) throws IOException {
+        final byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+        out.writeByte(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readName(final ByteBuffer record) {
+        final byte[] bytes = new byte[record.get()];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
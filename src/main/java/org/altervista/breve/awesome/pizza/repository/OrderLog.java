@@ -0,0 +1,215 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of the embedded store, made of memory-mapped segments of {@code segmentSize} bytes numbered by
+ * generation, plus the snapshots.
+ * <p>
+ * Every record is framed by its length and a CRC32C of its bytes, a zero length marks the end of a segment: a record
+ * torn by a crash fails its check and ends the replay of its segment. A snapshot of generation N holds everything
+ * written to the segments before N, so recovering means loading the latest snapshot and replaying the segments from
+ * its generation on. Snapshots are written aside and renamed once complete, a half-written one is never loaded.
+ * Appending always starts a new segment after a recovery, the torn tail of the last one is left behind untouched.
+ */
+final class OrderLog implements Closeable {
+
+    private static final Pattern SEGMENT = Pattern.compile("log-(\\p{XDigit}{16})");
+    private static final Pattern SNAPSHOT = Pattern.compile("snapshot-(\\p{XDigit}{16})");
+    private static final int FRAME_HEADER = 8;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final boolean forceWrites;
+
+    private long generation = -1;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+
+    OrderLog(final Path directory, final int segmentSize, final boolean forceWrites) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.forceWrites = forceWrites;
+    }
+
+    /**
+     * Feeds the latest snapshot and the segments written after it to the consumer, one record at a time, then opens
+     * a new segment for the following appends.
+     */
+    void recover(final Consumer<ByteBuffer> records) {
+        try {
+            Files.createDirectories(directory);
+            final OptionalLong snapshot = latest(SNAPSHOT);
+            final long from = snapshot.orElse(0);
+            if (snapshot.isPresent()) {
+                read(file(SNAPSHOT, from), records);
+            }
+            for (final long segment : generations(SEGMENT)) {
+                if (segment >= from) {
+                    read(file(SEGMENT, segment), records);
+                }
+            }
+            roll(Math.max(from, latest(SEGMENT).orElse(from - 1) + 1));
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends the records together: when they don't fit in the current segment they all go to a new one.
+     */
+    void append(final List<byte[]> records) {
+        final int size = records.stream().mapToInt(record -> FRAME_HEADER + record.length).sum();
+        if (size + Integer.BYTES > segmentSize) {
+            throw new IllegalArgumentException("The records don't fit in a log segment");
+        }
+        try {
+            if (segment.remaining() < size + Integer.BYTES) {
+                roll(generation + 1);
+            }
+            for (final byte[] record : records) {
+                final CRC32C crc = new CRC32C();
+                crc.update(record);
+                segment.putInt(record.length).putInt((int) crc.getValue()).put(record);
+            }
+            if (forceWrites) {
+                segment.force();
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Starts a new segment and returns its generation: a snapshot of everything appended so far belongs to it.
+     */
+    long checkpoint() {
+        try {
+            roll(generation + 1);
+            return generation;
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes the snapshot of the given generation, then drops the older snapshots and segments which it replaces.
+     */
+    void snapshot(final long generation, final Stream<byte[]> records) {
+        final Path target = file(SNAPSHOT, generation);
+        final Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (final FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+                for (final byte[] record : (Iterable<byte[]>) records::iterator) {
+                    if (buffer.remaining() < FRAME_HEADER + record.length) {
+                        drain(out, buffer);
+                    }
+                    final CRC32C crc = new CRC32C();
+                    crc.update(record);
+                    if (buffer.remaining() < FRAME_HEADER + record.length) {
+                        drain(out, ByteBuffer.allocate(FRAME_HEADER).putInt(record.length).putInt((int) crc.getValue()));
+                        drain(out, ByteBuffer.allocate(record.length).put(record));
+                    } else {
+                        buffer.putInt(record.length).putInt((int) crc.getValue()).put(record);
+                    }
+                }
+                drain(out, buffer);
+                out.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            for (final long older : generations(SNAPSHOT)) {
+                if (older < generation) {
+                    Files.deleteIfExists(file(SNAPSHOT, older));
+                }
+            }
+            for (final long older : generations(SEGMENT)) {
+                if (older < generation) {
+                    Files.deleteIfExists(file(SEGMENT, older));
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            segment.force();
+            channel.close();
+        }
+    }
+
+    private void roll(final long next) throws IOException {
+        close();
+        generation = next;
+        channel = FileChannel.open(file(SEGMENT, next), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    private static void read(final Path file, final Consumer<ByteBuffer> records) throws IOException {
+        try (final FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, 0, in.size());
+            while (buffer.remaining() >= FRAME_HEADER) {
+                final int length = buffer.getInt();
+                final int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    return;
+                }
+                final ByteBuffer record = buffer.slice(buffer.position(), length);
+                final CRC32C crc = new CRC32C();
+                crc.update(record.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    return;
+                }
+                records.accept(record);
+                buffer.position(buffer.position() + length);
+            }
+        }
+    }
+
+    private static void drain(final FileChannel out, final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private Path file(final Pattern kind, final long generation) {
+        final String prefix = kind == SEGMENT ? "log-" : "snapshot-";
+        return directory.resolve(prefix + "%016x".formatted(generation));
+    }
+
+    private OptionalLong latest(final Pattern kind) throws IOException {
+        final List<Long> all = generations(kind);
+        return all.isEmpty() ? OptionalLong.empty() : OptionalLong.of(all.getLast());
+    }
+
+    private List<Long> generations(final Pattern kind) throws IOException {
+        try (final Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> kind.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .map(matcher -> Long.parseUnsignedLong(matcher.group(1), 16))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
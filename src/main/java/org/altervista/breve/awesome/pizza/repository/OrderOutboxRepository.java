@@ -0,0 +1,22 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.OrderOutboxEvent;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+public interface OrderOutboxRepository extends MongoRepository<OrderOutboxEvent, UUID> {
+
+    /**
+     * The oldest events waiting to be published, served by the {occurredAt, _id} index.
+     */
+    List<OrderOutboxEvent> findAllByOrderByOccurredAtAscIdAsc(Limit limit);
+
+    /**
+     * All the events waiting to be published for the given orders, served by the {order._id, order.version} index.
+     */
+    List<OrderOutboxEvent> findAllByOrderIdIn(Collection<UUID> orderIds);
+}
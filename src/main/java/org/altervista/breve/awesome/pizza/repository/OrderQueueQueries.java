@@ -0,0 +1,34 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Collection;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * The keyset queue query, shared by the blocking and the reactive repositories.
+ */
+final class OrderQueueQueries {
+
+    private static final Sort QUEUE_SORT = Sort.by(Sort.Direction.ASC, "status", "submittedAt", "id");
+
+    private OrderQueueQueries() {
+    }
+
+    static Query page(final Collection<OrderStatus> statuses, final QueueCursor after, final int limit) {
+        final Criteria criteria = where("status").in(statuses);
+        if (after != null) {
+            criteria.orOperator(
+                    where("status").gt(after.status()),
+                    where("status").is(after.status()).and("submittedAt").gt(after.submittedAt()),
+                    where("status").is(after.status()).and("submittedAt").is(after.submittedAt()).and("id").gt(after.id())
+            );
+        }
+        return Query.query(criteria).with(QUEUE_SORT).limit(limit);
+    }
+}
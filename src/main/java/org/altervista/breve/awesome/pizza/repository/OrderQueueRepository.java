@@ -0,0 +1,17 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface OrderQueueRepository {
+
+    /**
+     * Reads up to {@code limit} orders sorted by status, submittedAt and id, strictly after the given cursor.
+     * A {@code null} cursor starts from the head of the queue.
+     */
+    List<Order> findQueuePage(Collection<OrderStatus> statuses, QueueCursor after, int limit);
+}
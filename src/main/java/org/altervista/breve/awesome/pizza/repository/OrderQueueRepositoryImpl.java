@@ -0,0 +1,25 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Collection;
+import java.util.List;
+
+class OrderQueueRepositoryImpl implements OrderQueueRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    OrderQueueRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public List<Order> findQueuePage(final Collection<OrderStatus> statuses, final QueueCursor after, final int limit) {
+        return mongoTemplate.find(OrderQueueQueries.page(statuses, after, limit), Order.class);
+    }
+}
@@ -4,10 +4,13 @@ import org.altervista.breve.awesome.pizza.model.Order;
 import org.altervista.breve.awesome.pizza.model.OrderStatus;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-import java.util.List;
 import java.util.UUID;
 
-public interface OrderRepository extends MongoRepository<Order, UUID> {
+/**
+ * The MongoDB {@link OrderStore}: the query methods are derived by Spring Data, the others are implemented by the
+ * fragments, which are listed here too because they're only looked up among the interfaces extended directly.
+ */
+public interface OrderRepository extends MongoRepository<Order, UUID>, OrderStore, OrderQueueRepository, OrderTransitionRepository, OrderBulkRepository, OrderAnalyticsRepository, OrderArchiveRepository {
 
-    List<Order> findByStatusOrderBySubmittedAtAsc(OrderStatus status);
+    boolean existsByStatus(OrderStatus status);
 }
@@ -0,0 +1,39 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Everything the services need from the storage of the orders, so that it can live somewhere else than MongoDB.
+ * {@link OrderRepository} is the MongoDB one, {@link EmbeddedOrderStore} keeps the orders in process.
+ * The choice is made by {@code awesome.pizza.store.type}. With the outbox enabled the MongoDB one is wrapped by
+ * {@link OutboxOrderStore}.
+ */
+public interface OrderStore extends OrderQueueRepository, OrderTransitionRepository, OrderBulkRepository, OrderAnalyticsRepository, OrderArchiveRepository {
+
+    Optional<Order> findById(UUID id);
+
+    /**
+     * Inserts an order without a version, updates it otherwise: the version must match the stored one.
+     */
+    <S extends Order> S save(S order);
+
+    List<Order> findByStatusOrderBySubmittedAtAsc(OrderStatus status);
+
+    /**
+     * Statuses are sorted by name, so sorting on them ascending puts IN_PROGRESS before READY.
+     * On MongoDB the whole query is served by the {status, submittedAt, _id} index declared on {@link Order}.
+     */
+    List<Order> findByStatusInOrderByStatusAscSubmittedAtAsc(Collection<OrderStatus> statuses);
+
+    /**
+     * Same ordering as {@link #findQueuePage}, possibly backed by a database cursor: the caller must close the stream.
+     */
+    Stream<Order> streamByStatusInOrderByStatusAscSubmittedAtAscIdAsc(Collection<OrderStatus> statuses);
+}
@@ -0,0 +1,27 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface OrderTransitionRepository {
+
+    /**
+     * Atomically moves the order from one status to another, touching only the status field, the timestamp of the transition
+     * and the version. Returns the updated order, or an empty optional when the order isn't in the {@code from} status
+     * or at the given {@code version} anymore.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException when another order is already IN_PROGRESS
+     */
+    Optional<Order> transition(UUID id, Long version, OrderStatus from, OrderStatus to, LocalDateTime at);
+
+    /**
+     * Like {@link #transition} from READY to IN_PROGRESS, recording the station the order is cooked on.
+     *
+     * @throws org.springframework.dao.DuplicateKeyException when the station is already cooking another order
+     */
+    Optional<Order> claim(UUID id, Long version, int station, LocalDateTime at);
+}
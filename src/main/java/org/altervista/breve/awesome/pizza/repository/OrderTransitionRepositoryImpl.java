@@ -0,0 +1,40 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+class OrderTransitionRepositoryImpl implements OrderTransitionRepository {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Autowired
+    OrderTransitionRepositoryImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Optional<Order> transition(final UUID id, final Long version, final OrderStatus from, final OrderStatus to, final LocalDateTime at) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                OrderTransitions.query(id, version, from),
+                OrderTransitions.update(to, at),
+                OrderTransitions.RETURN_NEW,
+                Order.class
+        ));
+    }
+
+    @Override
+    public Optional<Order> claim(final UUID id, final Long version, final int station, final LocalDateTime at) {
+        return Optional.ofNullable(mongoTemplate.findAndModify(
+                OrderTransitions.query(id, version, OrderStatus.READY),
+                OrderTransitions.claim(station, at),
+                OrderTransitions.RETURN_NEW,
+                Order.class
+        ));
+    }
+}
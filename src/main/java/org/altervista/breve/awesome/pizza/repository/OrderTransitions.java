@@ -0,0 +1,48 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * The compare-and-set status update, shared by the blocking and the reactive repositories.
+ * It matches the version read by the caller, a missing version field included, and bumps it.
+ */
+final class OrderTransitions {
+
+    static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    private OrderTransitions() {
+    }
+
+    static Query query(final UUID id, final Long version, final OrderStatus from) {
+        return Query.query(where("id").is(id).and("version").is(version).and("status").is(from));
+    }
+
+    /**
+     * Picks a READY order for a station, see {@link #update(OrderStatus, LocalDateTime)}.
+     */
+    static Update claim(final int station, final LocalDateTime at) {
+        return update(OrderStatus.IN_PROGRESS, at).set("station", station);
+    }
+
+    /**
+     * Sets the status together with the time the order has been picked or delivered at.
+     */
+    static Update update(final OrderStatus to, final LocalDateTime at) {
+        final Update update = Update.update("status", to).inc("version", 1);
+        switch (to) {
+            case IN_PROGRESS -> update.set("startedAt", at);
+            case DELIVERED -> update.set("deliveredAt", at);
+            default -> {
+            }
+        }
+        return update;
+    }
+}
@@ -0,0 +1,191 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import com.mongodb.MongoException;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderOutboxEvent;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
+import org.altervista.breve.awesome.pizza.model.response.PizzaKitchenStats;
+import org.altervista.breve.awesome.pizza.utils.DateTimeUtils;
+import org.altervista.breve.awesome.pizza.utils.UUIDUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * The MongoDB {@link OrderStore} writing every change of an order to the outbox collection in the same transaction,
+ * so that an order is never written without its event and the other way around.
+ * <p>
+ * Transactions need a replica set, that's why this is opt-in. A transaction aborted by a concurrent one is retried
+ * up to {@link #MAX_TRANSACTION_ATTEMPTS} times: the version check then sees the other write and nothing is written.
+ * A bulk insert is all or nothing within a transaction, so the orders it rejects are left out and the others are
+ * inserted again.
+ */
+@Component
+@Primary
+@ConditionalOnProperty(name = "awesome.pizza.outbox.enabled", havingValue = "true")
+public class OutboxOrderStore implements OrderStore {
+
+    public static final int MAX_TRANSACTION_ATTEMPTS = 3;
+
+    private final OrderRepository repository;
+    private final OrderOutboxRepository outbox;
+    private final UUIDUtils uuidUtils;
+    private final DateTimeUtils dateTimeUtils;
+    private final TransactionOperations transactions;
+
+    @Autowired
+    public OutboxOrderStore(OrderRepository repository, OrderOutboxRepository outbox, UUIDUtils uuidUtils, DateTimeUtils dateTimeUtils, MongoTemplate mongoTemplate) {
+        this(repository, outbox, uuidUtils, dateTimeUtils, new TransactionTemplate(new MongoTransactionManager(mongoTemplate.getMongoDatabaseFactory())));
+    }
+
+    OutboxOrderStore(OrderRepository repository, OrderOutboxRepository outbox, UUIDUtils uuidUtils, DateTimeUtils dateTimeUtils, TransactionOperations transactions) {
+        this.repository = repository;
+        this.outbox = outbox;
+        this.uuidUtils = uuidUtils;
+        this.dateTimeUtils = dateTimeUtils;
+        this.transactions = transactions;
+    }
+
+    @Override
+    public Optional<Order> findById(final UUID id) {
+        return repository.findById(id);
+    }
+
+    @Override
+    public <S extends Order> S save(final S order) {
+        return inTransaction(status -> {
+            final S saved = repository.save(order);
+            record(List.of(saved));
+            return saved;
+        });
+    }
+
+    @Override
+    public List<Order> findByStatusOrderBySubmittedAtAsc(final OrderStatus status) {
+        return repository.findByStatusOrderBySubmittedAtAsc(status);
+    }
+
+    @Override
+    public List<Order> findByStatusInOrderByStatusAscSubmittedAtAsc(final Collection<OrderStatus> statuses) {
+        return repository.findByStatusInOrderByStatusAscSubmittedAtAsc(statuses);
+    }
+
+    @Override
+    public Stream<Order> streamByStatusInOrderByStatusAscSubmittedAtAscIdAsc(final Collection<OrderStatus> statuses) {
+        return repository.streamByStatusInOrderByStatusAscSubmittedAtAscIdAsc(statuses);
+    }
+
+    @Override
+    public List<Order> findQueuePage(final Collection<OrderStatus> statuses, final QueueCursor after, final int limit) {
+        return repository.findQueuePage(statuses, after, limit);
+    }
+
+    @Override
+    public Optional<Order> transition(final UUID id, final Long version, final OrderStatus from, final OrderStatus to, final LocalDateTime at) {
+        return inTransaction(status -> {
+            final Optional<Order> updated = repository.transition(id, version, from, to, at);
+            updated.ifPresent(order -> record(List.of(order)));
+            return updated;
+        });
+    }
+
+    @Override
+    public Optional<Order> claim(final UUID id, final Long version, final int station, final LocalDateTime at) {
+        return inTransaction(status -> {
+            final Optional<Order> claimed = repository.claim(id, version, station, at);
+            claimed.ifPresent(order -> record(List.of(order)));
+            return claimed;
+        });
+    }
+
+    @Override
+    public Set<Integer> insertUnordered(final List<Order> orders) {
+        final Set<Integer> failed = new HashSet<>();
+        List<Integer> remaining = IntStream.range(0, orders.size()).boxed().toList();
+        while (!remaining.isEmpty()) {
+            final List<Order> batch = remaining.stream().map(orders::get).toList();
+            final Set<Integer> rejected = inTransaction(status -> {
+                final Set<Integer> positions = repository.insertUnordered(batch);
+                if (positions.isEmpty()) {
+                    record(batch);
+                } else {
+                    status.setRollbackOnly();
+                }
+                return positions;
+            });
+            if (rejected.isEmpty()) {
+                break;
+            }
+            final List<Integer> positions = remaining;
+            rejected.forEach(index -> failed.add(positions.get(index)));
+            remaining = IntStream.range(0, positions.size())
+                    .filter(index -> !rejected.contains(index))
+                    .mapToObj(positions::get)
+                    .toList();
+        }
+        return failed;
+    }
+
+    @Override
+    public List<PizzaKitchenStats> kitchenStats(final LocalDateTime from, final LocalDateTime to) {
+        return repository.kitchenStats(from, to);
+    }
+
+    /**
+     * Archiving doesn't change the orders, no event is written.
+     */
+    @Override
+    public int archiveDelivered(final LocalDateTime before, final int limit) {
+        return repository.archiveDelivered(before, limit);
+    }
+
+    @Override
+    public Optional<Order> findArchivedById(final UUID id) {
+        return repository.findArchivedById(id);
+    }
+
+    private void record(final List<? extends Order> orders) {
+        final LocalDateTime now = dateTimeUtils.now();
+        outbox.insert(orders.stream()
+                .map(order -> new OrderOutboxEvent(uuidUtils.get(), now, order))
+                .toList());
+    }
+
+    private <T> T inTransaction(final TransactionCallback<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactions.execute(work);
+            } catch (final RuntimeException e) {
+                if (attempt == MAX_TRANSACTION_ATTEMPTS || !isTransient(e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static boolean isTransient(final Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MongoException mongo && mongo.hasErrorLabel(MongoException.TRANSIENT_TRANSACTION_ERROR_LABEL)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,14 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+public interface ReactiveOrderArchiveRepository {
+
+    /**
+     * Reactive counterpart of {@link OrderArchiveRepository#findArchivedById}.
+     */
+    Mono<Order> findArchivedById(UUID id);
+}
@@ -0,0 +1,23 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+class ReactiveOrderArchiveRepositoryImpl implements ReactiveOrderArchiveRepository {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    ReactiveOrderArchiveRepositoryImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Mono<Order> findArchivedById(final UUID id) {
+        return mongoTemplate.findById(id, Order.class, OrderArchiveRepository.ARCHIVE_COLLECTION);
+    }
+}
@@ -0,0 +1,16 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+public interface ReactiveOrderQueueRepository {
+
+    /**
+     * Reactive counterpart of {@link OrderQueueRepository#findQueuePage}.
+     */
+    Flux<Order> findQueuePage(Collection<OrderStatus> statuses, QueueCursor after, int limit);
+}
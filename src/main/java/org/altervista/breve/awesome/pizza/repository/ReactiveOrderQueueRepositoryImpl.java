@@ -0,0 +1,25 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+class ReactiveOrderQueueRepositoryImpl implements ReactiveOrderQueueRepository {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    ReactiveOrderQueueRepositoryImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Flux<Order> findQueuePage(final Collection<OrderStatus> statuses, final QueueCursor after, final int limit) {
+        return mongoTemplate.find(OrderQueueQueries.page(statuses, after, limit), Order.class);
+    }
+}
@@ -0,0 +1,20 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.UUID;
+
+public interface ReactiveOrderRepository extends ReactiveMongoRepository<Order, UUID>, ReactiveOrderQueueRepository, ReactiveOrderTransitionRepository, ReactiveOrderArchiveRepository {
+
+    Mono<Boolean> existsByStatus(OrderStatus status);
+
+    /**
+     * Same ordering as {@link OrderRepository#streamByStatusInOrderByStatusAscSubmittedAtAscIdAsc}.
+     */
+    Flux<Order> findByStatusInOrderByStatusAscSubmittedAtAscIdAsc(Collection<OrderStatus> statuses);
+}
@@ -0,0 +1,23 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public interface ReactiveOrderTransitionRepository {
+
+    /**
+     * Reactive counterpart of {@link OrderTransitionRepository#transition}: completes empty when the order isn't
+     * in the {@code from} status or at the given {@code version} anymore and fails with a {@link org.springframework.dao.DuplicateKeyException}
+     * when another order is already IN_PROGRESS.
+     */
+    Mono<Order> transition(UUID id, Long version, OrderStatus from, OrderStatus to, LocalDateTime at);
+
+    /**
+     * Reactive counterpart of {@link OrderTransitionRepository#claim}.
+     */
+    Mono<Order> claim(UUID id, Long version, int station, LocalDateTime at);
+}
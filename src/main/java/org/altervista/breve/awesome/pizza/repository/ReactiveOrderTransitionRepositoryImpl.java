@@ -0,0 +1,40 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+class ReactiveOrderTransitionRepositoryImpl implements ReactiveOrderTransitionRepository {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    ReactiveOrderTransitionRepositoryImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Mono<Order> transition(final UUID id, final Long version, final OrderStatus from, final OrderStatus to, final LocalDateTime at) {
+        return mongoTemplate.findAndModify(
+                OrderTransitions.query(id, version, from),
+                OrderTransitions.update(to, at),
+                OrderTransitions.RETURN_NEW,
+                Order.class
+        );
+    }
+
+    @Override
+    public Mono<Order> claim(final UUID id, final Long version, final int station, final LocalDateTime at) {
+        return mongoTemplate.findAndModify(
+                OrderTransitions.query(id, version, OrderStatus.READY),
+                OrderTransitions.claim(station, at),
+                OrderTransitions.RETURN_NEW,
+                Order.class
+        );
+    }
+}
@@ -0,0 +1,80 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import org.altervista.breve.awesome.pizza.exception.InvalidStationException;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * The kitchen has {@code stations} stations, numbered from 0, each cooking one order at a time.
+ * <p>
+ * The next order is chosen among the READY ones by the {@code policy}: {@link Policy#FIFO} follows the queue,
+ * {@link Policy#FEWEST_PIZZAS} picks the smallest orders first to lower the average wait, at the cost of the big
+ * orders waiting longer while small ones keep coming.
+ */
+@Component
+public class KitchenScheduler {
+
+    public enum Policy {
+        FIFO,
+        FEWEST_PIZZAS
+    }
+
+    private static final Comparator<Order> FEWEST_PIZZAS_FIRST = Comparator
+            .comparingInt(Order::size)
+            .thenComparing(Order::submittedAt)
+            .thenComparing(Order::id);
+
+    private final int stations;
+    private final Policy policy;
+
+    @Autowired
+    public KitchenScheduler(
+            @Value("${awesome.pizza.kitchen.stations}") final int stations,
+            @Value("${awesome.pizza.kitchen.policy}") final Policy policy
+    ) {
+        this.stations = stations;
+        this.policy = policy;
+    }
+
+    public int stations() {
+        return stations;
+    }
+
+    public Policy policy() {
+        return policy;
+    }
+
+    /**
+     * The lowest numbered station not cooking any order.
+     */
+    public OptionalInt freeStation(final Collection<Integer> busy) {
+        return IntStream.range(0, stations)
+                .filter(station -> !busy.contains(station))
+                .findFirst();
+    }
+
+    public void checkStation(final int station) {
+        if (station < 0 || station >= stations) {
+            throw new InvalidStationException();
+        }
+    }
+
+    /**
+     * The first {@code limit} orders to try to claim, in order of preference. The READY orders must be in queue order.
+     */
+    public List<Order> candidates(final Stream<Order> ready, final int limit) {
+        return switch (policy) {
+            case FIFO -> ready.limit(limit).toList();
+            case FEWEST_PIZZAS -> ready.sorted(FEWEST_PIZZAS_FIRST).limit(limit).toList();
+        };
+    }
+}
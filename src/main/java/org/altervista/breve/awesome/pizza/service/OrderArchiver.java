@@ -0,0 +1,92 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.altervista.breve.awesome.pizza.repository.OrderStore;
+import org.altervista.breve.awesome.pizza.utils.DateTimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Periodically moves the orders delivered more than {@code max-age} ago to the archive collection, so that the
+ * orders collection only holds the live queue and the recent history.
+ * <p>
+ * Orders are moved in batches of {@code batch-size}, pausing {@code pause} between them to leave room to the
+ * live traffic, until no expired order is left.
+ */
+@Component
+@ConditionalOnProperty(name = "awesome.pizza.archive.enabled", havingValue = "true")
+public class OrderArchiver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderArchiver.class);
+
+    private final OrderStore repository;
+    private final DateTimeUtils dateTimeUtils;
+    private final Duration maxAge;
+    private final int batchSize;
+    private final Duration pause;
+    private final Counter archived;
+
+    @Autowired
+    public OrderArchiver(
+            OrderStore repository,
+            DateTimeUtils dateTimeUtils,
+            MeterRegistry registry,
+            @Value("${awesome.pizza.archive.max-age}") final Duration maxAge,
+            @Value("${awesome.pizza.archive.batch-size}") final int batchSize,
+            @Value("${awesome.pizza.archive.pause}") final Duration pause
+    ) {
+        this.repository = repository;
+        this.dateTimeUtils = dateTimeUtils;
+        this.maxAge = maxAge;
+        this.batchSize = batchSize;
+        this.pause = pause;
+        this.archived = Counter.builder("awesome.pizza.archive.orders")
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${awesome.pizza.archive.interval}", initialDelayString = "${awesome.pizza.archive.interval}")
+    public void scheduledArchive() {
+        try {
+            archive();
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Unable to archive the delivered orders", e);
+        }
+    }
+
+    /**
+     * Returns the number of orders moved to the archive.
+     */
+    public int archive() {
+        final LocalDateTime before = dateTimeUtils.now().minus(maxAge);
+        int total = 0;
+        while (true) {
+            final int moved = repository.archiveDelivered(before, batchSize);
+            archived.increment(moved);
+            total += moved;
+            if (moved < batchSize || !pause()) {
+                break;
+            }
+        }
+        LOGGER.debug("Archived {} orders delivered before {}", total, before);
+        return total;
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pause);
+            return true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Bounded in-process cache of the orders looked up by code.
+ * <p>
+ * Every write publishes an {@link OrderChangedEvent}, so the cache is written through by the same events feeding the
+ * queue projection, including the ones coming from the change stream. An entry is never replaced by an older version,
+ * nor by an older status when the versions are the same, whatever the order the events and the database reads arrive in.
+ * Delivered orders never change again and are kept for {@code delivered-ttl}, the others for the shorter {@code ttl}
+ * which bounds how long a change made by another instance can go unnoticed.
+ */
+@Component
+public class OrderCache {
+
+    private final Cache<UUID, Order> cache;
+
+    @Autowired
+    public OrderCache(
+            MeterRegistry registry,
+            @Value("${awesome.pizza.cache.max-size}") final long maxSize,
+            @Value("${awesome.pizza.cache.ttl}") final Duration ttl,
+            @Value("${awesome.pizza.cache.delivered-ttl}") final Duration deliveredTtl
+    ) {
+        this(registry, maxSize, ttl, deliveredTtl, Ticker.systemTicker());
+    }
+
+    OrderCache(MeterRegistry registry, long maxSize, Duration ttl, Duration deliveredTtl, Ticker ticker) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new StatusExpiry(ttl.toNanos(), deliveredTtl.toNanos()))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, cache, "orders");
+    }
+
+    public Optional<Order> get(final UUID id) {
+        return Optional.ofNullable(cache.getIfPresent(id));
+    }
+
+    public void put(final Order order) {
+        cache.asMap().merge(order.id(), order, OrderCache::latest);
+    }
+
+    /**
+     * To be used when the cached order turned out to be stale.
+     */
+    public void invalidate(final UUID id) {
+        cache.invalidate(id);
+    }
+
+    @EventListener
+    public void onOrderChanged(final OrderChangedEvent event) {
+        put(event.order());
+    }
+
+    private static Order latest(final Order cached, final Order order) {
+        final int byVersion = Long.compare(version(order), version(cached));
+        if (byVersion != 0) {
+            return byVersion > 0 ? order : cached;
+        }
+        return order.status().compareTo(cached.status()) >= 0 ? order : cached;
+    }
+
+    private static long version(final Order order) {
+        return order.version() == null ? 0 : order.version();
+    }
+
+    private record StatusExpiry(long ttlNanos, long deliveredTtlNanos) implements Expiry<UUID, Order> {
+
+        @Override
+        public long expireAfterCreate(final UUID id, final Order order, final long currentTime) {
+            return order.status() == OrderStatus.DELIVERED ? deliveredTtlNanos : ttlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(final UUID id, final Order order, final long currentTime, final long currentDuration) {
+            return expireAfterCreate(id, order, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(final UUID id, final Order order, final long currentTime, final long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.messaging.ChangeStreamRequest;
+import org.springframework.data.mongodb.core.messaging.DefaultMessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Message;
+import org.springframework.data.mongodb.core.messaging.MessageListenerContainer;
+import org.springframework.data.mongodb.core.messaging.Subscription;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Forwards the writes of every instance to the local listeners through a MongoDB change stream.
+ * Change streams need a replica set, that's why this is opt-in.
+ * A broken stream invalidates the queue projection until it's reloaded and the stream is opened again.
+ */
+@Component
+@ConditionalOnProperty(name = "awesome.pizza.queue.change-stream.enabled", havingValue = "true")
+public class OrderChangeStreamListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderChangeStreamListener.class);
+
+    private final MessageListenerContainer container;
+    private final OrderQueueProjection projection;
+    private final ApplicationEventPublisher publisher;
+    private final String collection;
+
+    private volatile Subscription subscription;
+
+    @Autowired
+    public OrderChangeStreamListener(MongoTemplate mongoTemplate, OrderQueueProjection projection, ApplicationEventPublisher publisher) {
+        this.container = new DefaultMessageListenerContainer(mongoTemplate);
+        this.projection = projection;
+        this.publisher = publisher;
+        this.collection = mongoTemplate.getCollectionName(Order.class);
+    }
+
+    @PostConstruct
+    public void start() {
+        container.start();
+        subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        container.stop();
+    }
+
+    @Scheduled(fixedDelayString = "${awesome.pizza.queue.resync-interval}", initialDelayString = "${awesome.pizza.queue.resync-interval}")
+    public void ensureSubscribed() {
+        if (subscription == null || !subscription.isActive()) {
+            LOGGER.info("Reopening the orders change stream");
+            projection.resync();
+            subscribe();
+        }
+    }
+
+    private void subscribe() {
+        final ChangeStreamRequest<Order> request = ChangeStreamRequest.<Order>builder(this::onMessage)
+                .collection(collection)
+                .fullDocumentLookup(FullDocument.UPDATE_LOOKUP)
+                .build();
+        subscription = container.register(request, Order.class, this::onError);
+    }
+
+    private void onMessage(final Message<ChangeStreamDocument<Document>, Order> message) {
+        projection.touch();
+        final Order order = message.getBody();
+        if (order != null) {
+            publisher.publishEvent(new OrderChangedEvent(order));
+        }
+    }
+
+    private void onError(final Throwable t) {
+        LOGGER.warn("The orders change stream failed, the queue projection needs a resync", t);
+        projection.invalidate();
+        if (subscription != null) {
+            container.remove(subscription);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Histograms of the time an order waits in the queue (submittedAt to startedAt) and of its preparation
+ * (startedAt to delivery), recorded by the instance that performs the transition.
+ */
+@Component
+public class OrderLifecycleMetrics {
+
+    private final Timer wait;
+    private final Timer prep;
+
+    @Autowired
+    public OrderLifecycleMetrics(MeterRegistry registry) {
+        this.wait = Timer.builder("awesome.pizza.orders.wait")
+                .description("Time from the submission of an order to its pick")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.prep = Timer.builder("awesome.pizza.orders.prep")
+                .description("Time from the pick of an order to its delivery")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    public void onTransition(final Order updated, final LocalDateTime at) {
+        switch (updated.status()) {
+            case IN_PROGRESS -> record(wait, updated.submittedAt(), at);
+            case DELIVERED -> record(prep, updated.startedAt(), at);
+            default -> {
+            }
+        }
+    }
+
+    private static void record(final Timer timer, final LocalDateTime from, final LocalDateTime to) {
+        if (from != null && !to.isBefore(from)) {
+            timer.record(Duration.between(from, to));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import org.altervista.breve.awesome.pizza.event.OrderEventSink;
+import org.altervista.breve.awesome.pizza.model.OrderOutboxEvent;
+import org.altervista.breve.awesome.pizza.repository.OrderOutboxRepository;
+import org.altervista.breve.awesome.pizza.utils.DateTimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Publishes the events of the outbox to the sink in batches of {@code batch-size}, oldest first, and removes them once
+ * the sink has taken them: an event is delivered at least once.
+ * <p>
+ * A batch that fails is published again, whole, at the next run and nothing after it goes out in the meantime.
+ * The events are read by write time, which comes from the clock of the instance that wrote them and may be skewed:
+ * an event never goes out while an older version of its order is still waiting, the older ones are published with it
+ * instead, so the events of an order always reach the sink in the order of its versions. Only one instance should run
+ * the relay, two of them would publish the same events side by side.
+ */
+@Component
+@ConditionalOnProperty(name = {"awesome.pizza.outbox.enabled", "awesome.pizza.outbox.relay.enabled"}, havingValue = "true")
+public class OrderOutboxRelay {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderOutboxRelay.class);
+
+    private final OrderOutboxRepository outbox;
+    private final OrderEventSink sink;
+    private final DateTimeUtils dateTimeUtils;
+    private final int batchSize;
+    private final Counter published;
+    private final Counter failures;
+    private final Timer delivery;
+
+    private volatile LocalDateTime oldestPending;
+
+    @Autowired
+    public OrderOutboxRelay(
+            OrderOutboxRepository outbox,
+            OrderEventSink sink,
+            DateTimeUtils dateTimeUtils,
+            MeterRegistry registry,
+            @Value("${awesome.pizza.outbox.relay.batch-size}") final int batchSize
+    ) {
+        this.outbox = outbox;
+        this.sink = sink;
+        this.dateTimeUtils = dateTimeUtils;
+        this.batchSize = batchSize;
+        this.published = Counter.builder("awesome.pizza.outbox.published")
+                .description("Order events handed to the sink")
+                .register(registry);
+        this.failures = Counter.builder("awesome.pizza.outbox.failures")
+                .description("Relay runs stopped by an error, their events are published again by the next one")
+                .register(registry);
+        this.delivery = Timer.builder("awesome.pizza.outbox.delivery")
+                .description("Time from the write of an order to the publication of its event")
+                .publishPercentileHistogram()
+                .register(registry);
+        TimeGauge.builder("awesome.pizza.outbox.lag", this, TimeUnit.MILLISECONDS, OrderOutboxRelay::lagMillis)
+                .description("Age of the oldest event waiting to be published")
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${awesome.pizza.outbox.relay.interval}", initialDelayString = "${awesome.pizza.outbox.relay.interval}")
+    public void scheduledRelay() {
+        try {
+            relay();
+        } catch (final RuntimeException e) {
+            failures.increment();
+            LOGGER.warn("Unable to publish the order events, they'll be published again", e);
+        }
+    }
+
+    /**
+     * Publishes batch after batch until the outbox is empty. Returns the number of events published.
+     */
+    public int relay() {
+        int total = 0;
+        while (true) {
+            final List<OrderOutboxEvent> batch = outbox.findAllByOrderByOccurredAtAscIdAsc(Limit.of(batchSize));
+            oldestPending = batch.isEmpty() ? null : batch.getFirst().occurredAt();
+            if (batch.isEmpty()) {
+                break;
+            }
+
+            final List<OrderOutboxEvent> events = inVersionOrder(withOlderVersions(batch));
+            sink.publish(events);
+            final LocalDateTime now = dateTimeUtils.now();
+            events.forEach(event -> delivery.record(Duration.between(event.occurredAt(), now)));
+            outbox.deleteAllById(events.stream().map(OrderOutboxEvent::id).toList());
+            published.increment(events.size());
+            total += events.size();
+
+            if (batch.size() < batchSize) {
+                oldestPending = null;
+                break;
+            }
+        }
+        LOGGER.debug("Published {} order events", total);
+        return total;
+    }
+
+    /**
+     * The batch followed by the events still waiting for an older version of its orders, read after it. An order
+     * version is written only once the previous one is, together with its event, so none of them can be missing.
+     */
+    List<OrderOutboxEvent> withOlderVersions(final List<OrderOutboxEvent> batch) {
+        final Map<UUID, Long> newest = batch.stream()
+                .collect(Collectors.toMap(event -> event.order().id(), OrderOutboxRelay::version, Math::max));
+        final Set<UUID> inBatch = batch.stream().map(OrderOutboxEvent::id).collect(Collectors.toSet());
+        final List<OrderOutboxEvent> older = outbox.findAllByOrderIdIn(newest.keySet()).stream()
+                .filter(event -> !inBatch.contains(event.id()) && version(event) < newest.get(event.order().id()))
+                .toList();
+        if (older.isEmpty()) {
+            return batch;
+        }
+        final List<OrderOutboxEvent> events = new ArrayList<>(batch);
+        events.addAll(older);
+        return events;
+    }
+
+    /**
+     * Each order gets the same places in the list, filled with its events sorted by version.
+     */
+    static List<OrderOutboxEvent> inVersionOrder(final List<OrderOutboxEvent> batch) {
+        final Map<UUID, Queue<OrderOutboxEvent>> byOrder = batch.stream()
+                .sorted(Comparator.comparingLong(OrderOutboxRelay::version))
+                .collect(Collectors.groupingBy(event -> event.order().id(), LinkedHashMap::new, Collectors.toCollection(ArrayDeque::new)));
+        return batch.stream()
+                .map(event -> byOrder.get(event.order().id()).remove())
+                .toList();
+    }
+
+    private static long version(final OrderOutboxEvent event) {
+        return event.order().version() == null ? 0 : event.order().version();
+    }
+
+    private double lagMillis() {
+        final LocalDateTime oldest = oldestPending;
+        return oldest == null ? 0 : Math.max(0, Duration.between(oldest, dateTimeUtils.now()).toMillis());
+    }
+}
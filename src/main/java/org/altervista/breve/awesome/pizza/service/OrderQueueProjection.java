@@ -0,0 +1,249 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
+import org.altervista.breve.awesome.pizza.repository.OrderStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-process copy of the READY and IN_PROGRESS orders, sorted like the MongoDB queue query.
+ * <p>
+ * It's loaded at startup, kept up to date by {@link OrderChangedEvent}s and periodically reconciled with the database.
+ * Statuses only move forward, so applying the same or an older change twice is harmless.
+ * While invalidated every read returns empty and the caller is expected to fall back to the database.
+ * <p>
+ * Every change of the queue bumps a version, paired with an epoch picked at startup so that versions from different
+ * instances or runs never match: together they identify the content of the queue and can be used as an ETag.
+ */
+@Component
+public class OrderQueueProjection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderQueueProjection.class);
+
+    private static final Set<OrderStatus> NOT_COMPLETED = EnumSet.of(OrderStatus.IN_PROGRESS, OrderStatus.READY);
+    private final OrderStore repository;
+    private final ConcurrentSkipListMap<QueueCursor, Order> queue = new ConcurrentSkipListMap<>(QueueCursor.QUEUE_ORDER);
+    private final ConcurrentHashMap<UUID, Entry> index = new ConcurrentHashMap<>();
+    private final Map<OrderStatus, AtomicInteger> counts = new EnumMap<>(OrderStatus.class);
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final AtomicLong version = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+
+    private volatile boolean valid;
+    private volatile long lastSyncMillis;
+
+    @Autowired
+    public OrderQueueProjection(OrderStore repository, MeterRegistry registry) {
+        this.repository = repository;
+        NOT_COMPLETED.forEach(status -> counts.put(status, new AtomicInteger()));
+        this.hits = Counter.builder("awesome.pizza.queue.projection.reads")
+                .tag("result", "hit")
+                .register(registry);
+        this.misses = Counter.builder("awesome.pizza.queue.projection.reads")
+                .tag("result", "miss")
+                .register(registry);
+        NOT_COMPLETED.forEach(status -> Gauge.builder("awesome.pizza.queue.projection.size", this, p -> p.count(status))
+                .tag("status", status.name())
+                .register(registry));
+        TimeGauge.builder("awesome.pizza.queue.projection.staleness", this, TimeUnit.MILLISECONDS, OrderQueueProjection::staleness)
+                .register(registry);
+    }
+
+    /**
+     * An unreachable database doesn't stop the application: the projection stays invalidated, so the reads go to the
+     * database, until the scheduled resync manages to load it.
+     */
+    @PostConstruct
+    public void load() {
+        try {
+            resync();
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Unable to load the order queue projection, it will be loaded by the next resync", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${awesome.pizza.queue.resync-interval}", initialDelayString = "${awesome.pizza.queue.resync-interval}")
+    public void scheduledResync() {
+        try {
+            resync();
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Unable to resync the order queue projection", e);
+        }
+    }
+
+    /**
+     * Reloads the queue from the database. Changes applied while the query was running are kept.
+     */
+    public void resync() {
+        final long startedAt = System.nanoTime();
+        final List<Order> orders = repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED);
+        final Set<UUID> loaded = new HashSet<>(orders.size() * 2);
+        orders.forEach(order -> {
+            apply(order);
+            loaded.add(order.id());
+        });
+        index.keySet().stream()
+                .filter(id -> !loaded.contains(id))
+                .forEach(id -> index.computeIfPresent(id, (k, entry) -> {
+                    if (entry.appliedAt() - startedAt >= 0) {
+                        return entry;
+                    }
+                    if (unlink(entry)) {
+                        version.incrementAndGet();
+                    }
+                    return null;
+                }));
+        lastSyncMillis = System.currentTimeMillis();
+        valid = true;
+        LOGGER.debug("Order queue projection synced with {} orders", orders.size());
+    }
+
+    /**
+     * Stops serving reads until the next successful resync, to be used when changes may have been missed.
+     */
+    public void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Marks the projection as confirmed by the database without a full reload, e.g. when a change stream event arrives.
+     */
+    public void touch() {
+        lastSyncMillis = System.currentTimeMillis();
+    }
+
+    @EventListener
+    public void onOrderChanged(final OrderChangedEvent event) {
+        apply(event.order());
+    }
+
+    public void apply(final Order order) {
+        index.compute(order.id(), (id, current) -> {
+            if (current != null && current.status().compareTo(order.status()) > 0) {
+                return current;
+            }
+            final boolean changed = current == null
+                    ? NOT_COMPLETED.contains(order.status())
+                    : current.status() != order.status();
+            if (current != null) {
+                unlink(current);
+            }
+            final Entry entry;
+            if (NOT_COMPLETED.contains(order.status())) {
+                final QueueCursor key = QueueCursor.of(order);
+                queue.put(key, order);
+                counts.get(order.status()).incrementAndGet();
+                entry = new Entry(key, order.status(), System.nanoTime());
+            } else {
+                entry = new Entry(null, order.status(), System.nanoTime());
+            }
+            if (changed) {
+                version.incrementAndGet();
+            }
+            return entry;
+        });
+    }
+
+    public Optional<List<Order>> snapshot() {
+        return read() ? Optional.of(List.copyOf(queue.values())) : Optional.empty();
+    }
+
+    public Optional<List<Order>> page(final QueueCursor after, final int limit) {
+        if (!read()) {
+            return Optional.empty();
+        }
+        final Map<QueueCursor, Order> tail = after == null ? queue : queue.tailMap(after, false);
+        return Optional.of(tail.values().stream().limit(limit).toList());
+    }
+
+    /**
+     * Weakly consistent view of the queue, it reflects the changes applied while it's being consumed.
+     */
+    public Optional<Stream<Order>> stream() {
+        return read() ? Optional.of(queue.values().stream()) : Optional.empty();
+    }
+
+    /**
+     * The current version of the queue, to be read before the queue itself: a change landing in between makes the
+     * version older than the content, never the opposite.
+     */
+    public Optional<String> version() {
+        return valid ? Optional.of(epoch + "-" + version.get()) : Optional.empty();
+    }
+
+    /**
+     * The stations cooking an IN_PROGRESS order, an order picked without a station counts as station 0.
+     */
+    public Optional<Set<Integer>> busyStations() {
+        if (!read()) {
+            return Optional.empty();
+        }
+        return Optional.of(queue.values().stream()
+                .takeWhile(order -> order.status() == OrderStatus.IN_PROGRESS)
+                .map(order -> order.station() == null ? 0 : order.station())
+                .collect(Collectors.toSet()));
+    }
+
+    public Optional<Boolean> hasInProgress() {
+        return read() ? Optional.of(count(OrderStatus.IN_PROGRESS) > 0) : Optional.empty();
+    }
+
+    public int count(final OrderStatus status) {
+        final AtomicInteger count = counts.get(status);
+        return count == null ? 0 : count.get();
+    }
+
+    private boolean read() {
+        if (valid) {
+            hits.increment();
+            return true;
+        }
+        misses.increment();
+        return false;
+    }
+
+    private boolean unlink(final Entry entry) {
+        if (entry.key() != null && queue.remove(entry.key()) != null) {
+            counts.get(entry.status()).decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private double staleness() {
+        return lastSyncMillis == 0 ? 0 : System.currentTimeMillis() - lastSyncMillis;
+    }
+
+    private record Entry(QueueCursor key, OrderStatus status, long appliedAt) {
+    }
+}
@@ -1,72 +1,205 @@
 package org.altervista.breve.awesome.pizza.service;
 
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
 import org.altervista.breve.awesome.pizza.exception.EmptyOrderException;
+import org.altervista.breve.awesome.pizza.exception.InvalidBatchSizeException;
 import org.altervista.breve.awesome.pizza.exception.InvalidOrderCodeException;
 import org.altervista.breve.awesome.pizza.exception.InvalidOrderPizzaException;
 import org.altervista.breve.awesome.pizza.exception.InvalidOrderQtyException;
+import org.altervista.breve.awesome.pizza.exception.InvalidQueueLimitException;
+import org.altervista.breve.awesome.pizza.exception.InvalidStatsWindowException;
 import org.altervista.breve.awesome.pizza.exception.InvalidStatusUpdateException;
+import org.altervista.breve.awesome.pizza.exception.OrderConflictException;
+import org.altervista.breve.awesome.pizza.exception.StationBusyException;
 import org.altervista.breve.awesome.pizza.model.Order;
 import org.altervista.breve.awesome.pizza.model.OrderStatus;
 import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
 import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
-import org.altervista.breve.awesome.pizza.repository.OrderRepository;
+import org.altervista.breve.awesome.pizza.model.response.KitchenStatsResponse;
+import org.altervista.breve.awesome.pizza.model.response.SubmitOrderBatchResult;
+import org.altervista.breve.awesome.pizza.repository.OrderStore;
 import org.altervista.breve.awesome.pizza.utils.DateTimeUtils;
 import org.altervista.breve.awesome.pizza.utils.UUIDUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.bind.annotation.ResponseStatus;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Service
 public class OrderService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int MAX_BATCH_SIZE = 1000;
+    public static final Duration DEFAULT_STATS_WINDOW = Duration.ofDays(1);
+    public static final Duration MAX_STATS_WINDOW = Duration.ofDays(31);
+    public static final int MAX_TRANSITION_ATTEMPTS = 3;
+    public static final Duration TRANSITION_BACKOFF = Duration.ofMillis(5);
+    public static final int MAX_CLAIM_ATTEMPTS = 5;
+    public static final int CLAIM_WINDOW = 100;
+
+    private static final String NOT_SAVED = "The order could not be saved";
+
+    static final Set<OrderStatus> NOT_COMPLETED = EnumSet.of(OrderStatus.IN_PROGRESS, OrderStatus.READY);
+
     private final UUIDUtils uuidUtils;
     private final DateTimeUtils dateTimeUtils;
-    private final OrderRepository repository;
+    private final OrderStore repository;
+    private final OrderQueueProjection projection;
+    private final OrderCache cache;
+    private final KitchenScheduler scheduler;
+    private final ApplicationEventPublisher publisher;
+    private final OrderLifecycleMetrics metrics;
+    private final OrderWriteBehind writeBehind;
 
     @Autowired
-    public OrderService(UUIDUtils uuidUtils, DateTimeUtils dateTimeUtils, OrderRepository repository) {
+    public OrderService(UUIDUtils uuidUtils, DateTimeUtils dateTimeUtils, OrderStore repository, OrderQueueProjection projection, OrderCache cache, KitchenScheduler scheduler, ApplicationEventPublisher publisher, OrderLifecycleMetrics metrics, @Nullable OrderWriteBehind writeBehind) {
         this.uuidUtils = uuidUtils;
         this.dateTimeUtils = dateTimeUtils;
         this.repository = repository;
+        this.projection = projection;
+        this.cache = cache;
+        this.scheduler = scheduler;
+        this.publisher = publisher;
+        this.metrics = metrics;
+        this.writeBehind = writeBehind;
     }
 
+    /**
+     * With the write-behind enabled the order joins the next group commit and this waits for it,
+     * otherwise it's saved right away.
+     */
     public UUID submit(final SubmitOrderRequest request) {
-        if (request == null || request.order() == null || request.order().isEmpty()) {
-            throw new EmptyOrderException();
+        final Map<Pizza, Integer> pizzas = SubmitOrderRequestValidator.validate(request);
+        final Order order = new Order(uuidUtils.get(), dateTimeUtils.now(), OrderStatus.READY, pizzas);
+
+        if (writeBehind != null) {
+            return writeBehind.submit(order);
         }
+        return save(order).id();
+    }
 
-        final Map<Pizza, Integer> pizzas = new HashMap<>();
+    /**
+     * Validates every request on its own and inserts the valid ones with a single bulk write.
+     * The results follow the order of the requests: an orderCode for the submitted ones, the reason for the others.
+     */
+    public List<SubmitOrderBatchResult> submitAll(final List<SubmitOrderRequest> requests) {
+        if (requests == null || requests.isEmpty() || requests.size() > MAX_BATCH_SIZE) {
+            throw new InvalidBatchSizeException();
+        }
 
-        request.order().forEach(e -> {
-            final Pizza pizza = parsePizza(e.name());
-            final int qty = parseQty(e.qty());
-            pizzas.computeIfPresent(pizza, (k, v) -> v + qty);
-            pizzas.putIfAbsent(pizza, qty);
-        });
+        final SubmitOrderBatchResult[] results = new SubmitOrderBatchResult[requests.size()];
+        final List<Order> orders = new ArrayList<>(requests.size());
+        final List<Integer> positions = new ArrayList<>(requests.size());
+        final LocalDateTime now = dateTimeUtils.now();
+
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                final Map<Pizza, Integer> pizzas = SubmitOrderRequestValidator.validate(requests.get(i));
+                orders.add(new Order(uuidUtils.get(), now, OrderStatus.READY, pizzas));
+                positions.add(i);
+            } catch (final EmptyOrderException | InvalidOrderPizzaException | InvalidOrderQtyException e) {
+                results[i] = SubmitOrderBatchResult.rejected(reason(e));
+            }
+        }
+
+        final Set<Integer> failed = repository.insertUnordered(orders);
+
+        for (int i = 0; i < orders.size(); i++) {
+            final Order order = orders.get(i);
+            if (failed.contains(i)) {
+                results[positions.get(i)] = SubmitOrderBatchResult.rejected(NOT_SAVED);
+            } else {
+                results[positions.get(i)] = SubmitOrderBatchResult.submitted(order.id());
+                publisher.publishEvent(new OrderChangedEvent(order));
+            }
+        }
 
-        return repository.save(new Order(uuidUtils.get(), dateTimeUtils.now(), OrderStatus.READY, pizzas)).id();
+        return Arrays.asList(results);
     }
 
+    /**
+     * The version of the queue served by the projection, empty while the queue is read from the database.
+     */
+    public Optional<String> queueVersion() {
+        return projection.version();
+    }
 
     public List<Order> findNotCompletedOrders() {
-        return Stream.concat(
-                repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.IN_PROGRESS).stream(),
-                repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.READY).stream()
-        ).toList();
+        return projection.snapshot()
+                .orElseGet(() -> repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED));
+    }
+
+    public List<Order> findNotCompletedOrders(final String after, final int limit) {
+        final QueueCursor cursor = checkPage(after, limit);
+        return projection.page(cursor, limit)
+                .orElseGet(() -> repository.findQueuePage(NOT_COMPLETED, cursor, limit));
+    }
+
+    /**
+     * Returns the decoded cursor, null for the first page, or throws when the cursor or the limit is invalid.
+     */
+    public static QueueCursor checkPage(final String after, final int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidQueueLimitException();
+        }
+        return after == null ? null : QueueCursor.decode(after);
     }
 
+    /**
+     * The returned stream may hold an open MongoDB cursor and must be closed by the caller.
+     */
+    public Stream<Order> streamNotCompletedOrders() {
+        return projection.stream()
+                .orElseGet(() -> repository.streamByStatusInOrderByStatusAscSubmittedAtAscIdAsc(NOT_COMPLETED));
+    }
+
+    /**
+     * Read-through: a cache miss loads the order from the database, or from the archive when it's not in the
+     * orders collection anymore, and caches it.
+     */
     public Optional<Order> getOrder(final String orderCode) {
+        final UUID id;
         try {
-            return repository.findById(UUID.fromString(orderCode));
+            id = UUID.fromString(orderCode);
         } catch (final IllegalArgumentException e) {
             throw new InvalidOrderCodeException();
         }
+        return cache.get(id).or(() -> {
+            final Optional<Order> order = repository.findById(id).or(() -> repository.findArchivedById(id));
+            order.ifPresent(cache::put);
+            return order;
+        });
+    }
+
+    /**
+     * The kitchen stats of the orders delivered in [from, to), the last day when the window is missing.
+     */
+    public KitchenStatsResponse kitchenStats(final LocalDateTime from, final LocalDateTime to) {
+        final LocalDateTime end = to == null ? dateTimeUtils.now() : to;
+        final LocalDateTime start = from == null ? end.minus(DEFAULT_STATS_WINDOW) : from;
+        if (!start.isBefore(end) || Duration.between(start, end).compareTo(MAX_STATS_WINDOW) > 0) {
+            throw new InvalidStatsWindowException();
+        }
+        return new KitchenStatsResponse(start, end, repository.kitchenStats(start, end));
     }
 
     public void updateStatus(final Order order, final OrderStatus status) {
@@ -74,15 +207,16 @@ public class OrderService {
             switch (status) {
                 case READY -> throw new InvalidStatusUpdateException();
                 case IN_PROGRESS -> {
-                    if (order.status() == OrderStatus.READY && repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.IN_PROGRESS).isEmpty()) {
-                        repository.save(new Order(order.id(), order.submittedAt(), OrderStatus.IN_PROGRESS, order.pizzas()));
+                    if (order.status() == OrderStatus.READY) {
+                        final int station = scheduler.freeStation(busyStations()).orElseThrow(InvalidStatusUpdateException::new);
+                        transition(order, OrderStatus.IN_PROGRESS, station);
                         break;
                     }
                     throw new InvalidStatusUpdateException();
                 }
                 case DELIVERED -> {
                     if (order.status() == OrderStatus.IN_PROGRESS) {
-                        repository.save(new Order(order.id(), order.submittedAt(), OrderStatus.DELIVERED, order.pizzas()));
+                        transition(order, OrderStatus.DELIVERED, null);
                         break;
                     }
                     throw new InvalidStatusUpdateException();
@@ -91,18 +225,120 @@ public class OrderService {
         }
     }
 
-    private Pizza parsePizza(String name) {
+    /**
+     * Atomically hands the next READY order, chosen by the scheduler policy, to the given station or to the first free
+     * one. A candidate claimed by someone else in the meantime is skipped for the next one.
+     * Returns an empty optional when there's no READY order.
+     */
+    public Optional<Order> claimNext(final Integer station) {
+        final Set<Integer> busy = busyStations();
+        final int target;
+        if (station == null) {
+            target = scheduler.freeStation(busy).orElseThrow(StationBusyException::new);
+        } else {
+            scheduler.checkStation(station);
+            if (busy.contains(station)) {
+                throw new StationBusyException();
+            }
+            target = station;
+        }
+
+        final List<Order> candidates = scheduler.candidates(readyOrders(), MAX_CLAIM_ATTEMPTS);
+        for (final Order candidate : candidates) {
+            final LocalDateTime now = dateTimeUtils.now();
+            final Optional<Order> claimed;
+            try {
+                claimed = repository.claim(candidate.id(), candidate.version(), target, now);
+            } catch (final DuplicateKeyException e) {
+                throw new StationBusyException();
+            }
+            if (claimed.isPresent()) {
+                metrics.onTransition(claimed.get(), now);
+                publisher.publishEvent(new OrderChangedEvent(claimed.get()));
+                return claimed;
+            }
+            cache.invalidate(candidate.id());
+        }
+        if (candidates.isEmpty()) {
+            return Optional.empty();
+        }
+        throw new OrderConflictException();
+    }
+
+    private Set<Integer> busyStations() {
+        return projection.busyStations()
+                .orElseGet(() -> repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.IN_PROGRESS).stream()
+                        .map(order -> order.station() == null ? 0 : order.station())
+                        .collect(Collectors.toSet()));
+    }
+
+    /**
+     * The READY orders in queue order: the whole queue from the projection, the oldest ones from the database.
+     */
+    private Stream<Order> readyOrders() {
+        return projection.stream()
+                .map(queue -> queue.filter(order -> order.status() == OrderStatus.READY))
+                .orElseGet(() -> repository.findQueuePage(EnumSet.of(OrderStatus.READY), null, CLAIM_WINDOW).stream());
+    }
+
+    /**
+     * The status and the version read by the caller are the expected ones: if someone else moved the order in the
+     * meantime, or took the station first, nothing is written. A picked order is cooked on the given station.
+     * When only the version changed the order is read again and the transition retried, with a jittered exponential
+     * backoff, up to {@link #MAX_TRANSITION_ATTEMPTS} times.
+     * The cached order was stale in both cases and is dropped.
+     */
+    private void transition(final Order order, final OrderStatus status, final Integer station) {
+        Order expected = order;
+        for (int attempt = 1; ; attempt++) {
+            final LocalDateTime now = dateTimeUtils.now();
+            final Optional<Order> updated = transition(expected, status, station, now);
+            if (updated.isPresent()) {
+                metrics.onTransition(updated.get(), now);
+                publisher.publishEvent(new OrderChangedEvent(updated.get()));
+                return;
+            }
+
+            cache.invalidate(order.id());
+            final Order current = repository.findById(order.id()).orElseThrow(InvalidStatusUpdateException::new);
+            if (current.status() != expected.status()) {
+                throw new InvalidStatusUpdateException();
+            }
+            if (attempt == MAX_TRANSITION_ATTEMPTS) {
+                throw new OrderConflictException();
+            }
+            backoff(attempt);
+            expected = current;
+        }
+    }
+
+    private Optional<Order> transition(final Order expected, final OrderStatus status, final Integer station, final LocalDateTime now) {
         try {
-            return Pizza.valueOf(name.toUpperCase());
-        } catch (IllegalArgumentException e) {
-            throw new InvalidOrderPizzaException();
+            return station == null
+                    ? repository.transition(expected.id(), expected.version(), expected.status(), status, now)
+                    : repository.claim(expected.id(), expected.version(), station, now);
+        } catch (final DuplicateKeyException e) {
+            throw new InvalidStatusUpdateException();
         }
     }
 
-    private int parseQty(int qty) {
-        if (qty <= 0) {
-            throw new InvalidOrderQtyException();
+    private static void backoff(final int attempt) {
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(TRANSITION_BACKOFF.toMillis() << attempt) + 1);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OrderConflictException();
         }
-        return qty;
+    }
+
+    private static String reason(final RuntimeException e) {
+        final ResponseStatus status = AnnotatedElementUtils.findMergedAnnotation(e.getClass(), ResponseStatus.class);
+        return status == null ? e.getClass().getSimpleName() : status.reason();
+    }
+
+    private Order save(final Order order) {
+        final Order saved = repository.save(order);
+        publisher.publishEvent(new OrderChangedEvent(saved));
+        return saved;
     }
 }
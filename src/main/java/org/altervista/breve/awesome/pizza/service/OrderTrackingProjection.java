@@ -0,0 +1,240 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
+import org.altervista.breve.awesome.pizza.exception.InvalidOrderCodeException;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.response.OrderPositionResponse;
+import org.altervista.breve.awesome.pizza.model.response.OrderTrackingResponse;
+import org.altervista.breve.awesome.pizza.repository.OrderStore;
+import org.altervista.breve.awesome.pizza.utils.DateTimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The read model of the customer tracking: a few fields per order, kept in memory apart from the orders themselves,
+ * so that following an order never reads the orders collection nor waits behind the kitchen writes.
+ * <p>
+ * Like the queue projection it's loaded at startup with the READY and IN_PROGRESS orders, kept up to date by
+ * {@link OrderChangedEvent}s and reconciled with the database every {@code awesome.pizza.queue.resync-interval}.
+ * Statuses only move forward, an older change never replaces a newer one.
+ * Live orders stay until they're delivered, delivered ones for {@code delivered-ttl}; an order missing from the
+ * projection, evicted or delivered long ago, is read once from the database or the archive.
+ * <p>
+ * The READY orders are also kept in a {@link QueuePositionIndex}, sorted by the kitchen policy, which counts the ones
+ * ahead of an order in O(log n).
+ * The ETA assumes all the stations busy, each order taking the average preparation of the last {@code prep-samples}
+ * orders delivered, or {@code prep-time} until then: a READY order waits for the ones ahead of it to be spread over the
+ * stations, an IN_PROGRESS one for its own preparation.
+ */
+@Component
+public class OrderTrackingProjection {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderTrackingProjection.class);
+
+    private static final Set<OrderStatus> NOT_COMPLETED = EnumSet.of(OrderStatus.IN_PROGRESS, OrderStatus.READY);
+
+    private final OrderStore repository;
+    private final KitchenScheduler scheduler;
+    private final DateTimeUtils dateTimeUtils;
+    private final Duration prepTime;
+    private final RollingAverage prepTimes;
+    private final Cache<UUID, Tracked> tracked;
+    private final QueuePositionIndex ready;
+
+    @Autowired
+    public OrderTrackingProjection(
+            OrderStore repository,
+            KitchenScheduler scheduler,
+            DateTimeUtils dateTimeUtils,
+            MeterRegistry registry,
+            @Value("${awesome.pizza.tracking.max-size}") final long maxSize,
+            @Value("${awesome.pizza.tracking.delivered-ttl}") final Duration deliveredTtl,
+            @Value("${awesome.pizza.tracking.prep-time}") final Duration prepTime,
+            @Value("${awesome.pizza.tracking.prep-samples}") final int prepSamples
+    ) {
+        this(repository, scheduler, dateTimeUtils, registry, maxSize, deliveredTtl, prepTime, prepSamples, Ticker.systemTicker());
+    }
+
+    OrderTrackingProjection(OrderStore repository, KitchenScheduler scheduler, DateTimeUtils dateTimeUtils, MeterRegistry registry, long maxSize, Duration deliveredTtl, Duration prepTime, int prepSamples, Ticker ticker) {
+        this.repository = repository;
+        this.scheduler = scheduler;
+        this.dateTimeUtils = dateTimeUtils;
+        this.prepTime = prepTime;
+        this.prepTimes = new RollingAverage(prepSamples);
+        this.ready = new QueuePositionIndex(scheduler.policy());
+        this.tracked = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new DeliveredExpiry(deliveredTtl.toNanos()))
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, tracked, "tracking");
+    }
+
+    /**
+     * An unreachable database doesn't stop the application: the orders are read one by one when asked for, until the
+     * scheduled resync manages to load them.
+     */
+    @PostConstruct
+    public void load() {
+        try {
+            resync();
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Unable to load the order tracking projection, it will be loaded by the next resync", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${awesome.pizza.queue.resync-interval}", initialDelayString = "${awesome.pizza.queue.resync-interval}")
+    public void scheduledResync() {
+        try {
+            resync();
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Unable to resync the order tracking projection", e);
+        }
+    }
+
+    /**
+     * Reloads the live orders from the database. A READY order the database doesn't list anymore, and which didn't
+     * change while the query was running, is dropped and read again when asked for.
+     */
+    public void resync() {
+        final long startedAt = System.nanoTime();
+        final List<Order> orders = repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED);
+        final Set<UUID> loaded = new HashSet<>(orders.size() * 2);
+        orders.forEach(order -> {
+            apply(order);
+            loaded.add(order.id());
+        });
+        ready.ids().stream()
+                .filter(id -> !loaded.contains(id))
+                .forEach(id -> tracked.asMap().compute(id, (key, current) -> {
+                    if (current != null && current.appliedAt() - startedAt >= 0) {
+                        return current;
+                    }
+                    ready.remove(id);
+                    return null;
+                }));
+        LOGGER.debug("Order tracking projection synced with {} orders", orders.size());
+    }
+
+    @EventListener
+    public void onOrderChanged(final OrderChangedEvent event) {
+        apply(event.order());
+    }
+
+    public void apply(final Order order) {
+        update(order);
+    }
+
+    /**
+     * Returns what the projection holds for the order once the change is applied.
+     */
+    private Tracked update(final Order order) {
+        return tracked.asMap().compute(order.id(), (id, current) -> {
+            if (current != null && current.status().compareTo(order.status()) > 0) {
+                return current;
+            }
+            if (order.status() == OrderStatus.READY) {
+                ready.add(order.submittedAt(), order.size(), order.id());
+            } else {
+                ready.remove(order.id());
+            }
+            if (current != null && current.status() == OrderStatus.IN_PROGRESS && order.status() == OrderStatus.DELIVERED) {
+                recordPrepTime(order);
+            }
+            return new Tracked(order.status(), order.startedAt(), order.deliveredAt(), System.nanoTime());
+        });
+    }
+
+    /**
+     * The tracking of the order, read from the database only when it's not in the projection.
+     */
+    public Optional<OrderTrackingResponse> track(final String orderCode) {
+        final UUID id;
+        try {
+            id = UUID.fromString(orderCode);
+        } catch (final IllegalArgumentException e) {
+            throw new InvalidOrderCodeException();
+        }
+        return Optional.ofNullable(tracked.getIfPresent(id))
+                .or(() -> repository.findById(id).or(() -> repository.findArchivedById(id)).map(this::update))
+                .map(tracking -> response(id, tracking));
+    }
+
+    /**
+     * How many READY orders will be picked before the given one, none once it's picked, and its ETA.
+     */
+    public Optional<OrderPositionResponse> position(final String orderCode) {
+        return track(orderCode)
+                .map(tracking -> new OrderPositionResponse(tracking.orderCode(), tracking.position() == null ? 0 : tracking.position(), tracking.eta()));
+    }
+
+    private void recordPrepTime(final Order delivered) {
+        if (delivered.startedAt() != null && delivered.deliveredAt() != null && !delivered.deliveredAt().isBefore(delivered.startedAt())) {
+            prepTimes.record(Duration.between(delivered.startedAt(), delivered.deliveredAt()));
+        }
+    }
+
+    private OrderTrackingResponse response(final UUID id, final Tracked tracking) {
+        final LocalDateTime now = dateTimeUtils.now();
+        final Duration prep = prepTimes.average().orElse(prepTime);
+        return switch (tracking.status()) {
+            case READY -> {
+                final int position = ready.position(id).orElse(0);
+                final long rounds = position / scheduler.stations() + 1;
+                yield new OrderTrackingResponse(id, tracking.status(), position, now.plus(prep.multipliedBy(rounds)));
+            }
+            case IN_PROGRESS -> {
+                final LocalDateTime done = tracking.startedAt() == null ? now : tracking.startedAt().plus(prep);
+                yield new OrderTrackingResponse(id, tracking.status(), null, done.isBefore(now) ? now : done);
+            }
+            case DELIVERED -> new OrderTrackingResponse(id, tracking.status(), null, tracking.deliveredAt());
+        };
+    }
+
+    private record Tracked(OrderStatus status, LocalDateTime startedAt, LocalDateTime deliveredAt, long appliedAt) {
+    }
+
+    /**
+     * Live orders never expire, they leave the projection when they're delivered or evicted by the size bound.
+     */
+    private record DeliveredExpiry(long deliveredTtlNanos) implements Expiry<UUID, Tracked> {
+
+        @Override
+        public long expireAfterCreate(final UUID id, final Tracked tracked, final long currentTime) {
+            return tracked.status() == OrderStatus.DELIVERED ? deliveredTtlNanos : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(final UUID id, final Tracked tracked, final long currentTime, final long currentDuration) {
+            return expireAfterCreate(id, tracked, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(final UUID id, final Tracked tracked, final long currentTime, final long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
+import org.altervista.breve.awesome.pizza.exception.OrderQueueFullException;
+import org.altervista.breve.awesome.pizza.exception.OrderWriteTimeoutException;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.repository.OrderStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Queues the submitted orders and writes them in groups with a single bulk insert,
+ * as soon as a group is full or its first order has waited long enough.
+ * Every order is acknowledged only once the group holding it has been written, its change is published afterwards:
+ * a failing listener never turns a written order into a failed one.
+ */
+@Component
+@ConditionalOnProperty(name = "awesome.pizza.submit.write-behind.enabled", havingValue = "true")
+public class OrderWriteBehind {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OrderWriteBehind.class);
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private record Pending(Order order, CompletableFuture<UUID> result) {}
+
+    private final OrderStore repository;
+    private final ApplicationEventPublisher publisher;
+    private final BlockingQueue<Pending> queue;
+    private final int maxBatchSize;
+    private final Duration maxDelay;
+    private final Duration retryAfter;
+    private final Duration timeout;
+    private final DistributionSummary batchSizes;
+    private final Timer flushes;
+    private final Thread writer;
+
+    private volatile boolean stopped;
+
+    @Autowired
+    public OrderWriteBehind(
+            OrderStore repository,
+            ApplicationEventPublisher publisher,
+            MeterRegistry registry,
+            @Value("${awesome.pizza.submit.write-behind.capacity}") final int capacity,
+            @Value("${awesome.pizza.submit.write-behind.max-batch-size}") final int maxBatchSize,
+            @Value("${awesome.pizza.submit.write-behind.max-delay}") final Duration maxDelay,
+            @Value("${awesome.pizza.submit.write-behind.retry-after}") final Duration retryAfter,
+            @Value("${awesome.pizza.submit.write-behind.timeout}") final Duration timeout
+    ) {
+        this.repository = repository;
+        this.publisher = publisher;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.retryAfter = retryAfter;
+        this.timeout = timeout;
+        this.writer = Thread.ofPlatform().name("order-write-behind").daemon().unstarted(this::run);
+        Gauge.builder("awesome.pizza.submit.queue.depth", queue, BlockingQueue::size)
+                .register(registry);
+        this.batchSizes = DistributionSummary.builder("awesome.pizza.submit.batch.size")
+                .register(registry);
+        this.flushes = Timer.builder("awesome.pizza.submit.flush")
+                .register(registry);
+    }
+
+    @PostConstruct
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * Stops accepting orders and waits for the writer to flush the queued ones.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        stopped = true;
+        writer.join();
+        final List<Pending> late = new ArrayList<>();
+        queue.drainTo(late);
+        late.forEach(pending -> pending.result().completeExceptionally(new OrderQueueFullException(retryAfter)));
+    }
+
+    /**
+     * Queues the order, the returned future completes with its id once it's been written.
+     * Throws OrderQueueFullException when the queue is full, the caller should retry later.
+     */
+    public CompletableFuture<UUID> enqueue(final Order order) {
+        return offer(order).result();
+    }
+
+    /**
+     * Queues the order and waits at most {@code timeout} for it to be written, so a stuck writer never keeps the
+     * caller hanging. An order still in the queue by then is taken back and reported like a full queue, the caller
+     * retries later. One the writer has already taken may still be written: OrderWriteTimeoutException hands its id
+     * back instead, a retry would submit it twice.
+     */
+    public UUID submit(final Order order) {
+        final Pending pending = offer(order);
+        try {
+            return pending.result().get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (final TimeoutException e) {
+            LOGGER.warn("The order {} has not been written within {}", order.id(), timeout);
+            return abandon(pending);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return abandon(pending);
+        } catch (final ExecutionException e) {
+            throw failure(e);
+        }
+    }
+
+    private Pending offer(final Order order) {
+        final Pending pending = new Pending(order, new CompletableFuture<>());
+        if (stopped || !queue.offer(pending)) {
+            throw new OrderQueueFullException(retryAfter);
+        }
+        return pending;
+    }
+
+    private UUID abandon(final Pending pending) {
+        if (queue.remove(pending)) {
+            pending.result().cancel(false);
+            throw new OrderQueueFullException(retryAfter);
+        }
+        if (pending.result().isDone()) {
+            try {
+                return pending.result().join();
+            } catch (final CompletionException e) {
+                throw failure(e);
+            }
+        }
+        throw new OrderWriteTimeoutException(pending.order().id());
+    }
+
+    private static RuntimeException failure(final Exception e) {
+        return e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+    }
+
+    private void run() {
+        final List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (!stopped || !queue.isEmpty()) {
+            try {
+                final Pending first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                final long deadline = System.nanoTime() + maxDelay.toNanos();
+                while (batch.size() < maxBatchSize) {
+                    final Pending next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                stopped = true;
+                queue.drainTo(batch);
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(final List<Pending> batch) {
+        final List<Order> orders = batch.stream().map(Pending::order).toList();
+        batchSizes.record(orders.size());
+        final Set<Integer> failed;
+        try {
+            failed = flushes.record(() -> repository.insertUnordered(orders));
+        } catch (final RuntimeException e) {
+            LOGGER.error("Unable to write a group of {} orders", orders.size(), e);
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            final Pending pending = batch.get(i);
+            final UUID id = pending.order().id();
+            if (failed.contains(i)) {
+                pending.result().completeExceptionally(new DataIntegrityViolationException("The order %s could not be saved".formatted(id)));
+            } else {
+                pending.result().complete(id);
+                publish(pending.order());
+            }
+        }
+    }
+
+    /**
+     * The order is already written: a failing listener is only logged, the projections catch up on their next resync.
+     */
+    private void publish(final Order order) {
+        try {
+            publisher.publishEvent(new OrderChangedEvent(order));
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Unable to publish the change of the order {}", order.id(), e);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * The READY orders in the order the kitchen picks them, answering how many of them come before a given one in O(log n).
+ * <p>
+ * With {@link KitchenScheduler.Policy#FIFO} they're sorted by submittedAt and id, with ids compared like MongoDB sorts
+ * them, see {@link QueueCursor#compareIds}. With {@link KitchenScheduler.Policy#FEWEST_PIZZAS} by number of pizzas
+ * first, like {@link KitchenScheduler} does: a smaller order submitted later goes ahead of the bigger ones.
+ * <p>
+ * The orders are kept in a treap, a binary search tree balanced by random priorities, where every node counts the
+ * orders below it: the position of an order is the number of orders on its left along the path from the root.
+ * Adding an order, even an older one than the last, removing it and finding its position are all O(log n) expected.
+ */
+final class QueuePositionIndex {
+
+    private static final Comparator<Ticket> QUEUE_ORDER = Comparator
+            .comparing(Ticket::submittedAt)
+            .thenComparing(Ticket::id, QueueCursor::compareIds);
+    private static final Comparator<Ticket> FEWEST_PIZZAS_FIRST = Comparator
+            .comparingInt(Ticket::pizzas)
+            .thenComparing(Ticket::submittedAt)
+            .thenComparing(Ticket::id);
+
+    private final Comparator<Ticket> pickOrder;
+    private final Map<UUID, Ticket> tickets = new HashMap<>();
+    private final SplittableRandom random = new SplittableRandom();
+
+    private Node root;
+
+    QueuePositionIndex(final KitchenScheduler.Policy policy) {
+        this.pickOrder = switch (policy) {
+            case FIFO -> QUEUE_ORDER;
+            case FEWEST_PIZZAS -> FEWEST_PIZZAS_FIRST;
+        };
+    }
+
+    /**
+     * Adds the order, unless it's already there.
+     */
+    synchronized void add(final LocalDateTime submittedAt, final int pizzas, final UUID id) {
+        final Ticket ticket = new Ticket(submittedAt, pizzas, id);
+        if (tickets.putIfAbsent(id, ticket) == null) {
+            root = insert(root, new Node(ticket, random.nextInt()));
+        }
+    }
+
+    synchronized boolean remove(final UUID id) {
+        final Ticket ticket = tickets.remove(id);
+        if (ticket == null) {
+            return false;
+        }
+        root = delete(root, ticket);
+        return true;
+    }
+
+    /**
+     * The number of orders before the given one, empty when it's not in the index.
+     */
+    synchronized OptionalInt position(final UUID id) {
+        final Ticket ticket = tickets.get(id);
+        if (ticket == null) {
+            return OptionalInt.empty();
+        }
+        int before = 0;
+        Node node = root;
+        while (true) {
+            final int comparison = pickOrder.compare(ticket, node.ticket);
+            if (comparison == 0) {
+                return OptionalInt.of(before + size(node.left));
+            }
+            if (comparison < 0) {
+                node = node.left;
+            } else {
+                before += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    synchronized int size() {
+        return tickets.size();
+    }
+
+    synchronized Set<UUID> ids() {
+        return Set.copyOf(tickets.keySet());
+    }
+
+    /**
+     * Inserts as a leaf, then rotates the node up while its priority is higher than its parent's.
+     */
+    private Node insert(final Node node, final Node added) {
+        if (node == null) {
+            return added;
+        }
+        Node top = node;
+        if (pickOrder.compare(added.ticket, node.ticket) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                top = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                top = rotateLeft(node);
+            }
+        }
+        top.count();
+        return top;
+    }
+
+    private Node delete(final Node node, final Ticket ticket) {
+        final int comparison = pickOrder.compare(ticket, node.ticket);
+        if (comparison == 0) {
+            return merge(node.left, node.right);
+        }
+        if (comparison < 0) {
+            node.left = delete(node.left, ticket);
+        } else {
+            node.right = delete(node.right, ticket);
+        }
+        node.count();
+        return node;
+    }
+
+    /**
+     * Joins two treaps, all the orders of the left one coming before the ones of the right one.
+     */
+    private static Node merge(final Node left, final Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.count();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.count();
+        return right;
+    }
+
+    private static Node rotateRight(final Node node) {
+        final Node left = node.left;
+        node.left = left.right;
+        left.right = node;
+        node.count();
+        return left;
+    }
+
+    private static Node rotateLeft(final Node node) {
+        final Node right = node.right;
+        node.right = right.left;
+        right.left = node;
+        node.count();
+        return right;
+    }
+
+    private static int size(final Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private record Ticket(LocalDateTime submittedAt, int pizzas, UUID id) {
+    }
+
+    private static final class Node {
+
+        private final Ticket ticket;
+        private final int priority;
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        private Node(final Ticket ticket, final int priority) {
+            this.ticket = ticket;
+            this.priority = priority;
+        }
+
+        private void count() {
+            size = size(left) + size(right) + 1;
+        }
+    }
+}
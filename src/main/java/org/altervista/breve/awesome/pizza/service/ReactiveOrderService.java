@@ -0,0 +1,135 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
+import org.altervista.breve.awesome.pizza.exception.InvalidOrderCodeException;
+import org.altervista.breve.awesome.pizza.exception.InvalidStatusUpdateException;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
+import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+import org.altervista.breve.awesome.pizza.repository.ReactiveOrderRepository;
+import org.altervista.breve.awesome.pizza.utils.DateTimeUtils;
+import org.altervista.breve.awesome.pizza.utils.UUIDUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Non-blocking twin of {@link OrderService}: same rules, same queue projection, reactive MongoDB driver.
+ */
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveOrderService {
+
+    private final UUIDUtils uuidUtils;
+    private final DateTimeUtils dateTimeUtils;
+    private final ReactiveOrderRepository repository;
+    private final OrderQueueProjection projection;
+    private final ApplicationEventPublisher publisher;
+    private final OrderLifecycleMetrics metrics;
+
+    @Autowired
+    public ReactiveOrderService(UUIDUtils uuidUtils, DateTimeUtils dateTimeUtils, ReactiveOrderRepository repository, OrderQueueProjection projection, ApplicationEventPublisher publisher, OrderLifecycleMetrics metrics) {
+        this.uuidUtils = uuidUtils;
+        this.dateTimeUtils = dateTimeUtils;
+        this.repository = repository;
+        this.projection = projection;
+        this.publisher = publisher;
+        this.metrics = metrics;
+    }
+
+    public Mono<UUID> submit(final SubmitOrderRequest request) {
+        return Mono.fromCallable(() -> new Order(uuidUtils.get(), dateTimeUtils.now(), OrderStatus.READY, SubmitOrderRequestValidator.validate(request)))
+                .flatMap(repository::save)
+                .doOnNext(this::publish)
+                .map(Order::id);
+    }
+
+    public Mono<List<Order>> findNotCompletedOrders() {
+        return projection.snapshot()
+                .map(Mono::just)
+                .orElseGet(() -> repository.findByStatusInOrderByStatusAscSubmittedAtAscIdAsc(OrderService.NOT_COMPLETED).collectList());
+    }
+
+    public Mono<List<Order>> findNotCompletedOrders(final String after, final int limit) {
+        return Mono.defer(() -> {
+            final QueueCursor cursor = OrderService.checkPage(after, limit);
+            return projection.page(cursor, limit)
+                    .map(Mono::just)
+                    .orElseGet(() -> repository.findQueuePage(OrderService.NOT_COMPLETED, cursor, limit).collectList());
+        });
+    }
+
+    public Flux<Order> streamNotCompletedOrders() {
+        return Flux.defer(() -> projection.stream()
+                .map(Flux::fromStream)
+                .orElseGet(() -> repository.findByStatusInOrderByStatusAscSubmittedAtAscIdAsc(OrderService.NOT_COMPLETED)));
+    }
+
+    /**
+     * Falls back to the archive, like {@link OrderService#getOrder}, for the delivered orders moved there.
+     */
+    public Mono<Order> getOrder(final String orderCode) {
+        return Mono.defer(() -> {
+            final UUID id;
+            try {
+                id = UUID.fromString(orderCode);
+            } catch (final IllegalArgumentException e) {
+                return Mono.<Order>error(new InvalidOrderCodeException());
+            }
+            return repository.findById(id).switchIfEmpty(Mono.defer(() -> repository.findArchivedById(id)));
+        });
+    }
+
+    public Mono<Void> updateStatus(final Order order, final OrderStatus status) {
+        if (order.status() == status) {
+            return Mono.empty();
+        }
+        return switch (status) {
+            case READY -> Mono.<Void>error(new InvalidStatusUpdateException());
+            case IN_PROGRESS -> order.status() == OrderStatus.READY
+                    ? hasInProgress().flatMap(busy -> busy ? Mono.<Void>error(new InvalidStatusUpdateException()) : transition(order, OrderStatus.IN_PROGRESS))
+                    : Mono.<Void>error(new InvalidStatusUpdateException());
+            case DELIVERED -> order.status() == OrderStatus.IN_PROGRESS
+                    ? transition(order, OrderStatus.DELIVERED)
+                    : Mono.<Void>error(new InvalidStatusUpdateException());
+        };
+    }
+
+    private Mono<Boolean> hasInProgress() {
+        return projection.hasInProgress()
+                .map(Mono::just)
+                .orElseGet(() -> repository.existsByStatus(OrderStatus.IN_PROGRESS));
+    }
+
+    private Mono<Void> transition(final Order order, final OrderStatus status) {
+        return Mono.fromSupplier(dateTimeUtils::now)
+                .flatMap(now -> write(order, status, now)
+                        .doOnNext(updated -> metrics.onTransition(updated, now)))
+                .onErrorMap(DuplicateKeyException.class, e -> new InvalidStatusUpdateException())
+                .switchIfEmpty(Mono.error(InvalidStatusUpdateException::new))
+                .doOnNext(this::publish)
+                .then();
+    }
+
+    /**
+     * The reactive stack runs a single station kitchen, the picked orders are cooked on station 0.
+     */
+    private Mono<Order> write(final Order order, final OrderStatus status, final LocalDateTime now) {
+        return status == OrderStatus.IN_PROGRESS
+                ? repository.claim(order.id(), order.version(), 0, now)
+                : repository.transition(order.id(), order.version(), order.status(), status, now);
+    }
+
+    private void publish(final Order order) {
+        publisher.publishEvent(new OrderChangedEvent(order));
+    }
+}
@@ -0,0 +1,22 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stops the reactive stack from starting with the outbox enabled.
+ * <p>
+ * {@link ReactiveOrderService} writes the orders with the reactive driver, outside the transaction of
+ * {@link org.altervista.breve.awesome.pizza.repository.OutboxOrderStore}: the downstream systems would silently miss
+ * every change made through it.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@ConditionalOnProperty(name = "awesome.pizza.outbox.enabled", havingValue = "true")
+public class ReactiveOutboxCheck {
+
+    public ReactiveOutboxCheck() {
+        throw new IllegalStateException("The reactive stack doesn't write to the order outbox: turn awesome.pizza.outbox.enabled off or start without the reactive profile");
+    }
+}
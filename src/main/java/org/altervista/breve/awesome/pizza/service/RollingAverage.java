@@ -0,0 +1,39 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The mean of the last {@code window} durations recorded, kept in a ring with its running sum: O(1) to record and read.
+ */
+final class RollingAverage {
+
+    private final long[] samples;
+
+    private int next;
+    private int count;
+    private long sum;
+
+    RollingAverage(final int window) {
+        this.samples = new long[window];
+    }
+
+    synchronized void record(final Duration duration) {
+        final long nanos = duration.toNanos();
+        if (count == samples.length) {
+            sum -= samples[next];
+        } else {
+            count++;
+        }
+        samples[next] = nanos;
+        sum += nanos;
+        next = (next + 1) % samples.length;
+    }
+
+    /**
+     * Empty until the first duration is recorded.
+     */
+    synchronized Optional<Duration> average() {
+        return count == 0 ? Optional.empty() : Optional.of(Duration.ofNanos(sum / count));
+    }
+}
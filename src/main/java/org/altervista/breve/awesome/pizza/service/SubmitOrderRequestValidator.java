@@ -0,0 +1,67 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import org.altervista.breve.awesome.pizza.exception.EmptyOrderException;
+import org.altervista.breve.awesome.pizza.exception.InvalidOrderPizzaException;
+import org.altervista.breve.awesome.pizza.exception.InvalidOrderQtyException;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.request.OrderEntry;
+import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The submit rules, shared by the blocking and the reactive stack.
+ * Quantities are summed in an array indexed by the pizza ordinal and only the final counts are boxed.
+ */
+final class SubmitOrderRequestValidator {
+
+    private static final Pizza[] PIZZAS = Pizza.values();
+
+    private SubmitOrderRequestValidator() {
+    }
+
+    static Map<Pizza, Integer> validate(final SubmitOrderRequest request) {
+        if (request == null || request.order() == null || request.order().isEmpty()) {
+            throw new EmptyOrderException();
+        }
+
+        final int[] counts = new int[PIZZAS.length];
+
+        for (final OrderEntry e : request.order()) {
+            final Pizza pizza = parsePizza(e.name());
+            final int qty = parseQty(e.qty());
+            counts[pizza.ordinal()] = sum(counts[pizza.ordinal()], qty);
+        }
+
+        final Map<Pizza, Integer> pizzas = new EnumMap<>(Pizza.class);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                pizzas.put(PIZZAS[i], counts[i]);
+            }
+        }
+        return pizzas;
+    }
+
+    private static Pizza parsePizza(String name) {
+        final Pizza pizza = Pizza.byName(name);
+        if (pizza == null) {
+            throw new InvalidOrderPizzaException();
+        }
+        return pizza;
+    }
+
+    private static int parseQty(int qty) {
+        if (qty <= 0) {
+            throw new InvalidOrderQtyException();
+        }
+        return qty;
+    }
+
+    private static int sum(int count, int qty) {
+        if (count > Integer.MAX_VALUE - qty) {
+            throw new InvalidOrderQtyException();
+        }
+        return count + qty;
+    }
+}
@@ -0,0 +1,19 @@
+package org.altervista.breve.awesome.pizza.utils;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Random UUIDv4, the ids of the first orders.
+ */
+@Component
+@ConditionalOnProperty(name = "awesome.pizza.id.generator", havingValue = "v4")
+public class RandomUUIDGenerator implements UUIDGenerator {
+
+    @Override
+    public UUID next() {
+        return UUID.randomUUID();
+    }
+}
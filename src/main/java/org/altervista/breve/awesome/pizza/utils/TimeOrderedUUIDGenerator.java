@@ -0,0 +1,50 @@
+package org.altervista.breve.awesome.pizza.utils;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Time-ordered UUIDv7 (RFC 9562): 48 bits of Unix epoch milliseconds, the version, a 12 bits counter,
+ * the variant and 62 random bits.
+ * The milliseconds and the counter share a single atomic state, so the ids of an instance are strictly increasing
+ * even when many threads ask for them in the same millisecond: when the counter overflows the timestamp runs ahead
+ * of the clock until the clock catches up.
+ * The order code is all it takes to read and move an order, so the random bits come from a {@link SecureRandom}
+ * like the ones of {@link UUID#randomUUID()}: they can't be guessed from the codes already handed out.
+ */
+@Component
+@ConditionalOnProperty(name = "awesome.pizza.id.generator", havingValue = "v7", matchIfMissing = true)
+public class TimeOrderedUUIDGenerator implements UUIDGenerator {
+
+    private static final int COUNTER_BITS = 12;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    private static final long VERSION = 0x7L << COUNTER_BITS;
+    private static final long VARIANT = 0x2L << 62;
+    private static final long RANDOM_MASK = (1L << 62) - 1;
+
+    private final LongSupplier clock;
+    private final SecureRandom random = new SecureRandom();
+    private final AtomicLong state = new AtomicLong();
+
+    public TimeOrderedUUIDGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    TimeOrderedUUIDGenerator(final LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public UUID next() {
+        final long current = state.accumulateAndGet(clock.getAsLong() << COUNTER_BITS, (last, now) -> Math.max(last + 1, now));
+        final long millis = current >>> COUNTER_BITS;
+        final long msb = (millis << 16) | VERSION | (current & COUNTER_MASK);
+        final long lsb = VARIANT | (random.nextLong() & RANDOM_MASK);
+        return new UUID(msb, lsb);
+    }
+}
@@ -0,0 +1,11 @@
+package org.altervista.breve.awesome.pizza.utils;
+
+import java.util.UUID;
+
+/**
+ * Generates the ids of the orders, the implementation is picked by {@code awesome.pizza.id.generator}.
+ */
+public interface UUIDGenerator {
+
+    UUID next();
+}
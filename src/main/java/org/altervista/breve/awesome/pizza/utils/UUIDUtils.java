@@ -1,5 +1,6 @@
 package org.altervista.breve.awesome.pizza.utils;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.UUID;
@@ -7,7 +8,14 @@ import java.util.UUID;
 @Component
 public class UUIDUtils {
 
+    private final UUIDGenerator generator;
+
+    @Autowired
+    public UUIDUtils(UUIDGenerator generator) {
+        this.generator = generator;
+    }
+
     public UUID get() {
-        return UUID.randomUUID();
+        return generator.next();
     }
 }
@@ -0,0 +1,47 @@
+package org.altervista.breve.awesome.pizza;
+
+import org.altervista.breve.awesome.pizza.repository.EmbeddedOrderStore;
+import org.altervista.breve.awesome.pizza.repository.OrderStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+/**
+ * The embedded profile starts without any MongoDB server around.
+ */
+@SpringBootTest
+@ActiveProfiles("embedded")
+class EmbeddedProfileTests {
+
+	@TempDir
+	static Path directory;
+
+	@DynamicPropertySource
+	static void storePath(final DynamicPropertyRegistry registry) {
+		registry.add("awesome.pizza.store.embedded.path", () -> directory.toString());
+	}
+
+	@Autowired
+	private ApplicationContext context;
+
+	@Autowired
+	private OrderStore store;
+
+	@Test
+	void contextLoads() {
+		assertInstanceOf(EmbeddedOrderStore.class, store);
+		assertEquals(0, context.getBeanNamesForType(com.mongodb.client.MongoClient.class).length);
+		assertEquals(0, context.getBeanNamesForType(com.mongodb.reactivestreams.client.MongoClient.class).length);
+	}
+
+}
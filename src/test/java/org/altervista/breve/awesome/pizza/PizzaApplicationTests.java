@@ -1,8 +1,10 @@
 package org.altervista.breve.awesome.pizza;
 
+import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
+@Tag("mongo")
 @SpringBootTest
 class PizzaApplicationTests {
 
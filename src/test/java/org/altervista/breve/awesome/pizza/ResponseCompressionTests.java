@@ -0,0 +1,111 @@
+package org.altervista.breve.awesome.pizza;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.altervista.breve.awesome.pizza.model.request.OrderEntry;
+import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+import org.altervista.breve.awesome.pizza.service.OrderService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compression happens in Tomcat, out of reach of MockMvc: a large queue is read through a real connection.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("embedded")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ResponseCompressionTests {
+
+	private static final int ORDERS = 100;
+
+	@TempDir
+	static Path directory;
+
+	@DynamicPropertySource
+	static void storePath(final DynamicPropertyRegistry registry) {
+		registry.add("awesome.pizza.store.embedded.path", () -> directory.toString());
+	}
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private OrderService service;
+
+	@Autowired
+	private ObjectMapper om;
+
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	@BeforeAll
+	void fillTheQueue() {
+		for (int i = 0; i < ORDERS; i++) {
+			service.submit(new SubmitOrderRequest(List.of(new OrderEntry("margherita", 1 + i % 3))));
+		}
+	}
+
+	@Test
+	void givenALargeQueueThenShouldGzipItsJsonWithAWeakETag() throws Exception {
+		final HttpResponse<InputStream> response = queue("application/json");
+
+		assertEquals(200, response.statusCode());
+		assertEquals("gzip", response.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+		assertTrue(response.headers().firstValue(HttpHeaders.ETAG).orElseThrow().startsWith("W/\""));
+		assertTrue(varyBy(response, HttpHeaders.ACCEPT));
+		try (InputStream body = new GZIPInputStream(response.body())) {
+			assertEquals(ORDERS, om.readTree(body).size());
+		}
+	}
+
+	@Test
+	void givenALargeQueueThenShouldGzipItsCborWithTheSameETag() throws Exception {
+		final HttpResponse<InputStream> json = queue("application/json");
+		final HttpResponse<InputStream> cbor = queue("application/cbor");
+		json.body().close();
+		cbor.body().close();
+
+		assertEquals(200, cbor.statusCode());
+		assertEquals("application/cbor", cbor.headers().firstValue(HttpHeaders.CONTENT_TYPE).orElse(null));
+		assertEquals("gzip", cbor.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+		assertEquals(json.headers().firstValue(HttpHeaders.ETAG), cbor.headers().firstValue(HttpHeaders.ETAG));
+		assertTrue(varyBy(cbor, HttpHeaders.ACCEPT));
+	}
+
+	private HttpResponse<InputStream> queue(final String mediaType) throws IOException, InterruptedException {
+		return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/orders"))
+				.header(HttpHeaders.ACCEPT, mediaType)
+				.header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+				.build(), HttpResponse.BodyHandlers.ofInputStream());
+	}
+
+	/**
+	 * Tomcat adds Accept-Encoding to the Vary of the compressed responses, either next to ours or in its own header.
+	 */
+	private static boolean varyBy(final HttpResponse<?> response, final String header) {
+		return response.headers().allValues(HttpHeaders.VARY).stream()
+				.flatMap(value -> List.of(value.split(",")).stream())
+				.anyMatch(value -> value.trim().equalsIgnoreCase(header));
+	}
+
+}
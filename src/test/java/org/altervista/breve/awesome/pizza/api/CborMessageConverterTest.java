@@ -0,0 +1,143 @@
+package org.altervista.breve.awesome.pizza.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.request.OrderEntry;
+import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+import org.altervista.breve.awesome.pizza.model.response.SubmitOrderResponse;
+import org.altervista.breve.awesome.pizza.service.OrderService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest
+@ExtendWith({SpringExtension.class})
+@ContextConfiguration(classes = {OrderController.class, CborMessageConverter.class})
+class CborMessageConverterTest {
+
+    private final static UUID AN_UUID = UUID.fromString("21c1bdab-2fa9-424f-84c5-edf207ecba6d");
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+    private final static MediaType APPLICATION_CBOR = MediaType.valueOf("application/cbor");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CborMessageConverter converter;
+
+    @Autowired
+    private ObjectMapper om;
+
+    @MockitoBean
+    private OrderService orderService;
+
+    @MockitoBean
+    private OrderEventBroadcaster broadcaster;
+
+    @MockitoBean
+    private OrderAdmission admission;
+
+    @Test
+    public void givenACborClientThenShouldReturnTheOrderInCbor() throws Exception {
+        final Order expected = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+        when(orderService.getOrder(anyString())).thenReturn(Optional.of(expected));
+
+        final byte[] body = mockMvc.perform(get("/api/v1/orders/a-present-order-code").accept(APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(expected, converter.getObjectMapper().readValue(body, Order.class));
+        assertTrue(body.length < om.writeValueAsBytes(expected).length);
+        assertFalse(new String(body, StandardCharsets.ISO_8859_1).contains(AN_UUID.toString()));
+    }
+
+    @Test
+    public void givenACborRequestThenShouldSubmitItAndAnswerInCbor() throws Exception {
+        when(orderService.submit(new SubmitOrderRequest(List.of(new OrderEntry("margherita", 2))))).thenReturn(AN_UUID);
+
+        final byte[] body = mockMvc.perform(post("/api/v1/orders")
+                        .contentType(APPLICATION_CBOR)
+                        .accept(APPLICATION_CBOR)
+                        .content(converter.getObjectMapper().writeValueAsBytes(new SubmitOrderRequest(List.of(new OrderEntry("margherita", 2))))))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals(new SubmitOrderResponse(AN_UUID), converter.getObjectMapper().readValue(body, SubmitOrderResponse.class));
+    }
+
+    @Test
+    public void givenAJsonAndACborClientThenShouldVaryTheOrderByAcceptWithTheSameWeakETag() throws Exception {
+        when(orderService.getOrder(anyString())).thenReturn(Optional.of(new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7))));
+
+        for (final MediaType mediaType : List.of(MediaType.APPLICATION_JSON, APPLICATION_CBOR)) {
+            mockMvc.perform(get("/api/v1/orders/a-present-order-code").accept(mediaType))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(mediaType))
+                    .andExpect(header().string(HttpHeaders.ETAG, "W/\"0\""))
+                    .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+            mockMvc.perform(get("/api/v1/orders/a-present-order-code").accept(mediaType).header(HttpHeaders.IF_NONE_MATCH, "W/\"0\""))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+        }
+    }
+
+    @Test
+    public void givenAJsonAndACborClientThenShouldVaryTheQueueByAcceptWithTheSameWeakETag() throws Exception {
+        when(orderService.queueVersion()).thenReturn(Optional.of("cafe-7"));
+        when(orderService.findNotCompletedOrders()).thenReturn(List.of(new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7))));
+
+        for (final MediaType mediaType : List.of(MediaType.APPLICATION_JSON, APPLICATION_CBOR)) {
+            mockMvc.perform(get("/api/v1/orders").accept(mediaType))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(mediaType))
+                    .andExpect(header().string(HttpHeaders.ETAG, "W/\"cafe-7\""))
+                    .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+            mockMvc.perform(get("/api/v1/orders").accept(mediaType).header(HttpHeaders.IF_NONE_MATCH, "W/\"cafe-7\""))
+                    .andExpect(status().isNotModified())
+                    .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+        }
+    }
+
+    @Test
+    public void givenNoAcceptHeaderThenShouldStillReturnJson() throws Exception {
+        final Order expected = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+        when(orderService.getOrder(anyString())).thenReturn(Optional.of(expected));
+
+        mockMvc.perform(get("/api/v1/orders/a-present-order-code"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(content().string(om.writeValueAsString(expected)));
+
+        verify(orderService).getOrder("a-present-order-code");
+    }
+}
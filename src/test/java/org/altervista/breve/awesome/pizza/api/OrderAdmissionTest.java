@@ -0,0 +1,199 @@
+package org.altervista.breve.awesome.pizza.api;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.altervista.breve.awesome.pizza.exception.OrderQueueFullException;
+import org.altervista.breve.awesome.pizza.exception.TooManyOrdersException;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.service.OrderQueueProjection;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderAdmissionTest {
+
+    private final static String CLIENT_HEADER = "X-API-Key";
+
+    @Mock
+    private OrderQueueProjection projection;
+
+    private final AtomicLong nanos = new AtomicLong(42);
+
+    private MeterRegistry registry;
+
+    private OrderAdmission sut;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        sut = admission(true, 10, 4, 100, 8, 50);
+    }
+
+    @Test
+    public void givenAClientWithinItsBurstThenShouldAdmitItsOrders() {
+        when(projection.count(OrderStatus.READY)).thenReturn(0);
+
+        for (int i = 0; i < 4; i++) {
+            assertDoesNotThrow(() -> sut.admit(client("margherita-lover"), 1));
+        }
+
+        assertEquals(4d, decisions("admitted"));
+    }
+
+    @Test
+    public void givenAClientOverItsRateThenShouldTellItHowLongToWait() {
+        when(projection.count(OrderStatus.READY)).thenReturn(0);
+        sut.admit(client("margherita-lover"), 4);
+
+        final TooManyOrdersException e = assertThrows(TooManyOrdersException.class, () -> sut.admit(client("margherita-lover"), 1));
+        assertEquals(Duration.ofMillis(100), e.getRetryAfter());
+
+        nanos.addAndGet(Duration.ofMillis(100).toNanos());
+        assertDoesNotThrow(() -> sut.admit(client("margherita-lover"), 1));
+        assertEquals(1d, decisions("client_limited"));
+    }
+
+    @Test
+    public void givenTwoClientsThenShouldLimitThemSeparately() {
+        when(projection.count(OrderStatus.READY)).thenReturn(0);
+        sut.admit(client("margherita-lover"), 4);
+
+        assertThrows(TooManyOrdersException.class, () -> sut.admit(client("margherita-lover"), 1));
+        assertDoesNotThrow(() -> sut.admit(client("diavola-lover"), 1));
+    }
+
+    @Test
+    public void givenNoClientKeyThenShouldLimitByAddress() {
+        when(projection.count(OrderStatus.READY)).thenReturn(0);
+        final MockHttpServletRequest anonymous = new MockHttpServletRequest();
+        anonymous.setRemoteAddr("10.0.0.7");
+        sut.admit(anonymous, 4);
+
+        assertThrows(TooManyOrdersException.class, () -> sut.admit(anonymous, 1));
+        assertDoesNotThrow(() -> sut.admit(client("10.0.0.8"), 1));
+    }
+
+    @Test
+    public void givenTheShopOverItsRateThenShouldRefuseEveryClient() {
+        when(projection.count(OrderStatus.READY)).thenReturn(0);
+        sut.admit(client("margherita-lover"), 4);
+        sut.admit(client("diavola-lover"), 4);
+
+        final OrderQueueFullException e = assertThrows(OrderQueueFullException.class, () -> sut.admit(client("capricciosa-lover"), 1));
+        assertEquals(Duration.ofMillis(10), e.getRetryAfter());
+        assertEquals(1d, decisions("global_limited"));
+    }
+
+    @Test
+    public void givenABatchBiggerThanTheBurstThenShouldChargeEveryOrder() {
+        when(projection.count(OrderStatus.READY)).thenReturn(0);
+
+        assertDoesNotThrow(() -> sut.admit(client("party-planner"), 1000));
+
+        final TooManyOrdersException e = assertThrows(TooManyOrdersException.class, () -> sut.admit(client("party-planner"), 1));
+        assertEquals(Duration.ofMillis(99_700), e.getRetryAfter());
+        nanos.addAndGet(Duration.ofSeconds(99).toNanos());
+        assertThrows(TooManyOrdersException.class, () -> sut.admit(client("party-planner"), 1));
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertDoesNotThrow(() -> sut.admit(client("party-planner"), 1));
+    }
+
+    @Test
+    public void givenTheShopOverItsRateThenShouldGiveTheTokensBackToTheClient() {
+        when(projection.count(OrderStatus.READY)).thenReturn(0);
+        sut.admit(client("margherita-lover"), 4);
+        sut.admit(client("diavola-lover"), 4);
+        assertThrows(OrderQueueFullException.class, () -> sut.admit(client("capricciosa-lover"), 4));
+
+        nanos.addAndGet(Duration.ofMillis(80).toNanos());
+
+        assertDoesNotThrow(() -> sut.admit(client("capricciosa-lover"), 4));
+    }
+
+    @Test
+    public void givenTooManyReadyOrdersThenShouldRefuseTheOrdersWhateverTheRate() {
+        when(projection.count(OrderStatus.READY)).thenReturn(50);
+
+        final OrderQueueFullException e = assertThrows(OrderQueueFullException.class, () -> sut.admit(client("margherita-lover"), 1));
+        assertEquals(Duration.ofSeconds(5), e.getRetryAfter());
+        assertEquals(1d, decisions("backlog_full"));
+    }
+
+    @Test
+    public void givenAdmissionDisabledThenShouldAdmitEverything() {
+        final OrderAdmission disabled = admission(false, 10, 1, 100, 1, 0);
+
+        for (int i = 0; i < 10; i++) {
+            assertDoesNotThrow(() -> disabled.admit(client("margherita-lover"), 1));
+        }
+
+        verifyNoInteractions(projection);
+    }
+
+    @Test
+    public void givenManyConcurrentSubmissionsThenShouldNeverAdmitMoreThanTheBurst() throws Exception {
+        when(projection.count(OrderStatus.READY)).thenReturn(0);
+        final OrderAdmission shared = admission(true, 10, 100, 10, 1_000, 50);
+        final int threads = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Integer>> admitted = new ArrayList<>();
+
+        try (final ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                admitted.add(executor.submit(() -> {
+                    start.await();
+                    int count = 0;
+                    for (int i = 0; i < 100; i++) {
+                        try {
+                            shared.admit(client("margherita-lover"), 1);
+                            count++;
+                        } catch (final TooManyOrdersException e) {
+                            // expected once the burst is gone
+                        }
+                    }
+                    return count;
+                }));
+            }
+            start.countDown();
+
+            int total = 0;
+            for (final Future<Integer> future : admitted) {
+                total += future.get();
+            }
+            assertEquals(100, total);
+        }
+    }
+
+    private OrderAdmission admission(final boolean enabled, final double clientRate, final int clientBurst, final double globalRate, final int globalBurst, final int maxReady) {
+        return new OrderAdmission(projection, registry, enabled, CLIENT_HEADER, clientRate, clientBurst, 1_000, globalRate, globalBurst, maxReady, Duration.ofSeconds(5), nanos::get);
+    }
+
+    private static MockHttpServletRequest client(final String key) {
+        final MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(CLIENT_HEADER, key);
+        return request;
+    }
+
+    private double decisions(final String decision) {
+        return registry.get("awesome.pizza.admission.decisions").tag("decision", decision).counter().count();
+    }
+}
@@ -1,48 +1,69 @@
 package org.altervista.breve.awesome.pizza.api;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import org.altervista.breve.awesome.pizza.exception.EmptyOrderException;
 import org.altervista.breve.awesome.pizza.exception.InvalidOrderCodeException;
 import org.altervista.breve.awesome.pizza.exception.InvalidOrderPizzaException;
 import org.altervista.breve.awesome.pizza.exception.InvalidOrderQtyException;
+import org.altervista.breve.awesome.pizza.exception.InvalidStationException;
+import org.altervista.breve.awesome.pizza.exception.InvalidStatsWindowException;
 import org.altervista.breve.awesome.pizza.exception.InvalidStatusUpdateException;
+import org.altervista.breve.awesome.pizza.exception.OrderConflictException;
+import org.altervista.breve.awesome.pizza.exception.OrderQueueFullException;
+import org.altervista.breve.awesome.pizza.exception.OrderWriteTimeoutException;
+import org.altervista.breve.awesome.pizza.exception.StationBusyException;
+import org.altervista.breve.awesome.pizza.exception.TooManyOrdersException;
 import org.altervista.breve.awesome.pizza.model.Order;
 import org.altervista.breve.awesome.pizza.model.OrderStatus;
 import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
 import org.altervista.breve.awesome.pizza.model.request.OrderEntry;
 import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+import org.altervista.breve.awesome.pizza.model.response.KitchenStatsResponse;
+import org.altervista.breve.awesome.pizza.model.response.PizzaKitchenStats;
+import org.altervista.breve.awesome.pizza.model.response.SubmitOrderBatchResponse;
+import org.altervista.breve.awesome.pizza.model.response.SubmitOrderBatchResult;
 import org.altervista.breve.awesome.pizza.model.response.SubmitOrderResponse;
 import org.altervista.breve.awesome.pizza.service.OrderService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest
@@ -62,6 +83,12 @@ class OrderControllerTest {
     @MockitoBean
     private OrderService orderService;
 
+    @MockitoBean
+    private OrderEventBroadcaster broadcaster;
+
+    @MockitoBean
+    private OrderAdmission admission;
+
     @Test
     public void givenARequestWithMissingBodyWhenSubmittingAnOrderThenShouldReturnBadRequest() throws Exception {
         mockMvc.perform(post("/api/v1/orders"))
@@ -128,6 +155,172 @@ class OrderControllerTest {
         verify(orderService).submit(req);
     }
 
+    @Test
+    public void givenARequestWhenSubmittingAnOrderAnOrderQueueFullExceptionIsThrownThenShouldReturnServiceUnavailable() throws Exception {
+        when(orderService.submit(any(SubmitOrderRequest.class))).thenThrow(new OrderQueueFullException(Duration.ofSeconds(2)));
+
+        final SubmitOrderRequest req = new SubmitOrderRequest(Collections.singletonList(new OrderEntry("a-pizza-name", 7)));
+
+        mockMvc.perform(post("/api/v1/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsBytes(req)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "2"));
+
+        verify(orderService).submit(req);
+    }
+
+    @Test
+    public void givenARequestWhenTheOrderIsStillBeingWrittenThenShouldReturnGatewayTimeoutWithItsCode() throws Exception {
+        when(orderService.submit(any(SubmitOrderRequest.class))).thenThrow(new OrderWriteTimeoutException(AN_UUID));
+
+        final SubmitOrderRequest req = new SubmitOrderRequest(Collections.singletonList(new OrderEntry("a-pizza-name", 7)));
+
+        mockMvc.perform(post("/api/v1/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsBytes(req)))
+                .andExpect(status().isGatewayTimeout())
+                .andExpect(header().string("Location", "http://localhost/api/v1/orders/%s".formatted(AN_UUID)))
+                .andExpect(content().string(om.writeValueAsString(new SubmitOrderResponse(AN_UUID))));
+
+        verify(orderService).submit(req);
+    }
+
+    @Test
+    public void givenAClientGoingTooFastWhenSubmittingAnOrderThenShouldReturnTooManyRequestsWithoutSubmittingIt() throws Exception {
+        doThrow(new TooManyOrdersException(Duration.ofMillis(1500))).when(admission).admit(any(HttpServletRequest.class), eq(1));
+
+        final SubmitOrderRequest req = new SubmitOrderRequest(Collections.singletonList(new OrderEntry("a-pizza-name", 7)));
+
+        mockMvc.perform(post("/api/v1/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsBytes(req)))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "2"));
+
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    public void givenABatchWhenTheKitchenIsTooFarBehindThenShouldReturnServiceUnavailableWithoutSubmittingIt() throws Exception {
+        doThrow(new OrderQueueFullException(Duration.ofSeconds(5))).when(admission).admit(any(HttpServletRequest.class), eq(2));
+
+        final SubmitOrderRequest req = new SubmitOrderRequest(Collections.singletonList(new OrderEntry("a-pizza-name", 7)));
+
+        mockMvc.perform(post("/api/v1/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsBytes(List.of(req, req))))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "5"));
+
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    public void givenABatchWhenSubmittingItThenShouldReturnOneResultPerOrder() throws Exception {
+        final List<SubmitOrderRequest> req = List.of(
+                new SubmitOrderRequest(Collections.singletonList(new OrderEntry("diavola", 7))),
+                new SubmitOrderRequest(Collections.singletonList(new OrderEntry("a-not-supported-pizza-name", 7)))
+        );
+        final List<SubmitOrderBatchResult> expected = List.of(
+                SubmitOrderBatchResult.submitted(AN_UUID),
+                SubmitOrderBatchResult.rejected("Invalid pizza in order")
+        );
+        when(orderService.submitAll(req)).thenReturn(expected);
+
+        mockMvc.perform(post("/api/v1/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsBytes(req)))
+                .andExpect(status().isOk())
+                .andExpect(content().string(om.writeValueAsString(new SubmitOrderBatchResponse(expected))));
+
+        verify(orderService).submitAll(req);
+    }
+
+    @Test
+    public void givenAnEmptyBatchThenShouldReturnBadRequestWithoutChargingIt() throws Exception {
+        mockMvc.perform(post("/api/v1/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(admission, orderService);
+    }
+
+    @Test
+    public void givenABatchTooBigThenShouldReturnBadRequestWithoutChargingIt() throws Exception {
+        final SubmitOrderRequest req = new SubmitOrderRequest(Collections.singletonList(new OrderEntry("diavola", 1)));
+
+        mockMvc.perform(post("/api/v1/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(om.writeValueAsBytes(Collections.nCopies(OrderService.MAX_BATCH_SIZE + 1, req))))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(admission, orderService);
+    }
+
+    @Test
+    public void givenAWindowWhenAskingForTheKitchenStatsThenShouldReturnThem() throws Exception {
+        final KitchenStatsResponse expected = new KitchenStatsResponse(SOMEWHERE_IN_TIME, SOMEWHERE_IN_TIME.plusHours(2), List.of(
+                new PizzaKitchenStats(Pizza.DIAVOLA, 2, 3, 1d, 1000d, 1000d, 1000d, 1000d, 2000d, 2000d, 2000d, 2000d)
+        ));
+        when(orderService.kitchenStats(SOMEWHERE_IN_TIME, SOMEWHERE_IN_TIME.plusHours(2))).thenReturn(expected);
+
+        mockMvc.perform(get("/api/v1/orders/stats?from=1969-07-20T20:17:00&to=1969-07-20T22:17:00"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(om.writeValueAsString(expected)));
+
+        verify(orderService).kitchenStats(SOMEWHERE_IN_TIME, SOMEWHERE_IN_TIME.plusHours(2));
+    }
+
+    @Test
+    public void givenAnInvalidWindowWhenAskingForTheKitchenStatsThenShouldReturnBadRequest() throws Exception {
+        when(orderService.kitchenStats(null, SOMEWHERE_IN_TIME)).thenThrow(InvalidStatsWindowException.class);
+
+        mockMvc.perform(get("/api/v1/orders/stats?to=1969-07-20T20:17:00"))
+                .andExpect(status().isBadRequest());
+
+        verify(orderService).kitchenStats(null, SOMEWHERE_IN_TIME);
+    }
+
+    @Test
+    public void givenAReadyOrderWhenClaimingTheNextOneThenShouldReturnIt() throws Exception {
+        final Order expected = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7), SOMEWHERE_IN_TIME, null, 1, 1L);
+        when(orderService.claimNext(1)).thenReturn(Optional.of(expected));
+
+        mockMvc.perform(post("/api/v1/orders/claim?station=1"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(om.writeValueAsString(expected)));
+
+        verify(orderService).claimNext(1);
+    }
+
+    @Test
+    public void givenNoReadyOrdersWhenClaimingTheNextOneThenShouldReturnNoContent() throws Exception {
+        when(orderService.claimNext(null)).thenReturn(Optional.empty());
+
+        mockMvc.perform(post("/api/v1/orders/claim"))
+                .andExpect(status().isNoContent());
+
+        verify(orderService).claimNext(null);
+    }
+
+    @Test
+    public void givenABusyStationWhenClaimingTheNextOneThenShouldReturnConflict() throws Exception {
+        when(orderService.claimNext(0)).thenThrow(StationBusyException.class);
+
+        mockMvc.perform(post("/api/v1/orders/claim?station=0"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    public void givenAnUnknownStationWhenClaimingTheNextOneThenShouldReturnBadRequest() throws Exception {
+        when(orderService.claimNext(9)).thenThrow(InvalidStationException.class);
+
+        mockMvc.perform(post("/api/v1/orders/claim?station=9"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void whenSomeNotCompletedOrdersAreFoundThenShouldReturnTheFoundOrders() throws Exception {
         final List<Order> expected = List.of(
@@ -143,6 +336,107 @@ class OrderControllerTest {
         verify(orderService).findNotCompletedOrders();
     }
 
+    @Test
+    public void givenAQueueVersionThenShouldReturnItAsETag() throws Exception {
+        when(orderService.queueVersion()).thenReturn(Optional.of("cafe-7"));
+        when(orderService.findNotCompletedOrders()).thenReturn(List.of());
+
+        mockMvc.perform(get("/api/v1/orders"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"cafe-7\""));
+    }
+
+    @Test
+    public void givenAQueueVersionWhenTheETagMatchesThenShouldReturnNotModifiedWithoutReadingTheQueue() throws Exception {
+        when(orderService.queueVersion()).thenReturn(Optional.of("cafe-7"));
+
+        mockMvc.perform(get("/api/v1/orders?limit=2").header(HttpHeaders.IF_NONE_MATCH, "\"cafe-7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(orderService).queueVersion();
+        verifyNoMoreInteractions(orderService);
+    }
+
+    @Test
+    public void givenALimitWhenTheQueueHasMoreOrdersThenShouldReturnAPageLinkingTheNextOne() throws Exception {
+        final Order last = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+        final List<Order> expected = List.of(
+                new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7)),
+                last
+        );
+        when(orderService.findNotCompletedOrders(null, 2)).thenReturn(expected);
+
+        mockMvc.perform(get("/api/v1/orders?limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Link", "<http://localhost/api/v1/orders?limit=2&after=%s>; rel=\"next\"".formatted(QueueCursor.of(last).encode())))
+                .andExpect(content().string(om.writeValueAsString(expected)));
+
+        verify(orderService).queueVersion();
+        verify(orderService).findNotCompletedOrders(null, 2);
+        verifyNoMoreInteractions(orderService);
+    }
+
+    @Test
+    public void givenACursorWhenTheQueueHasNoMoreOrdersThenShouldReturnTheLastPageWithoutLink() throws Exception {
+        final List<Order> expected = List.of(new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7)));
+        final String cursor = new QueueCursor(OrderStatus.READY, SOMEWHERE_IN_TIME, UUID.randomUUID()).encode();
+        when(orderService.findNotCompletedOrders(cursor, OrderService.DEFAULT_PAGE_SIZE)).thenReturn(expected);
+
+        mockMvc.perform(get("/api/v1/orders?after=" + cursor))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Link"))
+                .andExpect(content().string(om.writeValueAsString(expected)));
+
+        verify(orderService).findNotCompletedOrders(cursor, OrderService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Test
+    public void givenAnInvalidCursorThenShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/orders?after=an-invalid-cursor"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    public void givenAnInvalidLimitThenShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/orders?limit=0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/orders?limit=" + (OrderService.MAX_PAGE_SIZE + 1)))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    public void givenAMatchingETagWithAnInvalidCursorOrLimitThenShouldStillReturnBadRequest() throws Exception {
+        mockMvc.perform(get("/api/v1/orders?after=an-invalid-cursor").header(HttpHeaders.IF_NONE_MATCH, "W/\"cafe-7\""))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/orders?limit=0").header(HttpHeaders.IF_NONE_MATCH, "W/\"cafe-7\""))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    public void whenTheQueueIsRequestedAsNdjsonThenShouldStreamOneOrderPerLine() throws Exception {
+        final Order order1 = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7));
+        final Order order2 = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+        when(orderService.streamNotCompletedOrders()).thenReturn(Stream.of(order1, order2));
+
+        final MvcResult result = mockMvc.perform(get("/api/v1/orders").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(om.writeValueAsString(order1) + "\n" + om.writeValueAsString(order2) + "\n"));
+
+        verify(orderService).streamNotCompletedOrders();
+    }
+
     @Test
     public void givenAnInvalidOrderCodeThenShouldReturnBadRequest() throws Exception {
         when(orderService.getOrder(anyString())).thenThrow(InvalidOrderCodeException.class);
@@ -170,11 +464,34 @@ class OrderControllerTest {
 
         mockMvc.perform(get("/api/v1/orders/a-present-order-code"))
                 .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"0\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
                 .andExpect(content().string(om.writeValueAsString(expected)));
 
         verify(orderService).getOrder("a-present-order-code");
     }
 
+    @Test
+    public void givenAPresentOrderCodeWhenItsETagMatchesThenShouldReturnNotModified() throws Exception {
+        final Order expected = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+        when(orderService.getOrder(anyString())).thenReturn(Optional.of(expected));
+
+        mockMvc.perform(get("/api/v1/orders/a-present-order-code").header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    public void givenAPresentOrderCodeWhenItsETagIsOutdatedThenShouldReturnTheOrder() throws Exception {
+        final Order expected = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.DIAVOLA, 7), SOMEWHERE_IN_TIME, null, 1L);
+        when(orderService.getOrder(anyString())).thenReturn(Optional.of(expected));
+
+        mockMvc.perform(get("/api/v1/orders/a-present-order-code").header(HttpHeaders.IF_NONE_MATCH, "\"0\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"1\""))
+                .andExpect(content().string(om.writeValueAsString(expected)));
+    }
+
     @Test
     public void givenAnOrderCodeAndAnInvalidStatusThenShouldReturnBadRequest() throws Exception {
         mockMvc.perform(patch("/api/v1/orders/a-valid-order-code?status=an-invalid-status"))
@@ -220,6 +537,20 @@ class OrderControllerTest {
         verify(orderService).updateStatus(expected, OrderStatus.IN_PROGRESS);
     }
 
+    @Test
+    public void givenAPresentOrderCodeAndAStatusWhenTheOrderKeepsChangingThenShouldReturnConflict() throws Exception {
+        final Order expected = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+        when(orderService.getOrder(anyString())).thenReturn(Optional.of(expected));
+        doThrow(OrderConflictException.class)
+                .when(orderService)
+                .updateStatus(any(Order.class), any(OrderStatus.class));
+
+        mockMvc.perform(patch("/api/v1/orders/a-present-order-code?status=IN_PROGRESS"))
+                .andExpect(status().isConflict());
+
+        verify(orderService).updateStatus(expected, OrderStatus.IN_PROGRESS);
+    }
+
     @Test
     public void givenAPresentOrderCodeAndAStatusThenShouldUpdateTheStatusAndReturnOk() throws Exception {
         final Order expected = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
@@ -234,4 +565,39 @@ class OrderControllerTest {
         verify(orderService).getOrder("a-present-order-code");
         verify(orderService).updateStatus(expected, OrderStatus.IN_PROGRESS);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void givenANotPresentOrderCodeWhenTrackingThenShouldReturnNotFound() throws Exception {
+        when(orderService.getOrder(anyString())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/orders/a-not-present-order-code/events"))
+                .andExpect(status().isNotFound());
+
+        verify(orderService).getOrder("a-not-present-order-code");
+        verifyNoInteractions(broadcaster);
+    }
+
+    @Test
+    public void givenAPresentOrderCodeWhenTrackingThenShouldStreamItsChanges() throws Exception {
+        final Order expected = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+        when(orderService.getOrder(anyString())).thenReturn(Optional.of(expected));
+        when(broadcaster.track(eq(expected.id()), any())).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/v1/orders/a-present-order-code/events"))
+                .andExpect(request().asyncStarted());
+
+        verify(orderService).getOrder("a-present-order-code");
+        verify(broadcaster).track(eq(expected.id()), any());
+    }
+
+    @Test
+    public void whenWatchingTheQueueThenShouldStreamItsChanges() throws Exception {
+        when(broadcaster.watchQueue()).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get("/api/v1/orders/events"))
+                .andExpect(request().asyncStarted());
+
+        verify(broadcaster).watchQueue();
+        verifyNoInteractions(orderService);
+    }
+}
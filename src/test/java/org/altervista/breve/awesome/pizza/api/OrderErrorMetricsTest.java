@@ -0,0 +1,49 @@
+package org.altervista.breve.awesome.pizza.api;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.altervista.breve.awesome.pizza.exception.InvalidStatusUpdateException;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+
+class OrderErrorMetricsTest {
+
+    private MeterRegistry registry;
+
+    private OrderErrorMetrics sut;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        sut = new OrderErrorMetrics(registry);
+    }
+
+    @Test
+    public void givenAnExceptionFromTheOrderApiThenShouldCountItWithoutResolvingIt() throws Exception {
+        final HandlerMethod handler = new HandlerMethod(mock(OrderController.class), OrderController.class.getMethod("update", String.class, OrderStatus.class));
+
+        assertNull(sut.resolveException(new MockHttpServletRequest(), new MockHttpServletResponse(), handler, new InvalidStatusUpdateException()));
+
+        assertEquals(1, registry.get("awesome.pizza.orders.errors")
+                .tag("exception", "InvalidStatusUpdateException")
+                .tag("endpoint", "update")
+                .counter().count());
+    }
+
+    @Test
+    public void givenAnExceptionFromAnotherControllerThenShouldIgnoreIt() throws Exception {
+        final HandlerMethod handler = new HandlerMethod(mock(PizzaController.class), PizzaController.class.getMethod("list"));
+
+        sut.resolveException(new MockHttpServletRequest(), new MockHttpServletResponse(), handler, new IllegalStateException());
+
+        assertEquals(0, registry.find("awesome.pizza.orders.errors").counters().size());
+    }
+}
@@ -0,0 +1,158 @@
+package org.altervista.breve.awesome.pizza.api;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderEventBroadcasterTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+
+    private final Order readyOrder = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
+    private final Order inProgressOrder = withStatus(readyOrder, OrderStatus.IN_PROGRESS);
+    private final Order deliveredOrder = withStatus(readyOrder, OrderStatus.DELIVERED);
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    private MeterRegistry registry;
+
+    private OrderEventBroadcaster sut;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        sut = new OrderEventBroadcaster(registry, Duration.ofMinutes(1), 2, timeout -> new RecordingEmitter(), tasks::add);
+    }
+
+    @Test
+    public void givenATrackedOrderThenShouldPushItsChangesUntilItsDelivered() {
+        final RecordingEmitter emitter = (RecordingEmitter) sut.track(readyOrder.id(), () -> readyOrder);
+        run();
+        sut.onOrderChanged(new OrderChangedEvent(inProgressOrder));
+        run();
+
+        assertEquals(1, subscribers("order"));
+
+        sut.onOrderChanged(new OrderChangedEvent(deliveredOrder));
+        run();
+
+        assertEquals(List.of(readyOrder, inProgressOrder, deliveredOrder), emitter.orders());
+        assertTrue(emitter.completed);
+        assertEquals(0, subscribers("order"));
+    }
+
+    @Test
+    public void givenATrackedOrderThenShouldConflateThePendingChangesAndDropTheStaleOnes() {
+        final RecordingEmitter emitter = (RecordingEmitter) sut.track(readyOrder.id(), () -> readyOrder);
+        sut.onOrderChanged(new OrderChangedEvent(inProgressOrder));
+        sut.onOrderChanged(new OrderChangedEvent(readyOrder));
+        run();
+
+        assertEquals(List.of(inProgressOrder), emitter.orders());
+        assertFalse(emitter.completed);
+    }
+
+    @Test
+    public void givenAnotherOrderChangingThenShouldNotPushItToTheTracker() {
+        final RecordingEmitter emitter = (RecordingEmitter) sut.track(readyOrder.id(), () -> readyOrder);
+        sut.onOrderChanged(new OrderChangedEvent(new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 1))));
+        run();
+
+        assertEquals(List.of(readyOrder), emitter.orders());
+    }
+
+    @Test
+    public void givenAQueueWatcherThenShouldPushTheChangesOfEveryOrder() {
+        final Order anotherOrder = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 1));
+        final RecordingEmitter emitter = (RecordingEmitter) sut.watchQueue();
+        run();
+        sut.onOrderChanged(new OrderChangedEvent(inProgressOrder));
+        sut.onOrderChanged(new OrderChangedEvent(anotherOrder));
+        run();
+
+        assertEquals(List.of(inProgressOrder, anotherOrder), emitter.orders());
+        assertEquals(1, subscribers("queue"));
+    }
+
+    @Test
+    public void givenAQueueWatcherFallingBehindThenShouldAskItToResync() {
+        final RecordingEmitter emitter = (RecordingEmitter) sut.watchQueue();
+        run();
+        for (int i = 0; i < 3; i++) {
+            sut.onOrderChanged(new OrderChangedEvent(new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 1))));
+        }
+        run();
+
+        assertEquals(List.of(), emitter.orders());
+        assertTrue(emitter.text().contains("event:" + OrderEventBroadcaster.RESYNC_EVENT));
+        assertEquals(1, registry.get("awesome.pizza.events.resyncs").counter().count());
+    }
+
+    private void run() {
+        while (!tasks.isEmpty()) {
+            tasks.removeFirst().run();
+        }
+    }
+
+    private double subscribers(final String type) {
+        return registry.get("awesome.pizza.events.subscribers").tag("type", type).gauge().value();
+    }
+
+    private static Order withStatus(final Order order, final OrderStatus status) {
+        return new Order(order.id(), order.submittedAt(), status, order.pizzas());
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<Set<ResponseBodyEmitter.DataWithMediaType>> events = new ArrayList<>();
+        private boolean completed;
+
+        @Override
+        public void send(final SseEventBuilder builder) {
+            events.add(builder.build());
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+        }
+
+        private List<Order> orders() {
+            return events.stream()
+                    .flatMap(Set::stream)
+                    .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .filter(Order.class::isInstance)
+                    .map(Order.class::cast)
+                    .toList();
+        }
+
+        private String text() {
+            final StringBuilder text = new StringBuilder();
+            events.stream()
+                    .flatMap(Set::stream)
+                    .map(ResponseBodyEmitter.DataWithMediaType::getData)
+                    .filter(String.class::isInstance)
+                    .forEach(text::append);
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.altervista.breve.awesome.pizza.api;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.repository.OrderRepository;
+import org.altervista.breve.awesome.pizza.service.OrderQueueProjection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many cooks racing on the PATCH endpoint against a real MongoDB: only one order can be IN_PROGRESS at a time.
+ */
+@Tag("mongo")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@TestPropertySource(properties = "spring.data.mongodb.uri = mongodb://localhost:27017/awesome-pizza-mongo-test")
+class OrderStatusConcurrencyTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+    private final static int ORDERS = 50;
+    private final static int COOKS = 32;
+    private final static int ROUNDS = 10;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private OrderRepository repository;
+
+    @Autowired
+    private OrderQueueProjection projection;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    public void setUp() {
+        repository.deleteAll();
+        final List<Order> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            orders.add(new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME.plusSeconds(i), OrderStatus.READY, Map.of(Pizza.MARGHERITA, 1)));
+        }
+        repository.insert(orders);
+        projection.resync();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repository.deleteAll();
+        projection.resync();
+    }
+
+    @Test
+    public void givenManyCooksPickingOrdersConcurrentlyThenOnlyOneOrderShouldBeInProgressAtATime() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(COOKS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                final List<UUID> ready = repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.READY).stream()
+                        .map(Order::id)
+                        .toList();
+                final CountDownLatch start = new CountDownLatch(1);
+                final List<Future<Map.Entry<UUID, Integer>>> attempts = new ArrayList<>(COOKS);
+                for (int cook = 0; cook < COOKS; cook++) {
+                    final UUID orderCode = ready.get(cook % ready.size());
+                    attempts.add(executor.submit(() -> {
+                        start.await();
+                        return Map.entry(orderCode, patch(orderCode, OrderStatus.IN_PROGRESS));
+                    }));
+                }
+                start.countDown();
+
+                final Set<UUID> picked = new HashSet<>();
+                for (final Future<Map.Entry<UUID, Integer>> attempt : attempts) {
+                    final Map.Entry<UUID, Integer> result = attempt.get();
+                    if (result.getValue() == 200) {
+                        picked.add(result.getKey());
+                    } else {
+                        assertEquals(422, result.getValue());
+                    }
+                }
+
+                final List<Order> inProgress = repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.IN_PROGRESS);
+                assertEquals(1, inProgress.size());
+                assertEquals(Set.of(inProgress.getFirst().id()), picked);
+                assertTrue(projection.hasInProgress().orElseThrow());
+
+                assertEquals(200, patch(inProgress.getFirst().id(), OrderStatus.DELIVERED));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(ROUNDS, repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.DELIVERED).size());
+        assertEquals(ORDERS - ROUNDS, repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.READY).size());
+    }
+
+    private int patch(final UUID orderCode, final OrderStatus status) throws Exception {
+        final HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:%d/api/v1/orders/%s?status=%s".formatted(port, orderCode, status)))
+                .method("PATCH", HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,103 @@
+package org.altervista.breve.awesome.pizza.api;
+
+import org.altervista.breve.awesome.pizza.exception.InvalidOrderCodeException;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.response.OrderPositionResponse;
+import org.altervista.breve.awesome.pizza.model.response.OrderTrackingResponse;
+import org.altervista.breve.awesome.pizza.service.OrderTrackingProjection;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest
+@ExtendWith({SpringExtension.class})
+@ContextConfiguration(classes = {OrderTrackingController.class})
+class OrderTrackingControllerTest {
+
+    private final static UUID AN_UUID = UUID.fromString("21c1bdab-2fa9-424f-84c5-edf207ecba6d");
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private OrderTrackingProjection tracking;
+
+    @Test
+    public void givenAReadyOrderThenShouldReturnItsPositionAndEta() throws Exception {
+        when(tracking.track(AN_UUID.toString())).thenReturn(Optional.of(new OrderTrackingResponse(AN_UUID, OrderStatus.READY, 3, SOMEWHERE_IN_TIME)));
+
+        mockMvc.perform(get("/api/v1/orders/%s/tracking".formatted(AN_UUID)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"))
+                .andExpect(content().json("{\"orderCode\":\"%s\",\"status\":\"READY\",\"position\":3,\"eta\":\"1969-07-20T20:17:00\"}".formatted(AN_UUID), true));
+    }
+
+    @Test
+    public void givenADeliveredOrderThenShouldLeaveThePositionOut() throws Exception {
+        when(tracking.track(AN_UUID.toString())).thenReturn(Optional.of(new OrderTrackingResponse(AN_UUID, OrderStatus.DELIVERED, null, SOMEWHERE_IN_TIME)));
+
+        mockMvc.perform(get("/api/v1/orders/%s/tracking".formatted(AN_UUID)))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"orderCode\":\"%s\",\"status\":\"DELIVERED\",\"eta\":\"1969-07-20T20:17:00\"}".formatted(AN_UUID), true));
+    }
+
+    @Test
+    public void givenAnInvalidOrderCodeThenShouldReturnBadRequest() throws Exception {
+        when(tracking.track(anyString())).thenThrow(InvalidOrderCodeException.class);
+
+        mockMvc.perform(get("/api/v1/orders/an-invalid-order-code/tracking"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void givenANotPresentOrderCodeThenShouldReturnNotFound() throws Exception {
+        when(tracking.track(anyString())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/orders/a-not-present-order-code/tracking"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void givenAnOrderThenShouldReturnHowManyAreAhead() throws Exception {
+        when(tracking.position(AN_UUID.toString())).thenReturn(Optional.of(new OrderPositionResponse(AN_UUID, 3, SOMEWHERE_IN_TIME)));
+
+        mockMvc.perform(get("/api/v1/orders/%s/position".formatted(AN_UUID)))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-store"))
+                .andExpect(content().json("{\"orderCode\":\"%s\",\"ahead\":3,\"eta\":\"1969-07-20T20:17:00\"}".formatted(AN_UUID), true));
+    }
+
+    @Test
+    public void givenAnInvalidOrderCodeWhenAskingThePositionThenShouldReturnBadRequest() throws Exception {
+        when(tracking.position(anyString())).thenThrow(InvalidOrderCodeException.class);
+
+        mockMvc.perform(get("/api/v1/orders/an-invalid-order-code/position"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void givenANotPresentOrderCodeWhenAskingThePositionThenShouldReturnNotFound() throws Exception {
+        when(tracking.position(anyString())).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/v1/orders/a-not-present-order-code/position"))
+                .andExpect(status().isNotFound());
+    }
+}
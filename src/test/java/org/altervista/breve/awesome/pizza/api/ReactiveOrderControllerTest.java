@@ -0,0 +1,190 @@
+package org.altervista.breve.awesome.pizza.api;
+
+import org.altervista.breve.awesome.pizza.exception.InvalidOrderCodeException;
+import org.altervista.breve.awesome.pizza.exception.InvalidOrderPizzaException;
+import org.altervista.breve.awesome.pizza.exception.InvalidStatusUpdateException;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
+import org.altervista.breve.awesome.pizza.model.request.OrderEntry;
+import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+import org.altervista.breve.awesome.pizza.model.response.SubmitOrderResponse;
+import org.altervista.breve.awesome.pizza.service.ReactiveOrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest
+@ContextConfiguration(classes = {ReactiveOrderController.class})
+class ReactiveOrderControllerTest {
+
+    private final static UUID AN_UUID = UUID.fromString("21c1bdab-2fa9-424f-84c5-edf207ecba6d");
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockitoBean
+    private ReactiveOrderService orderService;
+
+    @Test
+    public void givenARequestWithMissingBodyWhenSubmittingAnOrderThenShouldReturnBadRequest() {
+        webTestClient.post().uri("/api/v1/orders")
+                .contentType(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verifyNoInteractions(orderService);
+    }
+
+    @Test
+    public void givenARequestWhenSubmittingAnOrderAnInvalidOrderPizzaExceptionIsThrownThenShouldReturnBadRequest() {
+        when(orderService.submit(any(SubmitOrderRequest.class))).thenReturn(Mono.error(new InvalidOrderPizzaException()));
+
+        final SubmitOrderRequest req = new SubmitOrderRequest(Collections.singletonList(new OrderEntry("a-not-supported-pizza-name", 7)));
+
+        webTestClient.post().uri("/api/v1/orders")
+                .bodyValue(req)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        verify(orderService).submit(req);
+    }
+
+    @Test
+    public void givenARequestWhenSubmittingAnOrderThenShouldReturnTheOrderCode() {
+        when(orderService.submit(any(SubmitOrderRequest.class))).thenReturn(Mono.just(AN_UUID));
+
+        final SubmitOrderRequest req = new SubmitOrderRequest(Collections.singletonList(new OrderEntry("a-pizza-name", 7)));
+
+        webTestClient.post().uri("/api/v1/orders")
+                .bodyValue(req)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals("Location", "/api/v1/orders/%s".formatted(AN_UUID))
+                .expectBody(SubmitOrderResponse.class).isEqualTo(new SubmitOrderResponse(AN_UUID));
+
+        verify(orderService).submit(req);
+    }
+
+    @Test
+    public void whenSomeNotCompletedOrdersAreFoundThenShouldReturnTheFoundOrders() {
+        final List<Order> expected = List.of(
+                new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7)),
+                new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7))
+        );
+        when(orderService.findNotCompletedOrders()).thenReturn(Mono.just(expected));
+
+        webTestClient.get().uri("/api/v1/orders")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Order.class).isEqualTo(expected);
+    }
+
+    @Test
+    public void givenALimitWhenTheQueueHasMoreOrdersThenShouldReturnAPageLinkingTheNextOne() {
+        final Order last = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+        when(orderService.findNotCompletedOrders(null, 1)).thenReturn(Mono.just(List.of(last)));
+
+        webTestClient.get().uri("/api/v1/orders?limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("Link", "</api/v1/orders?limit=1&after=%s>; rel=\"next\"".formatted(QueueCursor.of(last).encode()))
+                .expectBodyList(Order.class).isEqualTo(List.of(last));
+    }
+
+    @Test
+    public void whenTheQueueIsRequestedAsNdjsonThenShouldStreamTheOrders() {
+        final Order order = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+        when(orderService.streamNotCompletedOrders()).thenReturn(Flux.just(order));
+
+        webTestClient.get().uri("/api/v1/orders")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Order.class).isEqualTo(List.of(order));
+    }
+
+    @Test
+    public void givenAnInvalidOrderCodeThenShouldReturnBadRequest() {
+        when(orderService.getOrder(anyString())).thenReturn(Mono.error(new InvalidOrderCodeException()));
+
+        webTestClient.get().uri("/api/v1/orders/an-invalid-order-code")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void givenANotPresentOrderCodeThenShouldReturnNotFound() {
+        when(orderService.getOrder(anyString())).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/api/v1/orders/a-not-present-order-code")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void givenAPresentOrderCodeThenShouldReturnTheOrder() {
+        final Order expected = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+        when(orderService.getOrder(anyString())).thenReturn(Mono.just(expected));
+
+        webTestClient.get().uri("/api/v1/orders/a-present-order-code")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Order.class).isEqualTo(expected);
+    }
+
+    @Test
+    public void givenAPresentOrderCodeAndAStatusWhenTheStatusCannotBeSetThenShouldReturnUnprocessableEntity() {
+        final Order expected = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.DIAVOLA, 7));
+        when(orderService.getOrder(anyString())).thenReturn(Mono.just(expected));
+        when(orderService.updateStatus(any(Order.class), any(OrderStatus.class))).thenReturn(Mono.error(new InvalidStatusUpdateException()));
+
+        webTestClient.patch().uri("/api/v1/orders/a-present-order-code?status=IN_PROGRESS")
+                .exchange()
+                .expectStatus().isEqualTo(422);
+
+        verify(orderService).updateStatus(expected, OrderStatus.IN_PROGRESS);
+    }
+
+    @Test
+    public void givenAPresentOrderCodeAndAStatusThenShouldUpdateTheStatusAndReturnOk() {
+        final Order expected = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+        when(orderService.getOrder(anyString())).thenReturn(Mono.just(expected));
+        when(orderService.updateStatus(any(Order.class), any(OrderStatus.class))).thenReturn(Mono.empty());
+
+        webTestClient.patch().uri("/api/v1/orders/a-present-order-code?status=IN_PROGRESS")
+                .exchange()
+                .expectStatus().isOk();
+
+        verify(orderService).updateStatus(expected, OrderStatus.IN_PROGRESS);
+    }
+
+    @Test
+    public void givenANotPresentOrderCodeAndAStatusThenShouldReturnNotFound() {
+        when(orderService.getOrder(anyString())).thenReturn(Mono.empty());
+
+        webTestClient.patch().uri("/api/v1/orders/a-not-present-order-code?status=IN_PROGRESS")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+}
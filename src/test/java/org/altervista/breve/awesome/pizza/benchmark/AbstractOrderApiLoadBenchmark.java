@@ -0,0 +1,163 @@
+package org.altervista.breve.awesome.pizza.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.altervista.breve.awesome.pizza.model.request.OrderEntry;
+import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+import org.altervista.breve.awesome.pizza.model.response.SubmitOrderResponse;
+import org.altervista.breve.awesome.pizza.repository.OrderRepository;
+import org.altervista.breve.awesome.pizza.service.OrderQueueProjection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Closed-loop load test of the order API: every client submits an order, tracks it and reads a page of the queue,
+ * then starts over until the time is up. The subclasses only differ in the thread model of the web tier.
+ * Run it with {@code ./gradlew benchmark} against the MongoDB instance started from {@code local-docker-services}.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+abstract class AbstractOrderApiLoadBenchmark {
+
+    private final static int CLIENTS = 1_000;
+    private final static Duration WARMUP = Duration.ofSeconds(10);
+    private final static Duration DURATION = Duration.ofSeconds(30);
+
+    private enum Operation {
+        SUBMIT,
+        GET,
+        LIST
+    }
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper om;
+
+    @Autowired
+    private OrderRepository repository;
+
+    @Autowired
+    private OrderQueueProjection projection;
+
+    private HttpClient client;
+
+    protected abstract String threadModel();
+
+    @BeforeEach
+    public void setUp() {
+        repository.deleteAll();
+        projection.resync();
+        client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        client.close();
+        repository.deleteAll();
+        projection.resync();
+    }
+
+    @Test
+    public void measureThroughputAndLatency() throws Exception {
+        run(WARMUP);
+        final Map<Operation, ConcurrentLinkedQueue<Long>> samples = run(DURATION);
+
+        samples.forEach((operation, latencies) -> {
+            final long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+            System.out.printf("[load] threads=%s clients=%d operation=%s throughput=%.0f/s p50=%.2fms p99=%.2fms%n",
+                    threadModel(),
+                    CLIENTS,
+                    operation,
+                    sorted.length / (double) DURATION.toSeconds(),
+                    percentile(sorted, 0.50) / 1_000_000d,
+                    percentile(sorted, 0.99) / 1_000_000d);
+        });
+    }
+
+    /**
+     * Every client is joined, so a failed request fails the benchmark instead of silently leaving fewer clients.
+     */
+    private Map<Operation, ConcurrentLinkedQueue<Long>> run(final Duration duration) throws Exception {
+        final Map<Operation, ConcurrentLinkedQueue<Long>> samples = new EnumMap<>(Operation.class);
+        Arrays.stream(Operation.values()).forEach(operation -> samples.put(operation, new ConcurrentLinkedQueue<>()));
+        final CountDownLatch start = new CountDownLatch(1);
+        final long deadline = System.nanoTime() + duration.toNanos();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            final List<Future<?>> futures = new ArrayList<>(CLIENTS);
+            for (int i = 0; i < CLIENTS; i++) {
+                futures.add(clients.submit(() -> {
+                    start.await();
+                    while (System.nanoTime() < deadline) {
+                        final SubmitOrderResponse submitted = om.readValue(
+                                timed(samples.get(Operation.SUBMIT), submit()),
+                                SubmitOrderResponse.class);
+                        timed(samples.get(Operation.GET), get("/api/v1/orders/%s".formatted(submitted.orderCode())));
+                        timed(samples.get(Operation.LIST), get("/api/v1/orders?limit=50"));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        }
+        return samples;
+    }
+
+    private String timed(final ConcurrentLinkedQueue<Long> latencies, final HttpRequest request) throws Exception {
+        final long started = System.nanoTime();
+        final HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        latencies.add(System.nanoTime() - started);
+        assertEquals(2, response.statusCode() / 100);
+        return response.body();
+    }
+
+    private HttpRequest submit() throws Exception {
+        final SubmitOrderRequest request = new SubmitOrderRequest(Collections.singletonList(new OrderEntry("margherita", 1)));
+        return HttpRequest.newBuilder(uri("/api/v1/orders"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(om.writeValueAsBytes(request)))
+                .build();
+    }
+
+    private HttpRequest get(final String path) {
+        return HttpRequest.newBuilder(uri(path)).GET().build();
+    }
+
+    private URI uri(final String path) {
+        return URI.create("http://localhost:%d%s".formatted(port, path));
+    }
+
+    private static long percentile(final long[] sorted, final double percentile) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+    }
+}
@@ -0,0 +1,85 @@
+package org.altervista.breve.awesome.pizza.benchmark;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.utils.RandomUUIDGenerator;
+import org.altervista.breve.awesome.pizza.utils.TimeOrderedUUIDGenerator;
+import org.altervista.breve.awesome.pizza.utils.UUIDGenerator;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the insert throughput of random UUIDv4 and time-ordered UUIDv7 ids once the orders collection is already large,
+ * together with the size of the resulting {@code _id} index.
+ * The orders are written to a scratch collection, so the indexes of the real one are left alone.
+ * Run it with {@code ./gradlew benchmark} against the MongoDB instance started from {@code local-docker-services}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestPropertySource(properties = "spring.data.mongodb.uri = mongodb://localhost:27017/awesome-pizza-mongo-benchmark")
+class OrderIdInsertBenchmarkTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+    private final static int PRELOADED_ORDERS = 1_000_000;
+    private final static int PRELOAD_BATCH_SIZE = 10_000;
+    private final static int MEASURED_ORDERS = 50_000;
+    private final static String COLLECTION = "orders_id_benchmark";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        mongoTemplate.dropCollection(COLLECTION);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        mongoTemplate.dropCollection(COLLECTION);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"v4", "v7"})
+    public void measureInsertThroughput(final String version) {
+        final UUIDGenerator generator = "v4".equals(version) ? new RandomUUIDGenerator() : new TimeOrderedUUIDGenerator();
+
+        for (int inserted = 0; inserted < PRELOADED_ORDERS; inserted += PRELOAD_BATCH_SIZE) {
+            mongoTemplate.insert(orders(generator, PRELOAD_BATCH_SIZE), COLLECTION);
+        }
+
+        final List<Order> measured = orders(generator, MEASURED_ORDERS);
+        final long start = System.nanoTime();
+        measured.forEach(order -> mongoTemplate.insert(order, COLLECTION));
+        final long elapsed = System.nanoTime() - start;
+
+        final Document stats = mongoTemplate.executeCommand(new Document("collStats", COLLECTION));
+        System.out.printf("[ids] version=%s preloaded=%d inserted=%d throughput=%.0f/s idIndex=%.1fMB%n",
+                version,
+                PRELOADED_ORDERS,
+                MEASURED_ORDERS,
+                MEASURED_ORDERS / (elapsed / 1_000_000_000d),
+                stats.get("indexSizes", Document.class).get("_id_", Number.class).longValue() / (1024d * 1024d));
+    }
+
+    private List<Order> orders(final UUIDGenerator generator, final int count) {
+        final List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            orders.add(new Order(generator.next(), SOMEWHERE_IN_TIME, OrderStatus.DELIVERED, Map.of(Pizza.MARGHERITA, 1)));
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,104 @@
+package org.altervista.breve.awesome.pizza.benchmark;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the former two-scan queue read with the single indexed query as the READY backlog grows.
+ * Run it with {@code ./gradlew benchmark} against the MongoDB instance started from {@code local-docker-services}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestPropertySource(properties = "spring.data.mongodb.uri = mongodb://localhost:27017/awesome-pizza-mongo-benchmark")
+class OrderQueueBenchmarkTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+    private final static int WARMUP_ITERATIONS = 3;
+    private final static int MEASURED_ITERATIONS = 10;
+
+    @Autowired
+    private OrderRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        repository.deleteAll();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repository.deleteAll();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1_000, 10_000, 100_000})
+    public void compareTwoScansWithSingleQuery(final int readyOrders) {
+        populate(readyOrders);
+
+        final Supplier<List<Order>> twoScans = () -> Stream.concat(
+                repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.IN_PROGRESS).stream(),
+                repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.READY).stream()
+        ).toList();
+        final Supplier<List<Order>> singleQuery = () -> repository.findByStatusInOrderByStatusAscSubmittedAtAsc(
+                EnumSet.of(OrderStatus.IN_PROGRESS, OrderStatus.READY)
+        );
+
+        assertEquals(twoScans.get(), singleQuery.get());
+
+        report(readyOrders, "two scans", measure(twoScans));
+        report(readyOrders, "single query", measure(singleQuery));
+    }
+
+    private void populate(final int readyOrders) {
+        final List<Order> orders = new ArrayList<>(readyOrders + 2);
+        orders.add(new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.DIAVOLA, 1)));
+        orders.add(new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.DELIVERED, Map.of(Pizza.DIAVOLA, 1)));
+        for (int i = 0; i < readyOrders; i++) {
+            orders.add(new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME.plusSeconds(i), OrderStatus.READY, Map.of(Pizza.MARGHERITA, 1)));
+        }
+        repository.insert(orders);
+    }
+
+    private long[] measure(final Supplier<List<Order>> query) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            query.get();
+        }
+        final long[] samples = new long[MEASURED_ITERATIONS];
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            final long start = System.nanoTime();
+            query.get();
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    private void report(final int readyOrders, final String path, final long[] samples) {
+        System.out.printf("[queue] ready=%d path=%s median=%.2fms max=%.2fms%n",
+                readyOrders,
+                path,
+                samples[samples.length / 2] / 1_000_000d,
+                samples[samples.length - 1] / 1_000_000d);
+    }
+}
@@ -0,0 +1,92 @@
+package org.altervista.breve.awesome.pizza.benchmark;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.repository.EmbeddedOrderStore;
+import org.altervista.breve.awesome.pizza.repository.OrderRepository;
+import org.altervista.breve.awesome.pizza.repository.OrderStore;
+import org.altervista.breve.awesome.pizza.utils.TimeOrderedUUIDGenerator;
+import org.altervista.breve.awesome.pizza.utils.UUIDGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compares the throughput of the two stores over the whole life of the orders: submit, read back, pick, deliver,
+ * and a read of the queue every few orders.
+ * Run it with {@code ./gradlew benchmark} against the MongoDB instance started from {@code local-docker-services}.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@TestPropertySource(properties = "spring.data.mongodb.uri = mongodb://localhost:27017/awesome-pizza-mongo-benchmark")
+class OrderStoreBenchmarkTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+    private final static int ORDERS = 20_000;
+    private final static int QUEUE_READ_EVERY = 10;
+
+    private final UUIDGenerator generator = new TimeOrderedUUIDGenerator();
+
+    @Autowired
+    private OrderRepository repository;
+
+    @TempDir
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() {
+        repository.deleteAll();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repository.deleteAll();
+    }
+
+    @ParameterizedTest
+    @CsvSource({"mongo, false", "embedded, false", "embedded, true"})
+    public void measureOrderLifecycleThroughput(final String store, final boolean forceWrites) throws IOException {
+        final EmbeddedOrderStore embedded = "embedded".equals(store) ? new EmbeddedOrderStore(directory, DataSize.ofMegabytes(64), forceWrites) : null;
+        final OrderStore sut = embedded == null ? repository : embedded;
+        try {
+            final long start = System.nanoTime();
+            for (int i = 0; i < ORDERS; i++) {
+                final UUID id = generator.next();
+                final LocalDateTime at = SOMEWHERE_IN_TIME.plusSeconds(i);
+                final Order saved = sut.save(new Order(id, at, OrderStatus.READY, Map.of(Pizza.values()[i % Pizza.values().length], 1 + i % 3)));
+                sut.findById(id).orElseThrow();
+                final Order picked = sut.claim(id, saved.version(), 0, at).orElseThrow();
+                sut.transition(id, picked.version(), OrderStatus.IN_PROGRESS, OrderStatus.DELIVERED, at.plusMinutes(5)).orElseThrow();
+                if (i % QUEUE_READ_EVERY == 0) {
+                    sut.findQueuePage(EnumSet.of(OrderStatus.READY, OrderStatus.IN_PROGRESS), null, 50);
+                }
+            }
+            final long elapsed = System.nanoTime() - start;
+
+            System.out.printf("[store] store=%s forceWrites=%s orders=%d throughput=%.0f orders/s%n",
+                    store,
+                    forceWrites,
+                    ORDERS,
+                    ORDERS / (elapsed / 1_000_000_000d));
+        } finally {
+            if (embedded != null) {
+                embedded.close();
+            }
+        }
+    }
+}
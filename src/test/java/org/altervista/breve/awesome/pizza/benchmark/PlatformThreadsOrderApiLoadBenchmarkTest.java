@@ -0,0 +1,16 @@
+package org.altervista.breve.awesome.pizza.benchmark;
+
+import org.springframework.test.context.TestPropertySource;
+
+@TestPropertySource(properties = """
+        spring.threads.virtual.enabled = false
+        spring.data.mongodb.uri = mongodb://localhost:27017/awesome-pizza-mongo-benchmark
+        awesome.pizza.admission.enabled = false
+        """)
+class PlatformThreadsOrderApiLoadBenchmarkTest extends AbstractOrderApiLoadBenchmark {
+
+    @Override
+    protected String threadModel() {
+        return "platform";
+    }
+}
@@ -0,0 +1,59 @@
+package org.altervista.breve.awesome.pizza.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderOutboxEvent;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileOrderEventSinkTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void givenManyBatchesThenShouldAppendAnEventPerLine() throws Exception {
+        final Path file = directory.resolve("outbox").resolve("order-events.jsonl");
+        final FileOrderEventSink sut = new FileOrderEventSink(file, objectMapper);
+        final OrderOutboxEvent event1 = event();
+        final OrderOutboxEvent event2 = event();
+        final OrderOutboxEvent event3 = event();
+
+        sut.publish(List.of(event1, event2));
+        sut.publish(List.of(event3));
+
+        final List<OrderOutboxEvent> written = Files.readAllLines(file).stream()
+                .map(this::read)
+                .toList();
+        assertEquals(List.of(event1, event2, event3), written);
+    }
+
+    private OrderOutboxEvent read(final String line) {
+        try {
+            return objectMapper.readValue(line, OrderOutboxEvent.class);
+        } catch (final Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static OrderOutboxEvent event() {
+        final Order order = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 1), null, null, 0L);
+        return new OrderOutboxEvent(UUID.randomUUID(), SOMEWHERE_IN_TIME, order);
+    }
+}
@@ -0,0 +1,294 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
+import org.altervista.breve.awesome.pizza.model.response.PizzaKitchenStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The same guarantees the MongoDB repository gives, plus surviving a restart from the log and the snapshots.
+ */
+class EmbeddedOrderStoreTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+    private final static int WRITERS = 32;
+
+    @TempDir
+    private Path directory;
+
+    private EmbeddedOrderStore sut;
+
+    @BeforeEach
+    public void setUp() {
+        sut = open();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        sut.close();
+    }
+
+    @Test
+    public void givenANewOrderThenShouldStartFromVersionZero() {
+        final Order saved = sut.save(order(OrderStatus.READY, 0));
+
+        assertEquals(0L, saved.version());
+        assertEquals(Optional.of(saved), sut.findById(saved.id()));
+    }
+
+    @Test
+    public void givenAnExistingOrderWhenSavingItAtAStaleVersionThenShouldRefuseIt() {
+        final Order saved = sut.save(order(OrderStatus.READY, 0));
+        sut.save(saved);
+
+        assertThrows(OptimisticLockingFailureException.class, () -> sut.save(saved));
+        assertThrows(DuplicateKeyException.class, () -> sut.save(order(saved.id(), OrderStatus.READY, 0)));
+    }
+
+    @Test
+    public void givenAStaleVersionThenShouldNotWrite() {
+        final Order saved = sut.save(order(OrderStatus.READY, 0));
+        final Order updated = sut.transition(saved.id(), saved.version(), OrderStatus.READY, OrderStatus.IN_PROGRESS, SOMEWHERE_IN_TIME).orElseThrow();
+
+        assertEquals(1L, updated.version());
+        assertEquals(SOMEWHERE_IN_TIME, updated.startedAt());
+        assertEquals(Optional.empty(), sut.transition(saved.id(), saved.version(), OrderStatus.IN_PROGRESS, OrderStatus.DELIVERED, SOMEWHERE_IN_TIME));
+        assertEquals(Optional.of(updated), sut.findById(saved.id()));
+    }
+
+    @Test
+    public void givenManyWritersOnTheSameVersionThenOnlyOneShouldWin() throws Exception {
+        final Order saved = sut.save(order(OrderStatus.READY, 0));
+        try (final ExecutorService executor = Executors.newFixedThreadPool(WRITERS)) {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<Optional<Order>>> attempts = new ArrayList<>(WRITERS);
+            for (int writer = 0; writer < WRITERS; writer++) {
+                final int station = writer;
+                attempts.add(executor.submit(() -> {
+                    start.await();
+                    return sut.claim(saved.id(), saved.version(), station, SOMEWHERE_IN_TIME);
+                }));
+            }
+            start.countDown();
+
+            int winners = 0;
+            for (final Future<Optional<Order>> attempt : attempts) {
+                winners += attempt.get().isPresent() ? 1 : 0;
+            }
+            assertEquals(1, winners);
+            assertEquals(1L, sut.findById(saved.id()).orElseThrow().version());
+        }
+    }
+
+    @Test
+    public void givenABusyStationWhenClaimingAnotherOrderOnItThenShouldRefuseIt() {
+        final Order first = sut.save(order(OrderStatus.READY, 0));
+        final Order second = sut.save(order(OrderStatus.READY, 1));
+        sut.claim(first.id(), first.version(), 0, SOMEWHERE_IN_TIME).orElseThrow();
+
+        assertThrows(DuplicateKeyException.class, () -> sut.claim(second.id(), second.version(), 0, SOMEWHERE_IN_TIME));
+        assertEquals(1, sut.claim(second.id(), second.version(), 1, SOMEWHERE_IN_TIME).orElseThrow().station());
+
+        sut.transition(first.id(), 1L, OrderStatus.IN_PROGRESS, OrderStatus.DELIVERED, SOMEWHERE_IN_TIME.plusMinutes(5)).orElseThrow();
+        final Order third = sut.save(order(OrderStatus.READY, 2));
+        assertEquals(0, sut.claim(third.id(), third.version(), 0, SOMEWHERE_IN_TIME).orElseThrow().station());
+    }
+
+    @Test
+    public void givenABatchWithDuplicatesThenShouldInsertTheOthers() {
+        final Order existing = sut.save(order(OrderStatus.READY, 0));
+        final Order fresh = order(OrderStatus.READY, 1);
+
+        assertEquals(Set.of(1), sut.insertUnordered(List.of(fresh, order(existing.id(), OrderStatus.READY, 2))));
+        assertEquals(Optional.of(fresh), sut.findById(fresh.id()));
+    }
+
+    @Test
+    public void givenABatchRepeatingAnIdThenShouldInsertTheFirstCopyAndReportOnlyTheLaterOnes() {
+        final Order first = order(OrderStatus.READY, 0);
+        final Order copy = order(first.id(), OrderStatus.READY, 1);
+        final Order other = order(OrderStatus.READY, 2);
+
+        assertEquals(Set.of(1), sut.insertUnordered(List.of(first, copy, other)));
+        assertEquals(Optional.of(first), sut.findById(first.id()));
+        assertEquals(Optional.of(other), sut.findById(other.id()));
+    }
+
+    @Test
+    public void givenSomeOrdersThenShouldServeTheQueueInStatusAndSubmissionOrder() {
+        final Order ready1 = sut.save(order(OrderStatus.READY, 2));
+        final Order ready2 = sut.save(order(OrderStatus.READY, 1));
+        final Order inProgress = sut.save(order(OrderStatus.IN_PROGRESS, 3));
+        sut.save(order(OrderStatus.DELIVERED, 0));
+
+        assertEquals(List.of(inProgress, ready2, ready1), sut.findByStatusInOrderByStatusAscSubmittedAtAsc(EnumSet.of(OrderStatus.READY, OrderStatus.IN_PROGRESS)));
+        try (final Stream<Order> queue = sut.streamByStatusInOrderByStatusAscSubmittedAtAscIdAsc(EnumSet.of(OrderStatus.READY, OrderStatus.IN_PROGRESS))) {
+            assertEquals(List.of(inProgress, ready2, ready1), queue.toList());
+        }
+        assertEquals(List.of(ready2, ready1), sut.findByStatusOrderBySubmittedAtAsc(OrderStatus.READY));
+        assertEquals(List.of(inProgress, ready2), sut.findQueuePage(EnumSet.of(OrderStatus.READY, OrderStatus.IN_PROGRESS), null, 2));
+        assertEquals(List.of(ready1), sut.findQueuePage(EnumSet.of(OrderStatus.READY, OrderStatus.IN_PROGRESS), QueueCursor.of(ready2), 2));
+        assertEquals(List.of(ready2, ready1), sut.findQueuePage(EnumSet.of(OrderStatus.READY), QueueCursor.of(inProgress), 2));
+    }
+
+    @Test
+    public void givenOrdersSubmittedTogetherThenShouldSortTheirIdsLikeMongoDb() {
+        final Order low = sut.save(order(UUID.fromString("7fffffff-ffff-7fff-bfff-ffffffffffff"), OrderStatus.READY, 0));
+        final Order high = sut.save(order(UUID.fromString("80000000-0000-7000-8000-000000000000"), OrderStatus.READY, 0));
+
+        assertEquals(List.of(low, high), sut.findByStatusOrderBySubmittedAtAsc(OrderStatus.READY));
+        assertEquals(List.of(high), sut.findQueuePage(EnumSet.of(OrderStatus.READY), QueueCursor.of(low), 2));
+    }
+
+    @Test
+    public void givenOldDeliveredOrdersThenShouldMoveThemToTheArchiveOldestFirst() {
+        final Order oldest = sut.save(delivered(0, 1));
+        final Order older = sut.save(delivered(0, 2));
+        final Order recent = sut.save(delivered(0, 60));
+
+        assertEquals(1, sut.archiveDelivered(SOMEWHERE_IN_TIME.plusMinutes(30), 1));
+        assertEquals(1, sut.archiveDelivered(SOMEWHERE_IN_TIME.plusMinutes(30), 5));
+        assertEquals(0, sut.archiveDelivered(SOMEWHERE_IN_TIME.plusMinutes(30), 5));
+
+        assertEquals(Optional.empty(), sut.findById(oldest.id()));
+        assertEquals(Optional.of(oldest), sut.findArchivedById(oldest.id()));
+        assertEquals(Optional.of(older), sut.findArchivedById(older.id()));
+        assertEquals(Optional.of(recent), sut.findById(recent.id()));
+    }
+
+    @Test
+    public void givenDeliveredOrdersThenShouldComputeTheKitchenStatsIncludingTheArchivedOnes() {
+        sut.save(delivered(0, 10));
+        sut.save(delivered(0, 20));
+        sut.archiveDelivered(SOMEWHERE_IN_TIME.plusMinutes(15), 10);
+        sut.save(delivered(0, 200));
+
+        final List<PizzaKitchenStats> stats = sut.kitchenStats(SOMEWHERE_IN_TIME, SOMEWHERE_IN_TIME.plusHours(2));
+
+        assertEquals(1, stats.size());
+        assertEquals(Pizza.MARGHERITA, stats.getFirst().pizza());
+        assertEquals(2, stats.getFirst().orders());
+        assertEquals(4, stats.getFirst().pizzas());
+        assertEquals(1d, stats.getFirst().ordersPerHour());
+        assertEquals(60_000d, stats.getFirst().avgWaitMs());
+        assertEquals(540_000d, stats.getFirst().p50PrepMs());
+        assertEquals(1_140_000d, stats.getFirst().p99PrepMs());
+    }
+
+    @Test
+    public void whenReopenedThenShouldRecoverEveryWriteFromTheLog() throws IOException {
+        final Order saved = sut.save(order(OrderStatus.READY, 0));
+        final Order claimed = sut.claim(saved.id(), saved.version(), 2, SOMEWHERE_IN_TIME).orElseThrow();
+        final Order archived = sut.save(delivered(0, 1));
+        sut.archiveDelivered(SOMEWHERE_IN_TIME.plusMinutes(30), 10);
+
+        final EmbeddedOrderStore reopened = reopenWithoutSnapshot();
+
+        assertEquals(Optional.of(claimed), reopened.findById(saved.id()));
+        assertEquals(Optional.of(archived), reopened.findArchivedById(archived.id()));
+        final Order next = reopened.save(order(OrderStatus.READY, 1));
+        assertThrows(DuplicateKeyException.class, () -> reopened.claim(next.id(), next.version(), 2, SOMEWHERE_IN_TIME));
+    }
+
+    @Test
+    public void whenReopenedAfterASnapshotThenShouldRecoverTheSnapshotAndTheLaterWrites() throws IOException {
+        final Order before = sut.save(order(OrderStatus.READY, 0));
+        final Order archived = sut.save(delivered(0, 1));
+        sut.archiveDelivered(SOMEWHERE_IN_TIME.plusMinutes(30), 10);
+        sut.snapshot();
+        final Order after = sut.save(order(OrderStatus.READY, 1));
+
+        final EmbeddedOrderStore reopened = reopenWithoutSnapshot();
+
+        assertEquals(Optional.of(before), reopened.findById(before.id()));
+        assertEquals(Optional.of(after), reopened.findById(after.id()));
+        assertEquals(Optional.of(archived), reopened.findArchivedById(archived.id()));
+        try (final Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.filter(file -> file.getFileName().toString().startsWith("snapshot-")).count());
+        }
+    }
+
+    @Test
+    public void givenATornRecordAtTheEndOfTheLogThenShouldRecoverTheWritesBeforeIt() throws IOException {
+        final Order saved = sut.save(order(OrderStatus.READY, 0));
+        final Order lost = sut.save(order(OrderStatus.READY, 1));
+        final Path segment;
+        try (final Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.getFileName().toString().startsWith("log-")).findFirst().orElseThrow();
+        }
+
+        final EmbeddedOrderStore reopened;
+        try (final FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final int first = channel.map(FileChannel.MapMode.READ_ONLY, 0, 4).getInt();
+            // flips a byte of the second record, like a write torn by a power loss
+            final ByteBuffer flipped = ByteBuffer.allocate(1);
+            channel.read(flipped, 8 + first + 8 + 20);
+            flipped.put(0, (byte) ~flipped.get(0)).rewind();
+            channel.write(flipped, 8 + first + 8 + 20);
+            reopened = reopenWithoutSnapshot();
+        }
+
+        assertEquals(Optional.of(saved), reopened.findById(saved.id()));
+        assertEquals(Optional.empty(), reopened.findById(lost.id()));
+        final Order next = reopened.save(order(OrderStatus.READY, 2));
+        assertEquals(Optional.of(next), reopenWithoutSnapshot().findById(next.id()));
+    }
+
+    /**
+     * Like a crash: the store is opened again on the same directory without closing the current one first.
+     */
+    private EmbeddedOrderStore reopenWithoutSnapshot() {
+        return open();
+    }
+
+    private EmbeddedOrderStore open() {
+        return new EmbeddedOrderStore(directory, DataSize.ofKilobytes(64), false);
+    }
+
+    private static Order order(final OrderStatus status, final int minutes) {
+        return order(UUID.randomUUID(), status, minutes);
+    }
+
+    private static Order order(final UUID id, final OrderStatus status, final int minutes) {
+        return new Order(id, SOMEWHERE_IN_TIME.plusMinutes(minutes), status, Map.of(Pizza.MARGHERITA, 2));
+    }
+
+    /**
+     * Submitted at the given minute, picked a minute later and delivered at the other given minute.
+     */
+    private static Order delivered(final int submitted, final int delivered) {
+        return new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME.plusMinutes(submitted), OrderStatus.DELIVERED, Map.of(Pizza.MARGHERITA, 2),
+                SOMEWHERE_IN_TIME.plusMinutes(submitted + 1), SOMEWHERE_IN_TIME.plusMinutes(delivered));
+    }
+}
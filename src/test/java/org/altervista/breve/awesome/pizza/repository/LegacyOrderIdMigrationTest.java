@@ -0,0 +1,112 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.bson.BsonBinary;
+import org.bson.BsonDocument;
+import org.bson.UuidRepresentation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Moves the orders written with the Java legacy UUID representation on a real MongoDB.
+ */
+@Tag("mongo")
+@SpringBootTest
+@TestPropertySource(properties = "spring.data.mongodb.uri = mongodb://localhost:27017/awesome-pizza-mongo-test")
+class LegacyOrderIdMigrationTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+    private final static String STAGING = "orders_legacy_ids";
+
+    @Autowired
+    private OrderRepository repository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private LegacyOrderIdMigration sut;
+
+    @BeforeEach
+    public void setUp() {
+        repository.deleteAll();
+        mongoTemplate.remove(new Query(), OrderRepository.ARCHIVE_COLLECTION);
+        mongoTemplate.dropCollection(STAGING);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        setUp();
+    }
+
+    @Test
+    public void givenALegacyOrderInProgressThenShouldFindItByCodeAfterTheMigration() {
+        final Order order = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.DIAVOLA, 1), SOMEWHERE_IN_TIME, null, 0L);
+        repository.insert(order);
+        toLegacy(order.id());
+        assertEquals(Optional.empty(), repository.findById(order.id()));
+
+        sut.migrate();
+
+        assertEquals(Optional.of(order), repository.findById(order.id()));
+        assertEquals(1, repository.count());
+    }
+
+    @Test
+    public void givenAnInterruptedMigrationThenShouldPutBackTheStagedOrder() {
+        final Order order = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.PENDING, Map.of(Pizza.MARGHERITA, 2));
+        repository.insert(order);
+        final BsonDocument document = orders().find(Filters.eq("_id", standard(order.id()))).first();
+        orders().deleteOne(Filters.eq("_id", standard(order.id())));
+        mongoTemplate.getCollection(STAGING).withDocumentClass(BsonDocument.class).insertOne(document);
+
+        sut.migrate();
+
+        assertEquals(Optional.of(order), repository.findById(order.id()));
+        assertEquals(0, mongoTemplate.getCollection(STAGING).countDocuments());
+    }
+
+    @Test
+    public void givenOnlyStandardOrdersThenShouldLeaveThemAlone() {
+        final Order order = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.CAPRICCIOSA, 1));
+        repository.insert(order);
+
+        sut.migrate();
+
+        assertEquals(Optional.of(order), repository.findById(order.id()));
+        assertEquals(0, mongoTemplate.getCollection(STAGING).countDocuments());
+    }
+
+    private void toLegacy(final UUID id) {
+        final BsonDocument document = orders().find(Filters.eq("_id", standard(id))).first();
+        orders().deleteOne(Filters.eq("_id", standard(id)));
+        document.put("_id", new BsonBinary(id, UuidRepresentation.JAVA_LEGACY));
+        orders().insertOne(document);
+    }
+
+    private MongoCollection<BsonDocument> orders() {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Order.class)).withDocumentClass(BsonDocument.class);
+    }
+
+    private static BsonBinary standard(final UUID id) {
+        return new BsonBinary(id, UuidRepresentation.STANDARD);
+    }
+}
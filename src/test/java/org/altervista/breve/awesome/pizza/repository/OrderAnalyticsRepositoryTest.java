@@ -0,0 +1,81 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.response.PizzaKitchenStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the kitchen stats aggregation against a real MongoDB.
+ */
+@Tag("mongo")
+@SpringBootTest
+@TestPropertySource(properties = "spring.data.mongodb.uri = mongodb://localhost:27017/awesome-pizza-mongo-test")
+class OrderAnalyticsRepositoryTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+
+    @Autowired
+    private OrderRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        repository.deleteAll();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    public void givenDeliveredOrdersThenShouldComputeTheStatsPerPizzaInTheWindow() {
+        repository.insert(List.of(
+                delivered(Map.of(Pizza.DIAVOLA, 2), 0, 1, 3),
+                delivered(Map.of(Pizza.DIAVOLA, 1, Pizza.MARGHERITA, 1), 10, 13, 19),
+                delivered(Map.of(Pizza.MARGHERITA, 1), 100, 101, 102),
+                new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.CAPRICCIOSA, 1))
+        ));
+
+        final List<PizzaKitchenStats> actual = repository.kitchenStats(SOMEWHERE_IN_TIME, SOMEWHERE_IN_TIME.plusMinutes(60));
+
+        assertEquals(2, actual.size());
+
+        final PizzaKitchenStats diavola = actual.get(0);
+        assertEquals(Pizza.DIAVOLA, diavola.pizza());
+        assertEquals(2, diavola.orders());
+        assertEquals(3, diavola.pizzas());
+        assertEquals(2d, diavola.ordersPerHour(), 0.001);
+        assertEquals(120_000d, diavola.avgWaitMs(), 0.001);
+        assertEquals(240_000d, diavola.avgPrepMs(), 0.001);
+
+        final PizzaKitchenStats margherita = actual.get(1);
+        assertEquals(Pizza.MARGHERITA, margherita.pizza());
+        assertEquals(1, margherita.orders());
+        assertEquals(180_000d, margherita.p50WaitMs(), 0.001);
+        assertEquals(360_000d, margherita.p99PrepMs(), 0.001);
+    }
+
+    private Order delivered(final Map<Pizza, Integer> pizzas, final int submittedAt, final int startedAt, final int deliveredAt) {
+        return new Order(UUID.randomUUID(),
+                SOMEWHERE_IN_TIME.plusMinutes(submittedAt),
+                OrderStatus.DELIVERED,
+                pizzas,
+                SOMEWHERE_IN_TIME.plusMinutes(startedAt),
+                SOMEWHERE_IN_TIME.plusMinutes(deliveredAt));
+    }
+}
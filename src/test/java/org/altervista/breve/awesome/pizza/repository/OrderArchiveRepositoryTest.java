@@ -0,0 +1,88 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.response.PizzaKitchenStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Moves the delivered orders to the archive collection of a real MongoDB.
+ */
+@Tag("mongo")
+@SpringBootTest
+@TestPropertySource(properties = "spring.data.mongodb.uri = mongodb://localhost:27017/awesome-pizza-mongo-test")
+class OrderArchiveRepositoryTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+
+    @Autowired
+    private OrderRepository repository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        repository.deleteAll();
+        mongoTemplate.remove(new Query(), OrderRepository.ARCHIVE_COLLECTION);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        setUp();
+    }
+
+    @Test
+    public void givenExpiredDeliveredOrdersThenShouldMoveThemOldestFirst() {
+        final Order oldest = delivered(0);
+        final Order older = delivered(1);
+        final Order recent = delivered(60);
+        final Order ready = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 1), null, null, 0L);
+        repository.insert(List.of(recent, older, oldest, ready));
+
+        assertEquals(1, repository.archiveDelivered(SOMEWHERE_IN_TIME.plusMinutes(30), 1));
+        assertEquals(Optional.empty(), repository.findById(oldest.id()));
+        assertEquals(Optional.of(oldest), repository.findArchivedById(oldest.id()));
+
+        assertEquals(1, repository.archiveDelivered(SOMEWHERE_IN_TIME.plusMinutes(30), 10));
+        assertEquals(0, repository.archiveDelivered(SOMEWHERE_IN_TIME.plusMinutes(30), 10));
+
+        assertEquals(Optional.of(older), repository.findArchivedById(older.id()));
+        assertEquals(Optional.of(recent), repository.findById(recent.id()));
+        assertEquals(Optional.of(ready), repository.findById(ready.id()));
+        assertEquals(Optional.empty(), repository.findArchivedById(recent.id()));
+    }
+
+    @Test
+    public void givenArchivedOrdersThenShouldStillCountThemInTheKitchenStats() {
+        repository.insert(List.of(delivered(0), delivered(60)));
+        repository.archiveDelivered(SOMEWHERE_IN_TIME.plusMinutes(30), 10);
+
+        final List<PizzaKitchenStats> actual = repository.kitchenStats(SOMEWHERE_IN_TIME, SOMEWHERE_IN_TIME.plusHours(2));
+
+        assertEquals(1, actual.size());
+        assertEquals(2, actual.getFirst().orders());
+    }
+
+    private Order delivered(final int deliveredAfterMinutes) {
+        return new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.DELIVERED, Map.of(Pizza.MARGHERITA, 1),
+                SOMEWHERE_IN_TIME, SOMEWHERE_IN_TIME.plusMinutes(deliveredAfterMinutes), 2L);
+    }
+}
@@ -0,0 +1,91 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.altervista.breve.awesome.pizza.model.request.OrderEntry;
+import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+import org.altervista.breve.awesome.pizza.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the MongoDB driver path on virtual threads while JFR records every pinned carrier thread.
+ * Any pinning in the driver or in Spring Data would serialize the requests on the few carrier threads.
+ */
+@Tag("mongo")
+@SpringBootTest
+@TestPropertySource(properties = """
+        spring.threads.virtual.enabled = true
+        spring.data.mongodb.uri = mongodb://localhost:27017/awesome-pizza-mongo-test
+        """)
+class OrderRepositoryVirtualThreadTest {
+
+    private final static String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private final static int TASKS = 1_000;
+
+    @Autowired
+    private OrderService service;
+
+    @Autowired
+    private OrderRepository repository;
+
+    @AfterEach
+    public void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    public void givenVirtualThreadsWhenCallingMongoThenNoCarrierThreadShouldBePinned() throws Exception {
+        final List<RecordedEvent> pinned = new CopyOnWriteArrayList<>();
+        try (RecordingStream recording = new RecordingStream()) {
+            recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+            recording.onEvent(PINNED_EVENT, pinned::add);
+            recording.startAsync();
+
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                final List<Future<?>> tasks = new ArrayList<>(TASKS);
+                for (int i = 0; i < TASKS; i++) {
+                    tasks.add(executor.submit(() -> {
+                        final UUID orderCode = service.submit(new SubmitOrderRequest(Collections.singletonList(new OrderEntry("margherita", 1))));
+                        assertTrue(service.getOrder(orderCode.toString()).isPresent());
+                    }));
+                }
+                for (final Future<?> task : tasks) {
+                    task.get();
+                }
+            }
+
+            recording.stop();
+        }
+
+        assertEquals(Collections.emptyList(), pinned.stream()
+                .filter(OrderRepositoryVirtualThreadTest::isDataAccess)
+                .map(event -> event.getStackTrace().toString())
+                .toList());
+    }
+
+    private static boolean isDataAccess(final RecordedEvent event) {
+        return event.getStackTrace() != null && event.getStackTrace().getFrames().stream()
+                .map(RecordedFrame::getMethod)
+                .map(method -> method.getType().getName())
+                .anyMatch(type -> type.startsWith("com.mongodb") || type.startsWith("org.bson") || type.startsWith("org.springframework.data"));
+    }
+}
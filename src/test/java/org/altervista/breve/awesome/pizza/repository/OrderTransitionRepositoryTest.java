@@ -0,0 +1,124 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+/**
+ * Many writers racing on the same order version against a real MongoDB: exactly one of them wins.
+ */
+@Tag("mongo")
+@SpringBootTest
+@TestPropertySource(properties = "spring.data.mongodb.uri = mongodb://localhost:27017/awesome-pizza-mongo-test")
+class OrderTransitionRepositoryTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+    private final static int WRITERS = 32;
+
+    @Autowired
+    private OrderRepository repository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        repository.deleteAll();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repository.deleteAll();
+    }
+
+    @Test
+    public void givenANewOrderThenShouldStartFromVersionZero() {
+        final Order saved = repository.save(new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 1)));
+
+        assertEquals(0L, saved.version());
+        assertEquals(Optional.of(saved), repository.findById(saved.id()));
+    }
+
+    @Test
+    public void givenTheOldActiveOrderIndexWhenMigratingThenShouldDropIt() {
+        mongoTemplate.indexOps(Order.class).ensureIndex(new Index("status", Sort.Direction.ASC)
+                .named(ActiveOrderIndexMigration.ACTIVE_ORDER_INDEX)
+                .unique()
+                .partial(PartialIndexFilter.of(where("status").is(OrderStatus.IN_PROGRESS))));
+
+        new ActiveOrderIndexMigration(mongoTemplate).migrate();
+
+        final List<String> indexes = mongoTemplate.indexOps(Order.class).getIndexInfo().stream().map(IndexInfo::getName).toList();
+        assertFalse(indexes.contains(ActiveOrderIndexMigration.ACTIVE_ORDER_INDEX));
+        assertTrue(indexes.contains("active_station"));
+    }
+
+    @Test
+    public void givenAStaleVersionThenShouldNotWrite() {
+        final Order saved = repository.save(new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 1)));
+        final Order updated = repository.transition(saved.id(), saved.version(), OrderStatus.READY, OrderStatus.IN_PROGRESS, SOMEWHERE_IN_TIME).orElseThrow();
+
+        assertEquals(1L, updated.version());
+        assertEquals(Optional.empty(), repository.transition(saved.id(), saved.version(), OrderStatus.IN_PROGRESS, OrderStatus.DELIVERED, SOMEWHERE_IN_TIME));
+        assertEquals(Optional.of(updated), repository.findById(saved.id()));
+    }
+
+    @Test
+    public void givenManyWritersOnTheSameVersionThenOnlyOneShouldWin() throws Exception {
+        final Order saved = repository.save(new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 1)));
+        final ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<Optional<Order>>> attempts = new ArrayList<>(WRITERS);
+            for (int writer = 0; writer < WRITERS; writer++) {
+                final LocalDateTime at = SOMEWHERE_IN_TIME.plusSeconds(writer);
+                attempts.add(executor.submit(() -> {
+                    start.await();
+                    return repository.transition(saved.id(), saved.version(), OrderStatus.READY, OrderStatus.IN_PROGRESS, at);
+                }));
+            }
+            start.countDown();
+
+            final List<Order> winners = new ArrayList<>();
+            for (final Future<Optional<Order>> attempt : attempts) {
+                attempt.get().ifPresent(winners::add);
+            }
+
+            assertEquals(1, winners.size());
+            final Order current = repository.findById(saved.id()).orElseThrow();
+            assertEquals(winners.getFirst(), current);
+            assertEquals(1L, current.version());
+            assertTrue(current.startedAt() != null);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.altervista.breve.awesome.pizza.repository;
+
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderOutboxEvent;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The orders and their events written together against a real MongoDB, which must run as a replica set.
+ */
+@Tag("mongo")
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.data.mongodb.uri = mongodb://localhost:27017/awesome-pizza-mongo-test",
+        "awesome.pizza.outbox.enabled = true",
+        "awesome.pizza.outbox.relay.enabled = false"
+})
+class OutboxOrderStoreTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+    private final static int WRITERS = 8;
+
+    @Autowired
+    private OrderStore store;
+
+    @Autowired
+    private OrderRepository repository;
+
+    @Autowired
+    private OrderOutboxRepository outbox;
+
+    @BeforeEach
+    public void setUp() {
+        repository.deleteAll();
+        outbox.deleteAll();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repository.deleteAll();
+        outbox.deleteAll();
+    }
+
+    @Test
+    public void givenTheOutboxThenShouldBeTheStoreOfTheServices() {
+        assertInstanceOf(OutboxOrderStore.class, store);
+    }
+
+    @Test
+    public void givenANewOrderThenShouldWriteItsEvent() {
+        final Order saved = store.save(order(UUID.randomUUID()));
+
+        assertEquals(List.of(saved), events());
+    }
+
+    @Test
+    public void givenTransitionsThenShouldWriteAnEventPerVersion() {
+        final Order saved = store.save(order(UUID.randomUUID()));
+        final Order picked = store.claim(saved.id(), saved.version(), 1, SOMEWHERE_IN_TIME).orElseThrow();
+        final Order delivered = store.transition(saved.id(), picked.version(), OrderStatus.IN_PROGRESS, OrderStatus.DELIVERED, SOMEWHERE_IN_TIME).orElseThrow();
+
+        assertEquals(List.of(saved, picked, delivered), events());
+    }
+
+    @Test
+    public void givenAStaleVersionThenShouldWriteNoEvent() {
+        final Order saved = store.save(order(UUID.randomUUID()));
+        store.transition(saved.id(), saved.version(), OrderStatus.READY, OrderStatus.IN_PROGRESS, SOMEWHERE_IN_TIME).orElseThrow();
+
+        assertEquals(Optional.empty(), store.transition(saved.id(), saved.version(), OrderStatus.READY, OrderStatus.IN_PROGRESS, SOMEWHERE_IN_TIME));
+        assertEquals(2, outbox.count());
+    }
+
+    @Test
+    public void givenABusyStationThenShouldWriteNeitherTheOrderNorItsEvent() {
+        final Order first = store.save(order(UUID.randomUUID()));
+        final Order second = store.save(order(UUID.randomUUID()));
+        store.claim(first.id(), first.version(), 1, SOMEWHERE_IN_TIME).orElseThrow();
+
+        assertThrows(DuplicateKeyException.class, () -> store.claim(second.id(), second.version(), 1, SOMEWHERE_IN_TIME));
+
+        assertEquals(Optional.of(second), repository.findById(second.id()));
+        assertEquals(3, outbox.count());
+    }
+
+    @Test
+    public void givenABatchWithAnExistingOrderThenShouldInsertTheOthersWithTheirEvents() {
+        final Order existing = store.save(order(UUID.randomUUID()));
+        final Order fresh1 = order(UUID.randomUUID());
+        final Order fresh2 = order(UUID.randomUUID());
+
+        assertEquals(Set.of(1), store.insertUnordered(List.of(fresh1, order(existing.id()), fresh2)));
+
+        assertEquals(3, repository.count());
+        assertEquals(List.of(existing.id(), fresh1.id(), fresh2.id()), events().stream().map(Order::id).toList());
+    }
+
+    @Test
+    public void givenManyWritersOnTheSameVersionThenOnlyTheWinnerShouldWriteAnEvent() throws Exception {
+        final Order saved = store.save(order(UUID.randomUUID()));
+        final ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<Optional<Order>>> attempts = new ArrayList<>(WRITERS);
+            for (int writer = 0; writer < WRITERS; writer++) {
+                attempts.add(executor.submit(() -> {
+                    start.await();
+                    return store.transition(saved.id(), saved.version(), OrderStatus.READY, OrderStatus.IN_PROGRESS, SOMEWHERE_IN_TIME);
+                }));
+            }
+            start.countDown();
+
+            int winners = 0;
+            for (final Future<Optional<Order>> attempt : attempts) {
+                try {
+                    winners += attempt.get().isPresent() ? 1 : 0;
+                } catch (final Exception e) {
+                    // a writer may run out of transaction attempts, it didn't write anything anyway
+                }
+            }
+            assertEquals(1, winners);
+            assertEquals(2, outbox.count());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<Order> events() {
+        return outbox.findAllByOrderByOccurredAtAscIdAsc(Limit.of(100)).stream().map(OrderOutboxEvent::order).toList();
+    }
+
+    private static Order order(final UUID id) {
+        return new Order(id, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 1));
+    }
+}
@@ -0,0 +1,29 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import org.altervista.breve.awesome.pizza.repository.EmbeddedOrderStore;
+import org.altervista.breve.awesome.pizza.repository.OrderStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+class EmbeddedOrderServiceContractTest extends OrderServiceContractTest {
+
+    @TempDir
+    private Path directory;
+
+    private EmbeddedOrderStore store;
+
+    @Override
+    protected OrderStore store() {
+        store = new EmbeddedOrderStore(directory, DataSize.ofKilobytes(64), false);
+        return store;
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        store.close();
+    }
+}
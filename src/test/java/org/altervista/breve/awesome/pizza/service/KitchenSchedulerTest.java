@@ -0,0 +1,184 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import org.altervista.breve.awesome.pizza.exception.InvalidStationException;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KitchenSchedulerTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+
+    private final Order bigOrder = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 5, Pizza.DIAVOLA, 2));
+    private final Order smallOrder = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME.plusMinutes(1), OrderStatus.READY, Map.of(Pizza.DIAVOLA, 1));
+    private final Order anotherSmallOrder = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME.plusMinutes(2), OrderStatus.READY, Map.of(Pizza.CAPRICCIOSA, 1));
+
+    @Test
+    public void givenSomeBusyStationsThenShouldReturnTheLowestFreeOne() {
+        final KitchenScheduler sut = new KitchenScheduler(4, KitchenScheduler.Policy.FIFO);
+
+        assertEquals(OptionalInt.of(0), sut.freeStation(Set.of()));
+        assertEquals(OptionalInt.of(1), sut.freeStation(Set.of(0, 3)));
+    }
+
+    @Test
+    public void givenAllTheStationsBusyThenShouldReturnNoFreeStation() {
+        final KitchenScheduler sut = new KitchenScheduler(2, KitchenScheduler.Policy.FIFO);
+
+        assertEquals(OptionalInt.empty(), sut.freeStation(Set.of(0, 1)));
+    }
+
+    @Test
+    public void givenAStationOutOfTheKitchenThenShouldThrowInvalidStationException() {
+        final KitchenScheduler sut = new KitchenScheduler(2, KitchenScheduler.Policy.FIFO);
+
+        assertDoesNotThrow(() -> sut.checkStation(1));
+        assertThrows(InvalidStationException.class, () -> sut.checkStation(2));
+        assertThrows(InvalidStationException.class, () -> sut.checkStation(-1));
+    }
+
+    @Test
+    public void givenTheFifoPolicyThenShouldFollowTheQueue() {
+        final KitchenScheduler sut = new KitchenScheduler(1, KitchenScheduler.Policy.FIFO);
+
+        assertEquals(List.of(bigOrder, smallOrder), sut.candidates(Stream.of(bigOrder, smallOrder, anotherSmallOrder), 2));
+    }
+
+    @Test
+    public void givenTheFewestPizzasPolicyThenShouldPickTheSmallestOrdersFirstOldestAmongEquals() {
+        final KitchenScheduler sut = new KitchenScheduler(1, KitchenScheduler.Policy.FEWEST_PIZZAS);
+
+        assertEquals(List.of(smallOrder, anotherSmallOrder), sut.candidates(Stream.of(bigOrder, anotherSmallOrder, smallOrder), 2));
+    }
+
+    /**
+     * Eight hours of a busy evening, the same for every run: an order every three minutes on average, one to six
+     * pizzas each, two minutes per pizza plus two to get the order going. That's about three stations worth of work.
+     */
+    @ParameterizedTest
+    @EnumSource(KitchenScheduler.Policy.class)
+    public void givenMoreStationsThenTheKitchenShouldDeliverMoreOrdersPerHour(final KitchenScheduler.Policy policy) {
+        final List<Order> evening = evening(new Random(42), Duration.ofHours(8), Duration.ofMinutes(3));
+
+        final double oneStation = simulate(new KitchenScheduler(1, policy), evening, Duration.ofHours(8)).perHour();
+        final double twoStations = simulate(new KitchenScheduler(2, policy), evening, Duration.ofHours(8)).perHour();
+        final double fourStations = simulate(new KitchenScheduler(4, policy), evening, Duration.ofHours(8)).perHour();
+        final double eightStations = simulate(new KitchenScheduler(8, policy), evening, Duration.ofHours(8)).perHour();
+
+        assertTrue(oneStation < twoStations);
+        assertTrue(twoStations < fourStations);
+        assertTrue(eightStations <= evening.size() / 8d);
+    }
+
+    /**
+     * The same evening with fewer stations than it needs: the small orders stop queueing behind the big ones.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2})
+    public void givenABusyKitchenThenTheFewestPizzasPolicyShouldLowerTheAverageWait(final int stations) {
+        final List<Order> evening = evening(new Random(42), Duration.ofHours(8), Duration.ofMinutes(3));
+
+        final Evening fifo = simulate(new KitchenScheduler(stations, KitchenScheduler.Policy.FIFO), evening, Duration.ofHours(8));
+        final Evening fewestPizzas = simulate(new KitchenScheduler(stations, KitchenScheduler.Policy.FEWEST_PIZZAS), evening, Duration.ofHours(8));
+
+        assertTrue(fewestPizzas.averageWaitMinutes() < fifo.averageWaitMinutes());
+        assertTrue(fewestPizzas.perHour() >= fifo.perHour());
+    }
+
+    private static List<Order> evening(final Random random, final Duration length, final Duration meanGap) {
+        final List<Order> orders = new ArrayList<>();
+        final Pizza[] pizzas = Pizza.values();
+        long at = 0;
+        while (true) {
+            at += Math.round(-Math.log(1 - random.nextDouble()) * meanGap.toSeconds());
+            if (at >= length.toSeconds()) {
+                return orders;
+            }
+            final Pizza pizza = pizzas[random.nextInt(pizzas.length)];
+            final int qty = 1 + random.nextInt(6);
+            orders.add(new Order(new UUID(at, orders.size()), SOMEWHERE_IN_TIME.plusSeconds(at), OrderStatus.READY, Map.of(pizza, qty)));
+        }
+    }
+
+    private static long prepSeconds(final Order order) {
+        return 120L + 120L * order.size();
+    }
+
+    /**
+     * Replays the orders against the scheduler, every free station picking its next order as soon as one is READY,
+     * and returns the orders delivered per hour within the given time and how long they waited to be picked.
+     */
+    private static Evening simulate(final KitchenScheduler scheduler, final List<Order> orders, final Duration length) {
+        final long[] freeAt = new long[scheduler.stations()];
+        final List<Order> ready = new ArrayList<>();
+        int next = 0;
+        int delivered = 0;
+        long waited = 0;
+        long now = 0;
+        while (true) {
+            while (next < orders.size() && arrival(orders.get(next)) <= now) {
+                ready.add(orders.get(next++));
+            }
+
+            final Set<Integer> busy = new HashSet<>();
+            for (int station = 0; station < freeAt.length; station++) {
+                if (freeAt[station] > now) {
+                    busy.add(station);
+                }
+            }
+            OptionalInt station = scheduler.freeStation(busy);
+            while (station.isPresent() && !ready.isEmpty()) {
+                final Order order = scheduler.candidates(ready.stream(), 1).getFirst();
+                ready.remove(order);
+                freeAt[station.getAsInt()] = now + prepSeconds(order);
+                if (freeAt[station.getAsInt()] <= length.toSeconds()) {
+                    delivered++;
+                    waited += now - arrival(order);
+                }
+                busy.add(station.getAsInt());
+                station = scheduler.freeStation(busy);
+            }
+
+            long then = next < orders.size() ? arrival(orders.get(next)) : Long.MAX_VALUE;
+            for (final long at : freeAt) {
+                if (at > now) {
+                    then = Math.min(then, at);
+                }
+            }
+            if (then == Long.MAX_VALUE || then > length.toSeconds()) {
+                break;
+            }
+            now = then;
+        }
+
+        return new Evening(delivered / (double) length.toHours(), delivered == 0 ? 0d : waited / 60d / delivered);
+    }
+
+    private static long arrival(final Order order) {
+        return Duration.between(SOMEWHERE_IN_TIME, order.submittedAt()).toSeconds();
+    }
+
+    private record Evening(double perHour, double averageWaitMinutes) {
+    }
+}
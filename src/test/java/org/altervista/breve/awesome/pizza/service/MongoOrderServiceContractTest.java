@@ -0,0 +1,29 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import org.altervista.breve.awesome.pizza.repository.OrderRepository;
+import org.altervista.breve.awesome.pizza.repository.OrderStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+@Tag("mongo")
+@SpringBootTest
+@TestPropertySource(properties = "spring.data.mongodb.uri = mongodb://localhost:27017/awesome-pizza-mongo-test")
+class MongoOrderServiceContractTest extends OrderServiceContractTest {
+
+    @Autowired
+    private OrderRepository repository;
+
+    @Override
+    protected OrderStore store() {
+        repository.deleteAll();
+        return repository;
+    }
+
+    @AfterEach
+    public void tearDown() {
+        repository.deleteAll();
+    }
+}
@@ -0,0 +1,62 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.altervista.breve.awesome.pizza.repository.OrderRepository;
+import org.altervista.breve.awesome.pizza.utils.DateTimeUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderArchiverTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+    private final static LocalDateTime A_WEEK_BEFORE = SOMEWHERE_IN_TIME.minusDays(7);
+
+    @Mock
+    private OrderRepository repository;
+
+    @Mock
+    private DateTimeUtils dateTimeUtils;
+
+    private MeterRegistry registry;
+
+    private OrderArchiver sut;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        sut = new OrderArchiver(repository, dateTimeUtils, registry, Duration.ofDays(7), 2, Duration.ofMillis(1));
+        when(dateTimeUtils.now()).thenReturn(SOMEWHERE_IN_TIME);
+    }
+
+    @Test
+    public void givenManyExpiredOrdersThenShouldArchiveThemBatchByBatch() {
+        when(repository.archiveDelivered(A_WEEK_BEFORE, 2)).thenReturn(2, 2, 1);
+
+        assertEquals(5, sut.archive());
+
+        verify(repository, times(3)).archiveDelivered(A_WEEK_BEFORE, 2);
+        assertEquals(5d, registry.get("awesome.pizza.archive.orders").counter().count());
+    }
+
+    @Test
+    public void givenNoExpiredOrdersThenShouldStopAfterTheFirstBatch() {
+        when(repository.archiveDelivered(A_WEEK_BEFORE, 2)).thenReturn(0);
+
+        assertEquals(0, sut.archive());
+
+        verify(repository).archiveDelivered(A_WEEK_BEFORE, 2);
+    }
+}
@@ -0,0 +1,115 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OrderCacheTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+
+    private final Order readyOrder = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
+    private final Order inProgressOrder = new Order(readyOrder.id(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7));
+    private final Order deliveredOrder = new Order(readyOrder.id(), SOMEWHERE_IN_TIME, OrderStatus.DELIVERED, Map.of(Pizza.MARGHERITA, 7));
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private MeterRegistry registry;
+
+    private OrderCache sut;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        sut = new OrderCache(registry, 100, Duration.ofSeconds(10), Duration.ofHours(1), nanos::get);
+    }
+
+    @Test
+    public void givenAnOrderChangedEventThenShouldCacheTheOrder() {
+        sut.onOrderChanged(new OrderChangedEvent(readyOrder));
+        sut.onOrderChanged(new OrderChangedEvent(inProgressOrder));
+
+        assertEquals(Optional.of(inProgressOrder), sut.get(readyOrder.id()));
+    }
+
+    @Test
+    public void givenAnOlderStatusThenShouldKeepTheCachedOrder() {
+        sut.put(inProgressOrder);
+        sut.put(readyOrder);
+
+        assertEquals(Optional.of(inProgressOrder), sut.get(readyOrder.id()));
+    }
+
+    @Test
+    public void givenAnOlderVersionThenShouldKeepTheCachedOrder() {
+        final Order claimed = new Order(readyOrder.id(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7), SOMEWHERE_IN_TIME, null, 1, 2L);
+        final Order stale = new Order(readyOrder.id(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7), SOMEWHERE_IN_TIME, null, 0, 1L);
+        sut.put(claimed);
+        sut.put(stale);
+
+        assertEquals(Optional.of(claimed), sut.get(readyOrder.id()));
+    }
+
+    @Test
+    public void givenANewerVersionWithTheSameStatusThenShouldReplaceTheCachedOrder() {
+        final Order stale = new Order(readyOrder.id(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7), SOMEWHERE_IN_TIME, null, 0, 1L);
+        final Order claimed = new Order(readyOrder.id(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7), SOMEWHERE_IN_TIME, null, 1, 2L);
+        sut.put(stale);
+        sut.put(claimed);
+
+        assertEquals(Optional.of(claimed), sut.get(readyOrder.id()));
+    }
+
+    @Test
+    public void givenAnInvalidatedOrderThenShouldMissIt() {
+        sut.put(readyOrder);
+        sut.invalidate(readyOrder.id());
+
+        assertEquals(Optional.empty(), sut.get(readyOrder.id()));
+    }
+
+    @Test
+    public void givenANotDeliveredOrderThenShouldExpireItAfterTheTtl() {
+        sut.put(inProgressOrder);
+        nanos.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        assertEquals(Optional.empty(), sut.get(inProgressOrder.id()));
+    }
+
+    @Test
+    public void givenADeliveredOrderThenShouldKeepItLonger() {
+        sut.put(inProgressOrder);
+        sut.put(deliveredOrder);
+        nanos.addAndGet(Duration.ofMinutes(59).toNanos());
+
+        assertEquals(Optional.of(deliveredOrder), sut.get(deliveredOrder.id()));
+
+        nanos.addAndGet(Duration.ofMinutes(2).toNanos());
+
+        assertEquals(Optional.empty(), sut.get(deliveredOrder.id()));
+    }
+
+    @Test
+    public void whenReadingThenShouldCountHitsAndMisses() {
+        sut.put(readyOrder);
+        sut.get(readyOrder.id());
+        sut.get(UUID.randomUUID());
+
+        assertEquals(1, registry.get("cache.gets").tag("cache", "orders").tag("result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("cache.gets").tag("cache", "orders").tag("result", "miss").functionCounter().count());
+    }
+}
@@ -0,0 +1,62 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OrderLifecycleMetricsTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+
+    private MeterRegistry registry;
+
+    private OrderLifecycleMetrics sut;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        sut = new OrderLifecycleMetrics(registry);
+    }
+
+    @Test
+    public void givenAPickedOrderThenShouldRecordItsWaitTime() {
+        final Order order = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.DIAVOLA, 1), SOMEWHERE_IN_TIME.plusMinutes(3), null);
+
+        sut.onTransition(order, SOMEWHERE_IN_TIME.plusMinutes(3));
+
+        assertEquals(1, registry.get("awesome.pizza.orders.wait").timer().count());
+        assertEquals(3, registry.get("awesome.pizza.orders.wait").timer().totalTime(TimeUnit.MINUTES));
+        assertEquals(0, registry.get("awesome.pizza.orders.prep").timer().count());
+    }
+
+    @Test
+    public void givenADeliveredOrderThenShouldRecordItsPrepTime() {
+        final Order order = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.DELIVERED, Map.of(Pizza.DIAVOLA, 1), SOMEWHERE_IN_TIME.plusMinutes(3), SOMEWHERE_IN_TIME.plusMinutes(10));
+
+        sut.onTransition(order, SOMEWHERE_IN_TIME.plusMinutes(10));
+
+        assertEquals(1, registry.get("awesome.pizza.orders.prep").timer().count());
+        assertEquals(7, registry.get("awesome.pizza.orders.prep").timer().totalTime(TimeUnit.MINUTES));
+        assertEquals(0, registry.get("awesome.pizza.orders.wait").timer().count());
+    }
+
+    @Test
+    public void givenADeliveredOrderPickedBeforeStartedAtWasWrittenThenShouldRecordNothing() {
+        final Order order = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.DELIVERED, Map.of(Pizza.DIAVOLA, 1));
+
+        sut.onTransition(order, SOMEWHERE_IN_TIME.plusMinutes(10));
+
+        assertEquals(0, registry.get("awesome.pizza.orders.prep").timer().count());
+    }
+}
@@ -0,0 +1,133 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.altervista.breve.awesome.pizza.event.OrderEventSink;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderOutboxEvent;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.repository.OrderOutboxRepository;
+import org.altervista.breve.awesome.pizza.utils.DateTimeUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderOutboxRelayTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+    private final static UUID ORDER_1 = UUID.randomUUID();
+    private final static UUID ORDER_2 = UUID.randomUUID();
+
+    @Mock
+    private OrderOutboxRepository outbox;
+
+    @Mock
+    private DateTimeUtils dateTimeUtils;
+
+    private final List<OrderOutboxEvent> published = new ArrayList<>();
+    private final OrderEventSink sink = published::addAll;
+
+    private MeterRegistry registry;
+
+    private OrderOutboxRelay sut;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        sut = new OrderOutboxRelay(outbox, sink, dateTimeUtils, registry, 2);
+    }
+
+    @Test
+    public void givenPendingEventsThenShouldPublishThemBatchByBatchAndRemoveThem() {
+        final OrderOutboxEvent event1 = event(ORDER_1, 0, 0);
+        final OrderOutboxEvent event2 = event(ORDER_2, 0, 1);
+        final OrderOutboxEvent event3 = event(ORDER_1, 1, 2);
+        when(outbox.findAllByOrderByOccurredAtAscIdAsc(Limit.of(2))).thenReturn(List.of(event1, event2), List.of(event3));
+        when(dateTimeUtils.now()).thenReturn(SOMEWHERE_IN_TIME.plusSeconds(5));
+
+        assertEquals(3, sut.relay());
+
+        assertEquals(List.of(event1, event2, event3), published);
+        verify(outbox).deleteAllById(List.of(event1.id(), event2.id()));
+        verify(outbox).deleteAllById(List.of(event3.id()));
+        assertEquals(3d, registry.get("awesome.pizza.outbox.published").counter().count());
+        assertEquals(3L, registry.get("awesome.pizza.outbox.delivery").timer().count());
+        assertEquals(0d, registry.get("awesome.pizza.outbox.lag").timeGauge().value(TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void givenNoPendingEventThenShouldPublishNothing() {
+        when(outbox.findAllByOrderByOccurredAtAscIdAsc(Limit.of(2))).thenReturn(Collections.emptyList());
+
+        assertEquals(0, sut.relay());
+
+        assertEquals(List.of(), published);
+        verify(outbox, never()).deleteAllById(any());
+    }
+
+    @Test
+    public void givenEventsOfAnOrderWrittenOutOfOrderThenShouldPublishThemByVersion() {
+        final OrderOutboxEvent picked = event(ORDER_1, 1, 0);
+        final OrderOutboxEvent other = event(ORDER_2, 0, 0);
+        final OrderOutboxEvent submitted = event(ORDER_1, 0, 1);
+
+        assertEquals(List.of(submitted, other, picked), OrderOutboxRelay.inVersionOrder(List.of(picked, other, submitted)));
+    }
+
+    @Test
+    public void givenAnOlderVersionWrittenLaterThenShouldPublishItFirst() {
+        final OrderOutboxEvent picked = event(ORDER_1, 1, 0);
+        final OrderOutboxEvent other = event(ORDER_2, 0, 1);
+        final OrderOutboxEvent submitted = event(ORDER_1, 0, 2);
+        when(outbox.findAllByOrderByOccurredAtAscIdAsc(Limit.of(2))).thenReturn(List.of(picked, other), Collections.emptyList());
+        when(outbox.findAllByOrderIdIn(Set.of(ORDER_1, ORDER_2))).thenReturn(List.of(picked, other, submitted));
+        when(dateTimeUtils.now()).thenReturn(SOMEWHERE_IN_TIME.plusSeconds(5));
+
+        assertEquals(3, sut.relay());
+
+        assertEquals(List.of(submitted, other, picked), published);
+        verify(outbox).deleteAllById(List.of(submitted.id(), other.id(), picked.id()));
+    }
+
+    @Test
+    public void givenAFailingSinkThenShouldKeepTheEventsAndReportTheLag() {
+        final OrderEventSink failing = events -> {
+            throw new IllegalStateException("The broker is down");
+        };
+        registry = new SimpleMeterRegistry();
+        sut = new OrderOutboxRelay(outbox, failing, dateTimeUtils, registry, 2);
+        when(outbox.findAllByOrderByOccurredAtAscIdAsc(Limit.of(2))).thenReturn(List.of(event(ORDER_1, 0, 0)));
+        when(dateTimeUtils.now()).thenReturn(SOMEWHERE_IN_TIME.plusSeconds(30));
+
+        sut.scheduledRelay();
+
+        verify(outbox, never()).deleteAllById(any());
+        assertEquals(1d, registry.get("awesome.pizza.outbox.failures").counter().count());
+        assertEquals(30d, registry.get("awesome.pizza.outbox.lag").timeGauge().value(TimeUnit.SECONDS));
+    }
+
+    private static OrderOutboxEvent event(final UUID orderId, final long version, final int second) {
+        final Order order = new Order(orderId, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 1), null, null, version);
+        return new OrderOutboxEvent(UUID.randomUUID(), SOMEWHERE_IN_TIME.plusSeconds(second), order);
+    }
+}
@@ -0,0 +1,189 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
+import org.altervista.breve.awesome.pizza.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderQueueProjectionTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+    private final static Set<OrderStatus> NOT_COMPLETED = EnumSet.of(OrderStatus.IN_PROGRESS, OrderStatus.READY);
+
+    private final Order readyOrder1 = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
+    private final Order readyOrder2 = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME.plusMinutes(1), OrderStatus.READY, Map.of(Pizza.CAPRICCIOSA, 7));
+    private final Order readyOrder3 = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME.plusMinutes(2), OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+
+    @Mock
+    private OrderRepository repository;
+
+    private MeterRegistry registry;
+
+    private OrderQueueProjection sut;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SimpleMeterRegistry();
+        sut = new OrderQueueProjection(repository, registry);
+    }
+
+    @Test
+    public void whenLoadedThenShouldServeTheQueueInStatusAndSubmissionOrder() {
+        when(repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED)).thenReturn(List.of(readyOrder1, readyOrder2));
+        sut.load();
+
+        final Order picked = inProgress(readyOrder2);
+        sut.onOrderChanged(new OrderChangedEvent(picked));
+        sut.onOrderChanged(new OrderChangedEvent(readyOrder3));
+
+        assertEquals(Optional.of(List.of(picked, readyOrder1, readyOrder3)), sut.snapshot());
+        assertEquals(Optional.of(true), sut.hasInProgress());
+        assertEquals(Optional.of(Set.of(0)), sut.busyStations());
+        assertEquals(1, sut.count(OrderStatus.IN_PROGRESS));
+        assertEquals(2, sut.count(OrderStatus.READY));
+    }
+
+    @Test
+    public void givenACursorThenShouldServeThePageAfterIt() {
+        when(repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED)).thenReturn(List.of(readyOrder1, readyOrder2, readyOrder3));
+        sut.load();
+
+        assertEquals(Optional.of(List.of(readyOrder1, readyOrder2)), sut.page(null, 2));
+        assertEquals(Optional.of(List.of(readyOrder3)), sut.page(QueueCursor.of(readyOrder2), 2));
+    }
+
+    @Test
+    public void givenOrdersSubmittedTogetherThenShouldSortTheirIdsLikeMongoDb() {
+        final Order low = new Order(UUID.fromString("7fffffff-ffff-7fff-bfff-ffffffffffff"), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 1));
+        final Order high = new Order(UUID.fromString("80000000-0000-7000-8000-000000000000"), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 1));
+        when(repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED)).thenReturn(List.of(low, high));
+        sut.load();
+
+        assertEquals(Optional.of(List.of(low, high)), sut.snapshot());
+        assertEquals(Optional.of(List.of(high)), sut.page(QueueCursor.of(low), 2));
+    }
+
+    @Test
+    public void whenAnOrderIsDeliveredThenShouldLeaveTheQueueAndIgnoreOlderChanges() {
+        when(repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED)).thenReturn(List.of(readyOrder1));
+        sut.load();
+
+        sut.apply(inProgress(readyOrder1));
+        sut.apply(delivered(readyOrder1));
+        sut.apply(readyOrder1);
+        sut.apply(inProgress(readyOrder1));
+
+        assertEquals(Optional.of(Collections.emptyList()), sut.snapshot());
+        assertEquals(Optional.of(false), sut.hasInProgress());
+        assertEquals(Optional.of(Set.of()), sut.busyStations());
+    }
+
+    @Test
+    public void whenResyncingThenShouldDropTheOrdersNoLongerInTheQueue() {
+        when(repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED))
+                .thenReturn(List.of(readyOrder1, readyOrder2))
+                .thenReturn(List.of(inProgress(readyOrder2), readyOrder3));
+        sut.load();
+
+        sut.resync();
+
+        assertEquals(Optional.of(List.of(inProgress(readyOrder2), readyOrder3)), sut.snapshot());
+        assertEquals(0, sut.count(OrderStatus.DELIVERED));
+        assertEquals(1, sut.count(OrderStatus.READY));
+    }
+
+    @Test
+    public void whenInvalidatedThenShouldMissUntilTheNextResync() {
+        when(repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED)).thenReturn(List.of(readyOrder1));
+        sut.load();
+
+        sut.invalidate();
+
+        assertEquals(Optional.empty(), sut.snapshot());
+        assertEquals(Optional.empty(), sut.hasInProgress());
+
+        sut.resync();
+
+        assertEquals(Optional.of(List.of(readyOrder1)), sut.snapshot());
+        assertEquals(1d, registry.get("awesome.pizza.queue.projection.reads").tag("result", "hit").counter().count());
+        assertEquals(2d, registry.get("awesome.pizza.queue.projection.reads").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    public void givenAnUnreachableDatabaseAtStartupThenShouldMissUntilTheNextResync() {
+        when(repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED))
+                .thenThrow(new DataAccessResourceFailureException("MongoDB is down"))
+                .thenReturn(List.of(readyOrder1));
+
+        sut.load();
+
+        assertEquals(Optional.empty(), sut.snapshot());
+        assertEquals(Optional.empty(), sut.version());
+
+        sut.scheduledResync();
+
+        assertEquals(Optional.of(List.of(readyOrder1)), sut.snapshot());
+    }
+
+    @Test
+    public void whenTheQueueChangesThenShouldBumpItsVersion() {
+        when(repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED)).thenReturn(List.of(readyOrder1));
+        sut.load();
+        final Optional<String> loaded = sut.version();
+
+        sut.resync();
+        sut.onOrderChanged(new OrderChangedEvent(readyOrder1));
+
+        assertEquals(loaded, sut.version());
+
+        sut.onOrderChanged(new OrderChangedEvent(inProgress(readyOrder1)));
+
+        assertNotEquals(loaded, sut.version());
+
+        sut.invalidate();
+
+        assertEquals(Optional.empty(), sut.version());
+    }
+
+    @Test
+    public void givenAnotherProjectionThenShouldNeverShareItsVersion() {
+        final OrderQueueProjection another = new OrderQueueProjection(repository, new SimpleMeterRegistry());
+        when(repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED)).thenReturn(List.of(readyOrder1));
+        sut.load();
+        another.load();
+
+        assertNotEquals(sut.version(), another.version());
+    }
+
+    private Order inProgress(final Order order) {
+        return new Order(order.id(), order.submittedAt(), OrderStatus.IN_PROGRESS, order.pizzas());
+    }
+
+    private Order delivered(final Order order) {
+        return new Order(order.id(), order.submittedAt(), OrderStatus.DELIVERED, order.pizzas());
+    }
+}
@@ -0,0 +1,121 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
+import org.altervista.breve.awesome.pizza.exception.InvalidStatusUpdateException;
+import org.altervista.breve.awesome.pizza.exception.StationBusyException;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.request.OrderEntry;
+import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+import org.altervista.breve.awesome.pizza.model.response.SubmitOrderBatchResult;
+import org.altervista.breve.awesome.pizza.repository.OrderStore;
+import org.altervista.breve.awesome.pizza.utils.DateTimeUtils;
+import org.altervista.breve.awesome.pizza.utils.TimeOrderedUUIDGenerator;
+import org.altervista.breve.awesome.pizza.utils.UUIDUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The order service over a real {@link OrderStore}, run once per store: MongoDB and the embedded one must follow the
+ * same rules.
+ */
+abstract class OrderServiceContractTest {
+
+    private final SubmitOrderRequest margherita = new SubmitOrderRequest(List.of(new OrderEntry("margherita", 2)));
+    private final SubmitOrderRequest diavola = new SubmitOrderRequest(List.of(new OrderEntry("diavola", 1)));
+
+    private OrderService sut;
+
+    protected abstract OrderStore store();
+
+    @BeforeEach
+    public void setUpService() {
+        final OrderStore store = store();
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final OrderQueueProjection projection = new OrderQueueProjection(store, registry);
+        projection.load();
+        final OrderCache cache = new OrderCache(registry, 100, Duration.ofSeconds(10), Duration.ofHours(1));
+        sut = new OrderService(new UUIDUtils(new TimeOrderedUUIDGenerator()), new DateTimeUtils(), store, projection, cache, new KitchenScheduler(1, KitchenScheduler.Policy.FIFO), event -> {
+            projection.onOrderChanged((OrderChangedEvent) event);
+            cache.onOrderChanged((OrderChangedEvent) event);
+        }, new OrderLifecycleMetrics(registry), null);
+    }
+
+    @Test
+    public void givenASubmittedOrderThenShouldFindItReadyAndQueued() {
+        final UUID id = sut.submit(margherita);
+
+        final Order order = sut.getOrder(id.toString()).orElseThrow();
+        assertEquals(OrderStatus.READY, order.status());
+        assertEquals(Map.of(Pizza.MARGHERITA, 2), order.pizzas());
+        assertEquals(List.of(id), ids(sut.findNotCompletedOrders()));
+    }
+
+    @Test
+    public void givenAnOrderThenShouldCookAndDeliverIt() {
+        final UUID id = sut.submit(margherita);
+
+        final Order claimed = sut.claimNext(null).orElseThrow();
+        assertEquals(id, claimed.id());
+        assertEquals(OrderStatus.IN_PROGRESS, claimed.status());
+        assertEquals(0, claimed.station());
+
+        sut.updateStatus(sut.getOrder(id.toString()).orElseThrow(), OrderStatus.DELIVERED);
+
+        final Order delivered = sut.getOrder(id.toString()).orElseThrow();
+        assertEquals(OrderStatus.DELIVERED, delivered.status());
+        assertNotNull(delivered.deliveredAt());
+        assertTrue(sut.findNotCompletedOrders().isEmpty());
+    }
+
+    @Test
+    public void givenTheOnlyStationBusyThenShouldRefuseASecondOrder() {
+        final UUID first = sut.submit(margherita);
+        final UUID second = sut.submit(diavola);
+        sut.updateStatus(sut.getOrder(first.toString()).orElseThrow(), OrderStatus.IN_PROGRESS);
+
+        assertThrows(StationBusyException.class, () -> sut.claimNext(null));
+        assertThrows(InvalidStatusUpdateException.class, () -> sut.updateStatus(sut.getOrder(second.toString()).orElseThrow(), OrderStatus.IN_PROGRESS));
+        assertEquals(List.of(first, second), ids(sut.findNotCompletedOrders()));
+    }
+
+    @Test
+    public void givenAnOrderMovedInTheMeantimeThenShouldRefuseTheStaleUpdate() {
+        final UUID id = sut.submit(margherita);
+        final Order stale = sut.getOrder(id.toString()).orElseThrow();
+        sut.claimNext(0).orElseThrow();
+        sut.updateStatus(sut.getOrder(id.toString()).orElseThrow(), OrderStatus.DELIVERED);
+
+        assertThrows(InvalidStatusUpdateException.class, () -> sut.updateStatus(stale, OrderStatus.IN_PROGRESS));
+        assertEquals(OrderStatus.DELIVERED, sut.getOrder(id.toString()).orElseThrow().status());
+    }
+
+    @Test
+    public void givenABatchThenShouldQueueTheValidOrdersOnly() {
+        final List<SubmitOrderBatchResult> results = sut.submitAll(List.of(
+                margherita,
+                new SubmitOrderRequest(List.of(new OrderEntry("a-not-supported-pizza-name", 1))),
+                diavola
+        ));
+
+        assertEquals(3, results.size());
+        assertEquals(SubmitOrderBatchResult.rejected("Invalid pizza in order"), results.get(1));
+        assertEquals(List.of(results.get(0).orderCode(), results.get(2).orderCode()), ids(sut.findNotCompletedOrders()));
+    }
+
+    private static List<UUID> ids(final List<Order> orders) {
+        return orders.stream().map(Order::id).toList();
+    }
+}
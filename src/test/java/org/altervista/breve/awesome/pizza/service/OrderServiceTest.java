@@ -1,15 +1,27 @@
 package org.altervista.breve.awesome.pizza.service;
 
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
 import org.altervista.breve.awesome.pizza.exception.EmptyOrderException;
+import org.altervista.breve.awesome.pizza.exception.InvalidBatchSizeException;
 import org.altervista.breve.awesome.pizza.exception.InvalidOrderCodeException;
 import org.altervista.breve.awesome.pizza.exception.InvalidOrderPizzaException;
 import org.altervista.breve.awesome.pizza.exception.InvalidOrderQtyException;
+import org.altervista.breve.awesome.pizza.exception.InvalidQueueCursorException;
+import org.altervista.breve.awesome.pizza.exception.InvalidStationException;
+import org.altervista.breve.awesome.pizza.exception.InvalidQueueLimitException;
+import org.altervista.breve.awesome.pizza.exception.InvalidStatsWindowException;
 import org.altervista.breve.awesome.pizza.exception.InvalidStatusUpdateException;
+import org.altervista.breve.awesome.pizza.exception.OrderConflictException;
+import org.altervista.breve.awesome.pizza.exception.StationBusyException;
 import org.altervista.breve.awesome.pizza.model.Order;
 import org.altervista.breve.awesome.pizza.model.OrderStatus;
 import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
 import org.altervista.breve.awesome.pizza.model.request.OrderEntry;
 import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+import org.altervista.breve.awesome.pizza.model.response.KitchenStatsResponse;
+import org.altervista.breve.awesome.pizza.model.response.PizzaKitchenStats;
+import org.altervista.breve.awesome.pizza.model.response.SubmitOrderBatchResult;
 import org.altervista.breve.awesome.pizza.repository.OrderRepository;
 import org.altervista.breve.awesome.pizza.utils.DateTimeUtils;
 import org.altervista.breve.awesome.pizza.utils.UUIDUtils;
@@ -17,20 +29,31 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 
 import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -41,6 +64,8 @@ class OrderServiceTest {
 
     private final static UUID AN_UUID = UUID.fromString("21c1bdab-2fa9-424f-84c5-edf207ecba6d");
     private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+    private final static LocalDateTime A_LITTLE_LATER = SOMEWHERE_IN_TIME.plusMinutes(10);
+    private final static Set<OrderStatus> NOT_COMPLETED = EnumSet.of(OrderStatus.IN_PROGRESS, OrderStatus.READY);
 
     private final Order inProgressOrder = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.DIAVOLA, 7));
     private final Order readyOrder1 = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
@@ -55,6 +80,21 @@ class OrderServiceTest {
     @Mock
     private OrderRepository repository;
 
+    @Mock
+    private OrderQueueProjection projection;
+
+    @Mock
+    private OrderCache cache;
+
+    @Spy
+    private KitchenScheduler scheduler = new KitchenScheduler(1, KitchenScheduler.Policy.FIFO);
+
+    @Mock
+    private ApplicationEventPublisher publisher;
+
+    @Mock
+    private OrderLifecycleMetrics metrics;
+
     @InjectMocks
     private OrderService sut;
 
@@ -65,6 +105,7 @@ class OrderServiceTest {
         verifyNoInteractions(uuidUtils);
         verifyNoInteractions(dateTimeUtils);
         verifyNoInteractions(repository);
+        verifyNoInteractions(publisher);
     }
 
     @Test
@@ -76,6 +117,7 @@ class OrderServiceTest {
         verifyNoInteractions(uuidUtils);
         verifyNoInteractions(dateTimeUtils);
         verifyNoInteractions(repository);
+        verifyNoInteractions(publisher);
     }
 
     @Test
@@ -87,6 +129,7 @@ class OrderServiceTest {
         verifyNoInteractions(uuidUtils);
         verifyNoInteractions(dateTimeUtils);
         verifyNoInteractions(repository);
+        verifyNoInteractions(publisher);
     }
 
     @Test
@@ -98,6 +141,34 @@ class OrderServiceTest {
         verifyNoInteractions(uuidUtils);
         verifyNoInteractions(dateTimeUtils);
         verifyNoInteractions(repository);
+        verifyNoInteractions(publisher);
+    }
+
+    @Test
+    public void givenARequestWithAMissingNameThenShouldThrowInvalidOrderPizzaException() {
+        final SubmitOrderRequest req = new SubmitOrderRequest(Collections.singletonList(new OrderEntry(null, 7)));
+
+        assertThrows(InvalidOrderPizzaException.class, () -> sut.submit(req));
+
+        verifyNoInteractions(uuidUtils);
+        verifyNoInteractions(dateTimeUtils);
+        verifyNoInteractions(repository);
+        verifyNoInteractions(publisher);
+    }
+
+    @Test
+    public void givenARequestWithQuantitiesOverflowingOnceCollapsedThenShouldThrowInvalidOrderQtyException() {
+        final SubmitOrderRequest req = new SubmitOrderRequest(List.of(
+                new OrderEntry("diavola", Integer.MAX_VALUE),
+                new OrderEntry("Diavola", 1)
+        ));
+
+        assertThrows(InvalidOrderQtyException.class, () -> sut.submit(req));
+
+        verifyNoInteractions(uuidUtils);
+        verifyNoInteractions(dateTimeUtils);
+        verifyNoInteractions(repository);
+        verifyNoInteractions(publisher);
     }
 
     @Test
@@ -109,6 +180,7 @@ class OrderServiceTest {
         verifyNoInteractions(uuidUtils);
         verifyNoInteractions(dateTimeUtils);
         verifyNoInteractions(repository);
+        verifyNoInteractions(publisher);
     }
 
     @Test
@@ -129,6 +201,7 @@ class OrderServiceTest {
         verify(uuidUtils).get();
         verify(dateTimeUtils).now();
         verify(repository).save(expected);
+        verify(publisher).publishEvent(new OrderChangedEvent(expected));
     }
 
     @Test
@@ -153,54 +226,211 @@ class OrderServiceTest {
         verify(uuidUtils).get();
         verify(dateTimeUtils).now();
         verify(repository).save(expected);
+        verify(publisher).publishEvent(new OrderChangedEvent(expected));
     }
 
     @Test
-    public void whenNoInProgressAndNoReadyOrdersArePresentThenShouldReturnEmptyList() {
-        when(repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.IN_PROGRESS)).thenReturn(Collections.emptyList());
-        when(repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.READY)).thenReturn(Collections.emptyList());
+    public void givenTheWriteBehindWhenSubmittingAnOrderThenShouldWaitForItsGroupCommit() {
+        final OrderWriteBehind writeBehind = mock(OrderWriteBehind.class);
+        final OrderService sut = new OrderService(uuidUtils, dateTimeUtils, repository, projection, cache, scheduler, publisher, metrics, writeBehind);
+        when(uuidUtils.get()).thenReturn(AN_UUID);
+        when(dateTimeUtils.now()).thenReturn(SOMEWHERE_IN_TIME);
+        final Order expected = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+        when(writeBehind.submit(expected)).thenReturn(AN_UUID);
 
-        final List<Order> actual = sut.findNotCompletedOrders();
+        final UUID actual = sut.submit(new SubmitOrderRequest(List.of(new OrderEntry("diavola", 7))));
 
-        assertEquals(Collections.emptyList(), actual);
-        verify(repository).findByStatusOrderBySubmittedAtAsc(OrderStatus.IN_PROGRESS);
-        verify(repository).findByStatusOrderBySubmittedAtAsc(OrderStatus.READY);
+        assertEquals(AN_UUID, actual);
+        verify(writeBehind).submit(expected);
+        verifyNoInteractions(repository, publisher);
     }
 
     @Test
-    public void whenNoInProgressAndSomeReadyOrdersArePresentThenShouldReturnOnlyReadyOrders() {
-        when(repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.IN_PROGRESS)).thenReturn(Collections.emptyList());
-        when(repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.READY)).thenReturn(List.of(readyOrder1, readyOrder2));
+    public void givenTheWriteBehindWhenTheGroupCommitFailsThenShouldThrowTheFailure() {
+        final OrderWriteBehind writeBehind = mock(OrderWriteBehind.class);
+        final OrderService sut = new OrderService(uuidUtils, dateTimeUtils, repository, projection, cache, scheduler, publisher, metrics, writeBehind);
+        when(uuidUtils.get()).thenReturn(AN_UUID);
+        when(dateTimeUtils.now()).thenReturn(SOMEWHERE_IN_TIME);
+        final Order expected = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+        when(writeBehind.submit(expected)).thenThrow(new DataIntegrityViolationException("duplicated"));
 
-        final List<Order> actual = sut.findNotCompletedOrders();
+        assertThrows(DataIntegrityViolationException.class, () -> sut.submit(new SubmitOrderRequest(List.of(new OrderEntry("diavola", 7)))));
+    }
 
-        assertEquals(List.of(readyOrder1, readyOrder2), actual);
-        verify(repository).findByStatusOrderBySubmittedAtAsc(OrderStatus.IN_PROGRESS);
-        verify(repository).findByStatusOrderBySubmittedAtAsc(OrderStatus.READY);
+    @Test
+    public void givenNoWindowWhenComputingTheKitchenStatsThenShouldUseTheLastDay() {
+        when(dateTimeUtils.now()).thenReturn(SOMEWHERE_IN_TIME);
+        final List<PizzaKitchenStats> stats = List.of(new PizzaKitchenStats(Pizza.DIAVOLA, 2, 3, 2 / 24d, 1000d, 1000d, 1000d, 1000d, 2000d, 2000d, 2000d, 2000d));
+        when(repository.kitchenStats(SOMEWHERE_IN_TIME.minusDays(1), SOMEWHERE_IN_TIME)).thenReturn(stats);
+
+        final KitchenStatsResponse actual = sut.kitchenStats(null, null);
+
+        assertEquals(new KitchenStatsResponse(SOMEWHERE_IN_TIME.minusDays(1), SOMEWHERE_IN_TIME, stats), actual);
     }
 
     @Test
-    public void whenAnInProgressAndNoReadyOrdersArePresentThenShouldReturnOnlyTheInProgressOrder() {
-        when(repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.IN_PROGRESS)).thenReturn(List.of(inProgressOrder));
-        when(repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.READY)).thenReturn(Collections.emptyList());
+    public void givenAWindowWhenComputingTheKitchenStatsThenShouldUseIt() {
+        when(repository.kitchenStats(SOMEWHERE_IN_TIME, A_LITTLE_LATER)).thenReturn(Collections.emptyList());
+
+        final KitchenStatsResponse actual = sut.kitchenStats(SOMEWHERE_IN_TIME, A_LITTLE_LATER);
+
+        assertEquals(new KitchenStatsResponse(SOMEWHERE_IN_TIME, A_LITTLE_LATER, Collections.emptyList()), actual);
+        verifyNoInteractions(dateTimeUtils);
+    }
+
+    @Test
+    public void givenAnInvalidWindowWhenComputingTheKitchenStatsThenShouldThrowInvalidStatsWindowException() {
+        assertThrows(InvalidStatsWindowException.class, () -> sut.kitchenStats(A_LITTLE_LATER, SOMEWHERE_IN_TIME));
+        assertThrows(InvalidStatsWindowException.class, () -> sut.kitchenStats(SOMEWHERE_IN_TIME, SOMEWHERE_IN_TIME));
+        assertThrows(InvalidStatsWindowException.class, () -> sut.kitchenStats(SOMEWHERE_IN_TIME, SOMEWHERE_IN_TIME.plusDays(32)));
+
+        verifyNoInteractions(repository);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1001})
+    public void givenABatchWithAnInvalidSizeThenShouldThrowInvalidBatchSizeException(int size) {
+        final List<SubmitOrderRequest> requests = Collections.nCopies(size, new SubmitOrderRequest(List.of(new OrderEntry("diavola", 1))));
+
+        assertThrows(InvalidBatchSizeException.class, () -> sut.submitAll(requests));
+        verifyNoInteractions(repository, publisher);
+    }
+
+    @Test
+    public void givenANullBatchThenShouldThrowInvalidBatchSizeException() {
+        assertThrows(InvalidBatchSizeException.class, () -> sut.submitAll(null));
+        verifyNoInteractions(repository, publisher);
+    }
+
+    @Test
+    public void givenABatchThenShouldInsertTheValidOrdersAndReportTheOthers() {
+        final UUID savedId = UUID.randomUUID();
+        final UUID failedId = UUID.randomUUID();
+        when(uuidUtils.get()).thenReturn(savedId, failedId);
+        when(dateTimeUtils.now()).thenReturn(SOMEWHERE_IN_TIME);
+        final Order saved = new Order(savedId, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 2));
+        final Order failed = new Order(failedId, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 1));
+        when(repository.insertUnordered(List.of(saved, failed))).thenReturn(Set.of(1));
+
+        final List<SubmitOrderBatchResult> actual = sut.submitAll(List.of(
+                new SubmitOrderRequest(List.of(new OrderEntry("diavola", 2))),
+                new SubmitOrderRequest(List.of(new OrderEntry("ananas", 1))),
+                new SubmitOrderRequest(List.of(new OrderEntry("margherita", 1))),
+                new SubmitOrderRequest(List.of(new OrderEntry("capricciosa", 0)))
+        ));
+
+        assertEquals(List.of(
+                SubmitOrderBatchResult.submitted(savedId),
+                SubmitOrderBatchResult.rejected("Invalid pizza in order"),
+                SubmitOrderBatchResult.rejected("The order could not be saved"),
+                SubmitOrderBatchResult.rejected("Invalid quantity in order")
+        ), actual);
+        verify(publisher).publishEvent(new OrderChangedEvent(saved));
+        verifyNoMoreInteractions(publisher);
+    }
+
+    @Test
+    public void givenABatchRepeatingAnIdThenShouldReportOnlyTheCopyThatWasNotSaved() {
+        final UUID id = UUID.randomUUID();
+        when(uuidUtils.get()).thenReturn(id, id);
+        when(dateTimeUtils.now()).thenReturn(SOMEWHERE_IN_TIME);
+        final Order saved = new Order(id, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 2));
+        final Order copy = new Order(id, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 1));
+        when(repository.insertUnordered(List.of(saved, copy))).thenReturn(Set.of(1));
+
+        final List<SubmitOrderBatchResult> actual = sut.submitAll(List.of(
+                new SubmitOrderRequest(List.of(new OrderEntry("diavola", 2))),
+                new SubmitOrderRequest(List.of(new OrderEntry("margherita", 1)))
+        ));
+
+        assertEquals(List.of(
+                SubmitOrderBatchResult.submitted(id),
+                SubmitOrderBatchResult.rejected("The order could not be saved")
+        ), actual);
+        verify(publisher).publishEvent(new OrderChangedEvent(saved));
+        verifyNoMoreInteractions(publisher);
+    }
+
+    @Test
+    public void whenTheProjectionIsValidThenShouldReturnTheQueueWithoutQueryingTheRepository() {
+        when(projection.snapshot()).thenReturn(Optional.of(List.of(inProgressOrder, readyOrder2, readyOrder1)));
 
         final List<Order> actual = sut.findNotCompletedOrders();
 
-        assertEquals(List.of(inProgressOrder), actual);
-        verify(repository).findByStatusOrderBySubmittedAtAsc(OrderStatus.IN_PROGRESS);
-        verify(repository).findByStatusOrderBySubmittedAtAsc(OrderStatus.READY);
+        assertEquals(List.of(inProgressOrder, readyOrder2, readyOrder1), actual);
+        verifyNoInteractions(repository);
     }
 
     @Test
-    public void whenAnInProgressAndSomeReadyOrdersArePresentThenShouldReturnAllTheOrders() {
-        when(repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.IN_PROGRESS)).thenReturn(List.of(inProgressOrder));
-        when(repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.READY)).thenReturn(List.of(readyOrder2, readyOrder1));
+    public void whenTheProjectionIsInvalidThenShouldReturnTheQueueWithASingleQuery() {
+        when(projection.snapshot()).thenReturn(Optional.empty());
+        when(repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED)).thenReturn(List.of(inProgressOrder, readyOrder2, readyOrder1));
 
         final List<Order> actual = sut.findNotCompletedOrders();
 
         assertEquals(List.of(inProgressOrder, readyOrder2, readyOrder1), actual);
-        verify(repository).findByStatusOrderBySubmittedAtAsc(OrderStatus.IN_PROGRESS);
-        verify(repository).findByStatusOrderBySubmittedAtAsc(OrderStatus.READY);
+        verify(repository).findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED);
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    public void givenNoCursorThenShouldReadTheFirstPageOfTheQueue() {
+        when(projection.page(null, 2)).thenReturn(Optional.of(List.of(inProgressOrder, readyOrder1)));
+
+        final List<Order> actual = sut.findNotCompletedOrders(null, 2);
+
+        assertEquals(List.of(inProgressOrder, readyOrder1), actual);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void givenACursorWhenTheProjectionIsInvalidThenShouldReadThePageAfterItFromTheRepository() {
+        final QueueCursor cursor = QueueCursor.of(readyOrder1);
+        when(projection.page(cursor, 2)).thenReturn(Optional.empty());
+        when(repository.findQueuePage(NOT_COMPLETED, cursor, 2)).thenReturn(List.of(readyOrder2));
+
+        final List<Order> actual = sut.findNotCompletedOrders(cursor.encode(), 2);
+
+        assertEquals(List.of(readyOrder2), actual);
+        verify(repository).findQueuePage(NOT_COMPLETED, cursor, 2);
+    }
+
+    @Test
+    public void givenAnInvalidCursorThenShouldThrowInvalidQueueCursorException() {
+        assertThrows(InvalidQueueCursorException.class, () -> sut.findNotCompletedOrders("an-invalid-cursor", 2));
+
+        verifyNoInteractions(projection);
+        verifyNoInteractions(repository);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 0, OrderService.MAX_PAGE_SIZE + 1})
+    public void givenAnInvalidLimitThenShouldThrowInvalidQueueLimitException(final int limit) {
+        assertThrows(InvalidQueueLimitException.class, () -> sut.findNotCompletedOrders(null, limit));
+
+        verifyNoInteractions(projection);
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void whenStreamingTheQueueAndTheProjectionIsValidThenShouldStreamTheProjection() {
+        when(projection.stream()).thenReturn(Optional.of(Stream.of(inProgressOrder, readyOrder1)));
+
+        try (Stream<Order> actual = sut.streamNotCompletedOrders()) {
+            assertEquals(List.of(inProgressOrder, readyOrder1), actual.toList());
+        }
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void whenStreamingTheQueueAndTheProjectionIsInvalidThenShouldUseTheRepositoryCursor() {
+        when(projection.stream()).thenReturn(Optional.empty());
+        when(repository.streamByStatusInOrderByStatusAscSubmittedAtAscIdAsc(NOT_COMPLETED)).thenReturn(Stream.of(inProgressOrder, readyOrder1));
+
+        try (Stream<Order> actual = sut.streamNotCompletedOrders()) {
+            assertEquals(List.of(inProgressOrder, readyOrder1), actual.toList());
+        }
+        verify(repository).streamByStatusInOrderByStatusAscSubmittedAtAscIdAsc(NOT_COMPLETED);
     }
 
     @Test
@@ -218,6 +448,19 @@ class OrderServiceTest {
 
         assertEquals(Optional.empty(), actual);
         verify(repository).findById(AN_UUID);
+        verify(repository).findArchivedById(AN_UUID);
+    }
+
+    @Test
+    public void givenAnArchivedOrderCodeThenShouldReturnTheArchivedOrder() {
+        final Order expected = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.DELIVERED, Map.of(Pizza.MARGHERITA, 7), SOMEWHERE_IN_TIME, A_LITTLE_LATER, 2L);
+        when(repository.findById(AN_UUID)).thenReturn(Optional.empty());
+        when(repository.findArchivedById(AN_UUID)).thenReturn(Optional.of(expected));
+
+        final Optional<Order> actual = sut.getOrder(AN_UUID.toString());
+
+        assertEquals(Optional.of(expected), actual);
+        verify(cache).put(expected);
     }
 
     @Test
@@ -233,6 +476,18 @@ class OrderServiceTest {
 
         assertEquals(Optional.of(expected), actual);
         verify(repository).findById(AN_UUID);
+        verify(cache).put(expected);
+    }
+
+    @Test
+    public void givenACachedOrderCodeThenShouldReturnTheCachedOrder() {
+        final Order expected = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.DELIVERED, Map.of(Pizza.MARGHERITA, 7));
+        when(cache.get(AN_UUID)).thenReturn(Optional.of(expected));
+
+        final Optional<Order> actual = sut.getOrder(AN_UUID.toString());
+
+        assertEquals(Optional.of(expected), actual);
+        verifyNoInteractions(repository);
     }
 
     @ParameterizedTest
@@ -267,23 +522,173 @@ class OrderServiceTest {
     @Test
     public void givenAReadyOrderWhenTryingToSetInProgressStatusAndAnotherOrderHasInProgressStatusThenShouldThrowInvalidStatusUpdateException() {
         final Order order = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
-        when(repository.findByStatusOrderBySubmittedAtAsc(any(OrderStatus.class))).thenReturn(Collections.singletonList(inProgressOrder));
+        when(projection.busyStations()).thenReturn(Optional.of(Set.of(0)));
 
         assertThrows(InvalidStatusUpdateException.class, () -> sut.updateStatus(order, OrderStatus.IN_PROGRESS));
 
-        verify(repository).findByStatusOrderBySubmittedAtAsc(OrderStatus.IN_PROGRESS);
+        verifyNoInteractions(repository);
+        verifyNoInteractions(publisher);
+    }
+
+    @Test
+    public void givenAReadyOrderWhenTryingToSetInProgressStatusAndNoOrderHasInProgressStatusThenShouldMoveTheOrderToInProgressStatus() {
+        final Order order = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
+        final Order expected = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7));
+        when(projection.busyStations()).thenReturn(Optional.of(Set.of()));
+        when(dateTimeUtils.now()).thenReturn(A_LITTLE_LATER);
+        when(repository.claim(AN_UUID, null, 0, A_LITTLE_LATER)).thenReturn(Optional.of(expected));
+
+        sut.updateStatus(order, OrderStatus.IN_PROGRESS);
+
+        verify(repository).transition(AN_UUID, null, OrderStatus.READY, OrderStatus.IN_PROGRESS, A_LITTLE_LATER);
         verifyNoMoreInteractions(repository);
+        verify(publisher).publishEvent(new OrderChangedEvent(expected));
+        verify(metrics).onTransition(expected, A_LITTLE_LATER);
     }
 
     @Test
-    public void givenAReadyOrderWhenTryingToSetInProgressStatusAndNoOrderHasInProgressStatusThenShouldSaveTheOrderWithInProgressStatus() {
+    public void givenAReadyOrderWhenTryingToSetInProgressStatusAndTheOrderHasBeenMovedMeanwhileThenShouldThrowInvalidStatusUpdateException() {
         final Order order = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
-        when(repository.findByStatusOrderBySubmittedAtAsc(any(OrderStatus.class))).thenReturn(Collections.emptyList());
+        when(projection.busyStations()).thenReturn(Optional.of(Set.of()));
+        when(dateTimeUtils.now()).thenReturn(A_LITTLE_LATER);
+        when(repository.claim(AN_UUID, null, 0, A_LITTLE_LATER)).thenReturn(Optional.empty());
+        when(repository.findById(AN_UUID)).thenReturn(Optional.of(new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7), A_LITTLE_LATER, null, 1L)));
+
+        assertThrows(InvalidStatusUpdateException.class, () -> sut.updateStatus(order, OrderStatus.IN_PROGRESS));
+
+        verify(cache).invalidate(AN_UUID);
+        verifyNoInteractions(publisher);
+    }
+
+    @Test
+    public void givenAReadyOrderWhenTryingToSetInProgressStatusAndOnlyItsVersionChangedMeanwhileThenShouldRetryWithTheNewVersion() {
+        final Order order = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
+        final Order current = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7), null, null, 1L);
+        final Order expected = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7), A_LITTLE_LATER, null, 2L);
+        when(projection.busyStations()).thenReturn(Optional.of(Set.of()));
+        when(dateTimeUtils.now()).thenReturn(A_LITTLE_LATER);
+        when(repository.claim(AN_UUID, null, 0, A_LITTLE_LATER)).thenReturn(Optional.empty());
+        when(repository.findById(AN_UUID)).thenReturn(Optional.of(current));
+        when(repository.claim(AN_UUID, 1L, 0, A_LITTLE_LATER)).thenReturn(Optional.of(expected));
 
         sut.updateStatus(order, OrderStatus.IN_PROGRESS);
 
+        verify(cache).invalidate(AN_UUID);
+        verify(metrics).onTransition(expected, A_LITTLE_LATER);
+        verify(publisher).publishEvent(new OrderChangedEvent(expected));
+    }
+
+    @Test
+    public void givenAReadyOrderWhenItsVersionKeepsChangingThenShouldThrowOrderConflictException() {
+        final Order order = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
+        when(projection.busyStations()).thenReturn(Optional.of(Set.of()));
+        when(dateTimeUtils.now()).thenReturn(A_LITTLE_LATER);
+        when(repository.claim(any(UUID.class), any(), anyInt(), any(LocalDateTime.class))).thenReturn(Optional.empty());
+        when(repository.findById(AN_UUID)).thenReturn(
+                Optional.of(new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7), null, null, 1L)),
+                Optional.of(new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7), null, null, 2L)),
+                Optional.of(new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7), null, null, 3L))
+        );
+
+        assertThrows(OrderConflictException.class, () -> sut.updateStatus(order, OrderStatus.IN_PROGRESS));
+
+        verify(repository, times(OrderService.MAX_TRANSITION_ATTEMPTS)).claim(any(UUID.class), any(), anyInt(), any(LocalDateTime.class));
+        verifyNoInteractions(publisher);
+    }
+
+    @Test
+    public void givenAReadyOrderWhenTryingToSetInProgressStatusAndAnotherOrderTookTheKitchenMeanwhileThenShouldThrowInvalidStatusUpdateException() {
+        final Order order = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
+        when(projection.busyStations()).thenReturn(Optional.of(Set.of()));
+        when(dateTimeUtils.now()).thenReturn(A_LITTLE_LATER);
+        when(repository.claim(AN_UUID, null, 0, A_LITTLE_LATER)).thenThrow(new DuplicateKeyException("active_station"));
+
+        assertThrows(InvalidStatusUpdateException.class, () -> sut.updateStatus(order, OrderStatus.IN_PROGRESS));
+
+        verifyNoInteractions(publisher);
+    }
+
+    @Test
+    public void givenAReadyOrderWhenTryingToSetInProgressStatusAndTheProjectionIsInvalidThenShouldCheckTheRepository() {
+        final Order order = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
+        when(projection.busyStations()).thenReturn(Optional.empty());
+        when(repository.findByStatusOrderBySubmittedAtAsc(OrderStatus.IN_PROGRESS)).thenReturn(List.of(inProgressOrder));
+
+        assertThrows(InvalidStatusUpdateException.class, () -> sut.updateStatus(order, OrderStatus.IN_PROGRESS));
+
         verify(repository).findByStatusOrderBySubmittedAtAsc(OrderStatus.IN_PROGRESS);
-        verify(repository).save(new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7)));
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    public void givenMoreStationsWhenTryingToSetInProgressStatusThenShouldPickTheFirstFreeStation() {
+        final OrderService sut = new OrderService(uuidUtils, dateTimeUtils, repository, projection, cache, new KitchenScheduler(3, KitchenScheduler.Policy.FIFO), publisher, metrics, null);
+        final Order order = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
+        final Order expected = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7), A_LITTLE_LATER, null, 1, 1L);
+        when(projection.busyStations()).thenReturn(Optional.of(Set.of(0, 2)));
+        when(dateTimeUtils.now()).thenReturn(A_LITTLE_LATER);
+        when(repository.claim(AN_UUID, null, 1, A_LITTLE_LATER)).thenReturn(Optional.of(expected));
+
+        sut.updateStatus(order, OrderStatus.IN_PROGRESS);
+
+        verify(publisher).publishEvent(new OrderChangedEvent(expected));
+    }
+
+    @Test
+    public void givenReadyOrdersWhenClaimingTheNextOneThenShouldHandTheOldestToTheFirstFreeStation() {
+        final Order expected = new Order(readyOrder1.id(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7), A_LITTLE_LATER, null, 0, 1L);
+        when(projection.busyStations()).thenReturn(Optional.of(Set.of()));
+        when(projection.stream()).thenReturn(Optional.of(Stream.of(readyOrder1, readyOrder2)));
+        when(dateTimeUtils.now()).thenReturn(A_LITTLE_LATER);
+        when(repository.claim(readyOrder1.id(), null, 0, A_LITTLE_LATER)).thenReturn(Optional.of(expected));
+
+        assertEquals(Optional.of(expected), sut.claimNext(null));
+
+        verify(metrics).onTransition(expected, A_LITTLE_LATER);
+        verify(publisher).publishEvent(new OrderChangedEvent(expected));
+    }
+
+    @Test
+    public void givenReadyOrdersWhenTheOldestIsClaimedMeanwhileThenShouldClaimTheNextOne() {
+        final Order expected = new Order(readyOrder2.id(), SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.CAPRICCIOSA, 7), A_LITTLE_LATER, null, 0, 1L);
+        when(projection.busyStations()).thenReturn(Optional.of(Set.of()));
+        when(projection.stream()).thenReturn(Optional.of(Stream.of(readyOrder1, readyOrder2)));
+        when(dateTimeUtils.now()).thenReturn(A_LITTLE_LATER);
+        when(repository.claim(readyOrder1.id(), null, 0, A_LITTLE_LATER)).thenReturn(Optional.empty());
+        when(repository.claim(readyOrder2.id(), null, 0, A_LITTLE_LATER)).thenReturn(Optional.of(expected));
+
+        assertEquals(Optional.of(expected), sut.claimNext(null));
+
+        verify(cache).invalidate(readyOrder1.id());
+    }
+
+    @Test
+    public void givenNoReadyOrdersWhenClaimingTheNextOneThenShouldReturnAnEmptyOptional() {
+        when(projection.busyStations()).thenReturn(Optional.of(Set.of()));
+        when(projection.stream()).thenReturn(Optional.of(Stream.of(inProgressOrder)));
+
+        assertEquals(Optional.empty(), sut.claimNext(null));
+
+        verifyNoInteractions(repository, publisher);
+    }
+
+    @Test
+    public void givenABusyStationWhenClaimingTheNextOneThenShouldThrowStationBusyException() {
+        when(projection.busyStations()).thenReturn(Optional.of(Set.of(0)));
+
+        assertThrows(StationBusyException.class, () -> sut.claimNext(null));
+        assertThrows(StationBusyException.class, () -> sut.claimNext(0));
+
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void givenAnUnknownStationWhenClaimingTheNextOneThenShouldThrowInvalidStationException() {
+        when(projection.busyStations()).thenReturn(Optional.of(Set.of()));
+
+        assertThrows(InvalidStationException.class, () -> sut.claimNext(1));
+
+        verifyNoInteractions(repository);
     }
 
     @Test
@@ -296,11 +701,17 @@ class OrderServiceTest {
     }
 
     @Test
-    public void givenAnInProgressOrderWhenTryingToSetDeliveredStatusThenShouldSaveTheOrderWithDeliveredStatus() {
+    public void givenAnInProgressOrderWhenTryingToSetDeliveredStatusThenShouldMoveTheOrderToDeliveredStatus() {
         final Order order = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7));
+        final Order expected = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.DELIVERED, Map.of(Pizza.MARGHERITA, 7));
+        when(dateTimeUtils.now()).thenReturn(A_LITTLE_LATER);
+        when(repository.transition(AN_UUID, null, OrderStatus.IN_PROGRESS, OrderStatus.DELIVERED, A_LITTLE_LATER)).thenReturn(Optional.of(expected));
 
         sut.updateStatus(order, OrderStatus.DELIVERED);
 
-        verify(repository).save(new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.DELIVERED, Map.of(Pizza.MARGHERITA, 7)));
+        verify(repository).transition(AN_UUID, null, OrderStatus.IN_PROGRESS, OrderStatus.DELIVERED, A_LITTLE_LATER);
+        verifyNoMoreInteractions(repository);
+        verify(publisher).publishEvent(new OrderChangedEvent(expected));
+        verify(metrics).onTransition(expected, A_LITTLE_LATER);
     }
 }
\ No newline at end of file
@@ -0,0 +1,218 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
+import org.altervista.breve.awesome.pizza.exception.InvalidOrderCodeException;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.response.OrderPositionResponse;
+import org.altervista.breve.awesome.pizza.model.response.OrderTrackingResponse;
+import org.altervista.breve.awesome.pizza.repository.OrderRepository;
+import org.altervista.breve.awesome.pizza.utils.DateTimeUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderTrackingProjectionTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+    private final static Set<OrderStatus> NOT_COMPLETED = EnumSet.of(OrderStatus.IN_PROGRESS, OrderStatus.READY);
+    private final static Duration PREP_TIME = Duration.ofMinutes(10);
+
+    private final Order readyOrder1 = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
+    private final Order readyOrder2 = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME.plusMinutes(1), OrderStatus.READY, Map.of(Pizza.CAPRICCIOSA, 7));
+    private final Order readyOrder3 = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME.plusMinutes(2), OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Mock
+    private OrderRepository repository;
+
+    private final DateTimeUtils dateTimeUtils = new DateTimeUtils() {
+        @Override
+        public LocalDateTime now() {
+            return SOMEWHERE_IN_TIME.plusMinutes(5);
+        }
+    };
+
+    private OrderTrackingProjection sut;
+
+    @BeforeEach
+    public void setUp() {
+        sut = projection(2);
+    }
+
+    @Test
+    public void givenReadyOrdersThenShouldTellHowManyAreAheadAndWhenTheyArrive() {
+        when(repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED)).thenReturn(List.of(readyOrder1, readyOrder2, readyOrder3));
+        sut.load();
+
+        assertEquals(Optional.of(new OrderTrackingResponse(readyOrder1.id(), OrderStatus.READY, 0, SOMEWHERE_IN_TIME.plusMinutes(15))), sut.track(readyOrder1.id().toString()));
+        assertEquals(Optional.of(new OrderTrackingResponse(readyOrder2.id(), OrderStatus.READY, 1, SOMEWHERE_IN_TIME.plusMinutes(15))), sut.track(readyOrder2.id().toString()));
+        assertEquals(Optional.of(new OrderTrackingResponse(readyOrder3.id(), OrderStatus.READY, 2, SOMEWHERE_IN_TIME.plusMinutes(25))), sut.track(readyOrder3.id().toString()));
+    }
+
+    @Test
+    public void givenTheFewestPizzasPolicyThenShouldCountTheSmallerOrdersAhead() {
+        final Order small = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME.plusMinutes(3), OrderStatus.READY, Map.of(Pizza.MARGHERITA, 1));
+        when(repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED)).thenReturn(List.of(readyOrder1, readyOrder2, readyOrder3, small));
+        sut = projection(2, KitchenScheduler.Policy.FEWEST_PIZZAS);
+        sut.load();
+
+        assertEquals(Optional.of(new OrderTrackingResponse(small.id(), OrderStatus.READY, 0, SOMEWHERE_IN_TIME.plusMinutes(15))), sut.track(small.id().toString()));
+        assertEquals(Optional.of(new OrderTrackingResponse(readyOrder1.id(), OrderStatus.READY, 1, SOMEWHERE_IN_TIME.plusMinutes(15))), sut.track(readyOrder1.id().toString()));
+        assertEquals(Optional.of(new OrderTrackingResponse(readyOrder3.id(), OrderStatus.READY, 3, SOMEWHERE_IN_TIME.plusMinutes(25))), sut.track(readyOrder3.id().toString()));
+    }
+
+    @Test
+    public void givenTheOrdersAheadPickedThenShouldMoveForward() {
+        sut.onOrderChanged(new OrderChangedEvent(readyOrder1));
+        sut.onOrderChanged(new OrderChangedEvent(readyOrder2));
+        sut.onOrderChanged(new OrderChangedEvent(inProgress(readyOrder1, SOMEWHERE_IN_TIME.plusMinutes(4))));
+
+        assertEquals(Optional.of(new OrderTrackingResponse(readyOrder1.id(), OrderStatus.IN_PROGRESS, null, SOMEWHERE_IN_TIME.plusMinutes(14))), sut.track(readyOrder1.id().toString()));
+        assertEquals(0, sut.track(readyOrder2.id().toString()).orElseThrow().position());
+    }
+
+    @Test
+    public void givenAnOlderStatusThenShouldKeepTheNewerOne() {
+        final Order delivered = delivered(inProgress(readyOrder1, SOMEWHERE_IN_TIME), SOMEWHERE_IN_TIME.plusMinutes(3));
+        sut.apply(delivered);
+        sut.apply(readyOrder1);
+
+        assertEquals(Optional.of(new OrderTrackingResponse(readyOrder1.id(), OrderStatus.DELIVERED, null, SOMEWHERE_IN_TIME.plusMinutes(3))), sut.track(readyOrder1.id().toString()));
+        sut.apply(readyOrder2);
+        assertEquals(0, sut.track(readyOrder2.id().toString()).orElseThrow().position());
+    }
+
+    @Test
+    public void givenAnUnreachableDatabaseAtStartupThenShouldLoadTheOrdersOnTheNextResync() {
+        when(repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED))
+                .thenThrow(new DataAccessResourceFailureException("MongoDB is down"))
+                .thenReturn(List.of(readyOrder1, readyOrder2));
+
+        sut.load();
+        sut.scheduledResync();
+
+        assertEquals(1, sut.track(readyOrder2.id().toString()).orElseThrow().position());
+    }
+
+    @Test
+    public void givenATrackedOrderThenShouldNotReadTheDatabase() {
+        sut.apply(readyOrder1);
+
+        sut.track(readyOrder1.id().toString());
+
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    public void givenAnOrderMissingFromTheProjectionThenShouldReadItOnce() {
+        final Order delivered = delivered(inProgress(readyOrder1, SOMEWHERE_IN_TIME), SOMEWHERE_IN_TIME.plusMinutes(3));
+        when(repository.findById(readyOrder1.id())).thenReturn(Optional.empty());
+        when(repository.findArchivedById(readyOrder1.id())).thenReturn(Optional.of(delivered));
+
+        assertEquals(OrderStatus.DELIVERED, sut.track(readyOrder1.id().toString()).orElseThrow().status());
+        assertEquals(OrderStatus.DELIVERED, sut.track(readyOrder1.id().toString()).orElseThrow().status());
+
+        verify(repository).findById(readyOrder1.id());
+        verify(repository).findArchivedById(readyOrder1.id());
+    }
+
+    @Test
+    public void givenADeliveredOrderThenShouldForgetItAfterTheTtl() {
+        final Order delivered = delivered(inProgress(readyOrder1, SOMEWHERE_IN_TIME), SOMEWHERE_IN_TIME.plusMinutes(3));
+        sut.apply(delivered);
+        sut.apply(readyOrder2);
+        nanos.addAndGet(Duration.ofHours(2).toNanos());
+        when(repository.findById(readyOrder1.id())).thenReturn(Optional.empty());
+        when(repository.findArchivedById(readyOrder1.id())).thenReturn(Optional.empty());
+
+        assertEquals(Optional.empty(), sut.track(readyOrder1.id().toString()));
+        assertEquals(OrderStatus.READY, sut.track(readyOrder2.id().toString()).orElseThrow().status());
+    }
+
+    @Test
+    public void givenAReadyOrderGoneFromTheDatabaseThenTheResyncShouldDropIt() {
+        sut.apply(readyOrder1);
+        sut.apply(readyOrder2);
+        when(repository.findByStatusInOrderByStatusAscSubmittedAtAsc(NOT_COMPLETED)).thenReturn(List.of(readyOrder2));
+
+        sut.resync();
+
+        assertEquals(0, sut.track(readyOrder2.id().toString()).orElseThrow().position());
+    }
+
+    @Test
+    public void givenDeliveredOrdersThenTheEtaShouldFollowTheirRecentPrepTimes() {
+        final Order readyOrder4 = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME.plusMinutes(3), OrderStatus.READY, Map.of(Pizza.MARGHERITA, 1));
+        deliver(readyOrder1, Duration.ofMinutes(30));
+        deliver(readyOrder2, Duration.ofMinutes(2));
+        deliver(readyOrder3, Duration.ofMinutes(4));
+        sut.apply(readyOrder4);
+
+        assertEquals(Optional.of(new OrderPositionResponse(readyOrder4.id(), 0, SOMEWHERE_IN_TIME.plusMinutes(8))), sut.position(readyOrder4.id().toString()));
+    }
+
+    @Test
+    public void givenAPickedOrderThenShouldHaveNoOrderAhead() {
+        sut.apply(readyOrder1);
+        sut.apply(readyOrder2);
+        sut.apply(inProgress(readyOrder2, SOMEWHERE_IN_TIME.plusMinutes(5)));
+
+        assertEquals(Optional.of(new OrderPositionResponse(readyOrder2.id(), 0, SOMEWHERE_IN_TIME.plusMinutes(15))), sut.position(readyOrder2.id().toString()));
+        assertEquals(0, sut.position(readyOrder1.id().toString()).orElseThrow().ahead());
+    }
+
+    @Test
+    public void givenAnInvalidOrderCodeThenShouldThrow() {
+        assertThrows(InvalidOrderCodeException.class, () -> sut.track("an-invalid-order-code"));
+    }
+
+    private OrderTrackingProjection projection(final int stations) {
+        return projection(stations, KitchenScheduler.Policy.FIFO);
+    }
+
+    private OrderTrackingProjection projection(final int stations, final KitchenScheduler.Policy policy) {
+        return new OrderTrackingProjection(repository, new KitchenScheduler(stations, policy), dateTimeUtils, new SimpleMeterRegistry(), 100, Duration.ofHours(1), PREP_TIME, 2, nanos::get);
+    }
+
+    /**
+     * Walks the order through the whole kitchen, taking the given preparation time.
+     */
+    private void deliver(final Order order, final Duration prep) {
+        final Order picked = inProgress(order, SOMEWHERE_IN_TIME);
+        sut.apply(order);
+        sut.apply(picked);
+        sut.apply(delivered(picked, SOMEWHERE_IN_TIME.plus(prep)));
+    }
+
+    private static Order inProgress(final Order order, final LocalDateTime at) {
+        return new Order(order.id(), order.submittedAt(), OrderStatus.IN_PROGRESS, order.pizzas(), at, null, 1L);
+    }
+
+    private static Order delivered(final Order order, final LocalDateTime at) {
+        return new Order(order.id(), order.submittedAt(), OrderStatus.DELIVERED, order.pizzas(), order.startedAt(), at, 2L);
+    }
+}
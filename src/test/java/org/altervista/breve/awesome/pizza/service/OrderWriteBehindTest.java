@@ -0,0 +1,206 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
+import org.altervista.breve.awesome.pizza.exception.OrderQueueFullException;
+import org.altervista.breve.awesome.pizza.exception.OrderWriteTimeoutException;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OrderWriteBehindTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+    private final static Duration RETRY_AFTER = Duration.ofSeconds(2);
+    private final static Duration TIMEOUT = Duration.ofMillis(200);
+
+    private final Order order1 = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
+    private final Order order2 = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.CAPRICCIOSA, 7));
+    private final Order order3 = new Order(UUID.randomUUID(), SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+
+    @Mock
+    private OrderRepository repository;
+
+    @Mock
+    private ApplicationEventPublisher publisher;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    private OrderWriteBehind writeBehind(int capacity, int maxBatchSize, Duration maxDelay) {
+        return new OrderWriteBehind(repository, publisher, registry, capacity, maxBatchSize, maxDelay, RETRY_AFTER, TIMEOUT);
+    }
+
+    @Test
+    public void givenQueuedOrdersThenShouldWriteThemWithASingleGroupCommit() throws Exception {
+        when(repository.insertUnordered(List.of(order1, order2, order3))).thenReturn(Collections.emptySet());
+        final OrderWriteBehind sut = writeBehind(10, 3, Duration.ofSeconds(10));
+
+        final CompletableFuture<UUID> result1 = sut.enqueue(order1);
+        final CompletableFuture<UUID> result2 = sut.enqueue(order2);
+        final CompletableFuture<UUID> result3 = sut.enqueue(order3);
+        sut.start();
+
+        assertEquals(order1.id(), result1.get());
+        assertEquals(order2.id(), result2.get());
+        assertEquals(order3.id(), result3.get());
+        sut.stop();
+
+        verify(repository).insertUnordered(List.of(order1, order2, order3));
+        verify(publisher).publishEvent(new OrderChangedEvent(order1));
+        verify(publisher).publishEvent(new OrderChangedEvent(order2));
+        verify(publisher).publishEvent(new OrderChangedEvent(order3));
+        assertEquals(3, registry.get("awesome.pizza.submit.batch.size").summary().totalAmount());
+        assertEquals(1, registry.get("awesome.pizza.submit.flush").timer().count());
+    }
+
+    @Test
+    public void givenAnOrderThatCannotBeWrittenThenShouldFailOnlyThatOrder() throws Exception {
+        when(repository.insertUnordered(List.of(order1, order2))).thenReturn(Set.of(1));
+        final OrderWriteBehind sut = writeBehind(10, 2, Duration.ofSeconds(10));
+
+        final CompletableFuture<UUID> result1 = sut.enqueue(order1);
+        final CompletableFuture<UUID> result2 = sut.enqueue(order2);
+        sut.start();
+
+        assertEquals(order1.id(), result1.get());
+        final ExecutionException e = assertThrows(ExecutionException.class, result2::get);
+        assertInstanceOf(DataIntegrityViolationException.class, e.getCause());
+        sut.stop();
+
+        verify(publisher).publishEvent(new OrderChangedEvent(order1));
+        verify(publisher, never()).publishEvent(new OrderChangedEvent(order2));
+    }
+
+    @Test
+    public void givenAFailingGroupCommitThenShouldFailAllItsOrders() throws Exception {
+        final RuntimeException failure = new IllegalStateException("down");
+        when(repository.insertUnordered(List.of(order1, order2))).thenThrow(failure);
+        final OrderWriteBehind sut = writeBehind(10, 2, Duration.ofSeconds(10));
+
+        final CompletableFuture<UUID> result1 = sut.enqueue(order1);
+        final CompletableFuture<UUID> result2 = sut.enqueue(order2);
+        sut.start();
+
+        assertEquals(failure, assertThrows(ExecutionException.class, result1::get).getCause());
+        assertEquals(failure, assertThrows(ExecutionException.class, result2::get).getCause());
+        sut.stop();
+
+        verifyNoInteractions(publisher);
+    }
+
+    @Test
+    public void givenAFailingListenerThenShouldStillAcknowledgeTheWrittenOrders() throws Exception {
+        when(repository.insertUnordered(List.of(order1, order2))).thenReturn(Collections.emptySet());
+        doThrow(new IllegalStateException("listener")).when(publisher).publishEvent(new OrderChangedEvent(order1));
+        final OrderWriteBehind sut = writeBehind(10, 2, Duration.ofSeconds(10));
+
+        final CompletableFuture<UUID> result1 = sut.enqueue(order1);
+        final CompletableFuture<UUID> result2 = sut.enqueue(order2);
+        sut.start();
+
+        assertEquals(order1.id(), result1.get());
+        assertEquals(order2.id(), result2.get());
+        sut.stop();
+
+        verify(publisher).publishEvent(new OrderChangedEvent(order2));
+    }
+
+    @Test
+    public void givenAStuckWriterWhenSubmittingThenShouldTakeTheOrderBackAfterTheTimeout() {
+        final OrderWriteBehind sut = writeBehind(10, 10, Duration.ofMillis(1));
+
+        final OrderQueueFullException e = assertThrows(OrderQueueFullException.class, () -> sut.submit(order1));
+
+        assertEquals(RETRY_AFTER, e.getRetryAfter());
+        assertEquals(0, registry.get("awesome.pizza.submit.queue.depth").gauge().value());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void givenASlowGroupCommitWhenSubmittingThenShouldHandBackTheCodeOfTheOrderBeingWritten() throws Exception {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch written = new CountDownLatch(1);
+        when(repository.insertUnordered(List.of(order1))).thenAnswer(invocation -> {
+            writing.countDown();
+            written.await();
+            return Collections.emptySet();
+        });
+        final OrderWriteBehind sut = writeBehind(10, 1, Duration.ofMillis(1));
+        sut.start();
+
+        final OrderWriteTimeoutException e = assertThrows(OrderWriteTimeoutException.class, () -> sut.submit(order1));
+
+        assertTrue(writing.await(1, TimeUnit.SECONDS));
+        assertEquals(order1.id(), e.getOrderCode());
+        written.countDown();
+        sut.stop();
+        verify(repository).insertUnordered(List.of(order1));
+        verify(publisher).publishEvent(new OrderChangedEvent(order1));
+    }
+
+    @Test
+    public void givenAWrittenOrderWhenSubmittingThenShouldReturnItsId() throws Exception {
+        when(repository.insertUnordered(List.of(order1))).thenReturn(Collections.emptySet());
+        final OrderWriteBehind sut = writeBehind(10, 1, Duration.ofMillis(1));
+        sut.start();
+
+        assertEquals(order1.id(), sut.submit(order1));
+        sut.stop();
+    }
+
+    @Test
+    public void givenAFullQueueThenShouldRejectTheOrder() throws Exception {
+        when(repository.insertUnordered(List.of(order1))).thenReturn(Collections.emptySet());
+        final OrderWriteBehind sut = writeBehind(1, 10, Duration.ofMillis(1));
+
+        final CompletableFuture<UUID> result1 = sut.enqueue(order1);
+        final OrderQueueFullException e = assertThrows(OrderQueueFullException.class, () -> sut.enqueue(order2));
+        assertEquals(RETRY_AFTER, e.getRetryAfter());
+        assertEquals(1, registry.get("awesome.pizza.submit.queue.depth").gauge().value());
+
+        sut.start();
+        assertEquals(order1.id(), result1.get());
+        sut.stop();
+    }
+
+    @Test
+    public void givenAStoppedWriterThenShouldRejectTheOrder() throws Exception {
+        final OrderWriteBehind sut = writeBehind(10, 10, Duration.ofMillis(1));
+        sut.start();
+        sut.stop();
+
+        assertThrows(OrderQueueFullException.class, () -> sut.enqueue(order1));
+        verifyNoInteractions(repository);
+    }
+}
@@ -0,0 +1,147 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import org.altervista.breve.awesome.pizza.model.QueueCursor;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueuePositionIndexTest {
+
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+
+    private final QueuePositionIndex sut = new QueuePositionIndex(KitchenScheduler.Policy.FIFO);
+
+    @Test
+    public void givenOrdersInQueueOrderThenShouldCountTheOnesAhead() {
+        final UUID first = UUID.randomUUID();
+        final UUID second = UUID.randomUUID();
+        final UUID third = UUID.randomUUID();
+        sut.add(SOMEWHERE_IN_TIME, 1, first);
+        sut.add(SOMEWHERE_IN_TIME.plusMinutes(1), 1, second);
+        sut.add(SOMEWHERE_IN_TIME.plusMinutes(2), 1, third);
+
+        assertTrue(sut.remove(first));
+
+        assertEquals(OptionalInt.of(0), sut.position(second));
+        assertEquals(OptionalInt.of(1), sut.position(third));
+        assertEquals(2, sut.size());
+    }
+
+    @Test
+    public void givenAnOlderOrderThenShouldPutItAhead() {
+        final UUID late = UUID.randomUUID();
+        final UUID early = UUID.randomUUID();
+        sut.add(SOMEWHERE_IN_TIME.plusMinutes(1), 1, late);
+        sut.add(SOMEWHERE_IN_TIME, 1, early);
+
+        assertEquals(OptionalInt.of(0), sut.position(early));
+        assertEquals(OptionalInt.of(1), sut.position(late));
+    }
+
+    @Test
+    public void givenOrdersInReverseQueueOrderThenShouldCountTheOnesAhead() {
+        final List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            ids.add(UUID.randomUUID());
+        }
+        for (int i = ids.size() - 1; i >= 0; i--) {
+            sut.add(SOMEWHERE_IN_TIME.plusSeconds(i), 1, ids.get(i));
+        }
+
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(OptionalInt.of(i), sut.position(ids.get(i)));
+        }
+    }
+
+    @Test
+    public void givenOrdersSubmittedTogetherThenShouldSortTheirIdsLikeMongoDb() {
+        final UUID low = UUID.fromString("7fffffff-ffff-7fff-bfff-ffffffffffff");
+        final UUID high = UUID.fromString("80000000-0000-7000-8000-000000000000");
+        sut.add(SOMEWHERE_IN_TIME, 1, high);
+        sut.add(SOMEWHERE_IN_TIME, 1, low);
+
+        assertEquals(OptionalInt.of(0), sut.position(low));
+        assertEquals(OptionalInt.of(1), sut.position(high));
+    }
+
+    @Test
+    public void givenTheFewestPizzasPolicyThenShouldPutTheSmallerOrdersAhead() {
+        final QueuePositionIndex sut = new QueuePositionIndex(KitchenScheduler.Policy.FEWEST_PIZZAS);
+        final UUID big = UUID.randomUUID();
+        final UUID small = UUID.randomUUID();
+        final UUID smallLater = UUID.randomUUID();
+        sut.add(SOMEWHERE_IN_TIME, 7, big);
+        sut.add(SOMEWHERE_IN_TIME.plusMinutes(1), 1, small);
+        sut.add(SOMEWHERE_IN_TIME.plusMinutes(2), 1, smallLater);
+
+        assertEquals(OptionalInt.of(0), sut.position(small));
+        assertEquals(OptionalInt.of(1), sut.position(smallLater));
+        assertEquals(OptionalInt.of(2), sut.position(big));
+    }
+
+    @Test
+    public void givenTheSameOrderTwiceThenShouldCountItOnce() {
+        final UUID id = UUID.randomUUID();
+        sut.add(SOMEWHERE_IN_TIME, 1, id);
+        sut.add(SOMEWHERE_IN_TIME, 1, id);
+
+        assertEquals(1, sut.size());
+    }
+
+    @Test
+    public void givenAMissingOrderThenShouldHaveNoPosition() {
+        final UUID id = UUID.randomUUID();
+
+        assertEquals(OptionalInt.empty(), sut.position(id));
+        assertFalse(sut.remove(id));
+    }
+
+    @Test
+    public void givenManyAddsAndRemovesThenShouldAgreeWithASortedQueue() {
+        final Random random = new Random(42);
+        final TreeMap<Key, UUID> expected = new TreeMap<>(Comparator.comparing(Key::submittedAt).thenComparing(Key::id, QueueCursor::compareIds));
+        final Map<UUID, Key> keys = new HashMap<>();
+        final List<UUID> live = new ArrayList<>();
+        LocalDateTime clock = SOMEWHERE_IN_TIME;
+
+        for (int i = 0; i < 2000; i++) {
+            if (live.isEmpty() || random.nextInt(3) > 0) {
+                clock = clock.plusSeconds(1);
+                final LocalDateTime submittedAt = random.nextInt(10) == 0 ? clock.minusSeconds(random.nextInt(600)) : clock;
+                final Key key = new Key(submittedAt, UUID.randomUUID());
+                sut.add(key.submittedAt(), 1, key.id());
+                expected.put(key, key.id());
+                keys.put(key.id(), key);
+                live.add(key.id());
+            } else {
+                final UUID id = live.remove(random.nextInt(live.size()));
+                assertTrue(sut.remove(id));
+                expected.remove(keys.remove(id));
+            }
+
+            if (i % 50 == 0) {
+                int position = 0;
+                for (final UUID id : expected.values()) {
+                    assertEquals(OptionalInt.of(position++), sut.position(id));
+                }
+            }
+        }
+        assertEquals(expected.size(), sut.size());
+    }
+
+    private record Key(LocalDateTime submittedAt, UUID id) {
+    }
+}
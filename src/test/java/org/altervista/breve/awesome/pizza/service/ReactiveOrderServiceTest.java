@@ -0,0 +1,203 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import org.altervista.breve.awesome.pizza.event.OrderChangedEvent;
+import org.altervista.breve.awesome.pizza.exception.EmptyOrderException;
+import org.altervista.breve.awesome.pizza.exception.InvalidOrderCodeException;
+import org.altervista.breve.awesome.pizza.exception.InvalidOrderPizzaException;
+import org.altervista.breve.awesome.pizza.exception.InvalidStatusUpdateException;
+import org.altervista.breve.awesome.pizza.model.Order;
+import org.altervista.breve.awesome.pizza.model.OrderStatus;
+import org.altervista.breve.awesome.pizza.model.Pizza;
+import org.altervista.breve.awesome.pizza.model.request.OrderEntry;
+import org.altervista.breve.awesome.pizza.model.request.SubmitOrderRequest;
+import org.altervista.breve.awesome.pizza.repository.ReactiveOrderRepository;
+import org.altervista.breve.awesome.pizza.utils.DateTimeUtils;
+import org.altervista.breve.awesome.pizza.utils.UUIDUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveOrderServiceTest {
+
+    private final static UUID AN_UUID = UUID.fromString("21c1bdab-2fa9-424f-84c5-edf207ecba6d");
+    private final static LocalDateTime SOMEWHERE_IN_TIME = LocalDateTime.of(1969, 7, 20, 20, 17);
+    private final static LocalDateTime A_LITTLE_LATER = SOMEWHERE_IN_TIME.plusMinutes(10);
+
+    @Mock
+    private UUIDUtils uuidUtils;
+
+    @Mock
+    private DateTimeUtils dateTimeUtils;
+
+    @Mock
+    private ReactiveOrderRepository repository;
+
+    @Mock
+    private OrderQueueProjection projection;
+
+    @Mock
+    private ApplicationEventPublisher publisher;
+
+    @Mock
+    private OrderLifecycleMetrics metrics;
+
+    @InjectMocks
+    private ReactiveOrderService sut;
+
+    @Test
+    public void givenARequestWithEmptyOrderThenShouldFailWithEmptyOrderException() {
+        StepVerifier.create(sut.submit(new SubmitOrderRequest(Collections.emptyList())))
+                .expectError(EmptyOrderException.class)
+                .verify();
+
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void givenARequestWithANotSupportedNameThenShouldFailWithInvalidOrderPizzaException() {
+        StepVerifier.create(sut.submit(new SubmitOrderRequest(Collections.singletonList(new OrderEntry("a-not-supported-pizza-name", 7)))))
+                .expectError(InvalidOrderPizzaException.class)
+                .verify();
+
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void givenARequestWithDuplicatedNamesInTheOrderThenShouldSaveAnOrderCollapsingThem() {
+        when(uuidUtils.get()).thenReturn(AN_UUID);
+        when(dateTimeUtils.now()).thenReturn(SOMEWHERE_IN_TIME);
+        final Order expected = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+        when(repository.save(any(Order.class))).thenReturn(Mono.just(expected));
+
+        StepVerifier.create(sut.submit(new SubmitOrderRequest(List.of(new OrderEntry("diavola", 2), new OrderEntry("Diavola", 5)))))
+                .expectNext(AN_UUID)
+                .verifyComplete();
+
+        verify(repository).save(expected);
+        verify(publisher).publishEvent(new OrderChangedEvent(expected));
+    }
+
+    @Test
+    public void givenAnInvalidOrderCodeThenShouldFailWithInvalidOrderCodeException() {
+        StepVerifier.create(sut.getOrder("an-invalid-order-code"))
+                .expectError(InvalidOrderCodeException.class)
+                .verify();
+
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void givenAPresentOrderCodeThenShouldReturnTheOrderWithoutReadingTheArchive() {
+        final Order expected = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+        when(repository.findById(AN_UUID)).thenReturn(Mono.just(expected));
+
+        StepVerifier.create(sut.getOrder(AN_UUID.toString()))
+                .expectNext(expected)
+                .verifyComplete();
+
+        verify(repository, never()).findArchivedById(any());
+    }
+
+    @Test
+    public void givenAnArchivedOrderCodeThenShouldReturnTheOrderFromTheArchive() {
+        final Order expected = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.DELIVERED, Map.of(Pizza.DIAVOLA, 7), SOMEWHERE_IN_TIME, A_LITTLE_LATER);
+        when(repository.findById(AN_UUID)).thenReturn(Mono.empty());
+        when(repository.findArchivedById(AN_UUID)).thenReturn(Mono.just(expected));
+
+        StepVerifier.create(sut.getOrder(AN_UUID.toString()))
+                .expectNext(expected)
+                .verifyComplete();
+    }
+
+    @Test
+    public void givenAMissingOrderCodeThenShouldCompleteEmpty() {
+        when(repository.findById(AN_UUID)).thenReturn(Mono.empty());
+        when(repository.findArchivedById(AN_UUID)).thenReturn(Mono.empty());
+
+        StepVerifier.create(sut.getOrder(AN_UUID.toString()))
+                .verifyComplete();
+    }
+
+    @Test
+    public void whenTheProjectionIsValidThenShouldReturnTheQueueWithoutQueryingTheRepository() {
+        final Order order = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.DIAVOLA, 7));
+        when(projection.snapshot()).thenReturn(Optional.of(List.of(order)));
+
+        StepVerifier.create(sut.findNotCompletedOrders())
+                .expectNext(List.of(order))
+                .verifyComplete();
+
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void givenAReadyOrderWhenTryingToSetInProgressStatusAndAnotherOrderHasInProgressStatusThenShouldFailWithInvalidStatusUpdateException() {
+        final Order order = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
+        when(projection.hasInProgress()).thenReturn(Optional.of(true));
+
+        StepVerifier.create(sut.updateStatus(order, OrderStatus.IN_PROGRESS))
+                .expectError(InvalidStatusUpdateException.class)
+                .verify();
+
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    public void givenAReadyOrderWhenAnotherOrderTookTheKitchenMeanwhileThenShouldFailWithInvalidStatusUpdateException() {
+        final Order order = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
+        when(projection.hasInProgress()).thenReturn(Optional.of(false));
+        when(dateTimeUtils.now()).thenReturn(A_LITTLE_LATER);
+        when(repository.claim(AN_UUID, null, 0, A_LITTLE_LATER)).thenReturn(Mono.error(new DuplicateKeyException("active_station")));
+
+        StepVerifier.create(sut.updateStatus(order, OrderStatus.IN_PROGRESS))
+                .expectError(InvalidStatusUpdateException.class)
+                .verify();
+
+        verifyNoInteractions(publisher);
+    }
+
+    @Test
+    public void givenAnInProgressOrderWhenTryingToSetDeliveredStatusThenShouldMoveTheOrderToDeliveredStatus() {
+        final Order order = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.IN_PROGRESS, Map.of(Pizza.MARGHERITA, 7));
+        final Order expected = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.DELIVERED, Map.of(Pizza.MARGHERITA, 7));
+        when(dateTimeUtils.now()).thenReturn(A_LITTLE_LATER);
+        when(repository.transition(AN_UUID, null, OrderStatus.IN_PROGRESS, OrderStatus.DELIVERED, A_LITTLE_LATER)).thenReturn(Mono.just(expected));
+
+        StepVerifier.create(sut.updateStatus(order, OrderStatus.DELIVERED))
+                .verifyComplete();
+
+        verify(publisher).publishEvent(new OrderChangedEvent(expected));
+        verify(metrics).onTransition(expected, A_LITTLE_LATER);
+    }
+
+    @Test
+    public void givenAReadyOrderWhenTryingToSetDeliveredStatusThenShouldFailWithInvalidStatusUpdateException() {
+        final Order order = new Order(AN_UUID, SOMEWHERE_IN_TIME, OrderStatus.READY, Map.of(Pizza.MARGHERITA, 7));
+
+        StepVerifier.create(sut.updateStatus(order, OrderStatus.DELIVERED))
+                .expectError(InvalidStatusUpdateException.class)
+                .verify();
+
+        verifyNoInteractions(repository);
+    }
+}
@@ -0,0 +1,42 @@
+package org.altervista.breve.awesome.pizza.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ReactiveWebApplicationContextRunner;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReactiveOutboxCheckTest {
+
+    @Test
+    public void givenTheReactiveStackWithTheOutboxThenShouldRefuseToStart() {
+        new ReactiveWebApplicationContextRunner()
+                .withUserConfiguration(ReactiveOutboxCheck.class)
+                .withPropertyValues("awesome.pizza.outbox.enabled=true")
+                .run(context -> assertInstanceOf(IllegalStateException.class, rootCause(context.getStartupFailure())));
+    }
+
+    @Test
+    public void givenTheReactiveStackWithoutTheOutboxThenShouldStart() {
+        new ReactiveWebApplicationContextRunner()
+                .withUserConfiguration(ReactiveOutboxCheck.class)
+                .withPropertyValues("awesome.pizza.outbox.enabled=false")
+                .run(context -> assertNull(context.getStartupFailure()));
+    }
+
+    @Test
+    public void givenTheServletStackWithTheOutboxThenShouldStart() {
+        new WebApplicationContextRunner()
+                .withUserConfiguration(ReactiveOutboxCheck.class)
+                .withPropertyValues("awesome.pizza.outbox.enabled=true")
+                .run(context -> assertNull(context.getStartupFailure()));
+    }
+
+    private static Throwable rootCause(Throwable e) {
+        while (e != null && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
+    }
+}
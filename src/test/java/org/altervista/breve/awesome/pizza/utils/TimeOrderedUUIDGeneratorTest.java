@@ -0,0 +1,78 @@
+package org.altervista.breve.awesome.pizza.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimeOrderedUUIDGeneratorTest {
+
+    private final static long SOMEWHERE_IN_TIME = 1_700_000_000_000L;
+
+    @Test
+    public void shouldGenerateVersion7UUIDsCarryingTheTimestamp() {
+        final UUID actual = new TimeOrderedUUIDGenerator(() -> SOMEWHERE_IN_TIME).next();
+
+        assertEquals(7, actual.version());
+        assertEquals(2, actual.variant());
+        assertEquals(SOMEWHERE_IN_TIME, actual.getMostSignificantBits() >>> 16);
+        assertEquals(actual, UUID.fromString(actual.toString()));
+    }
+
+    @Test
+    public void givenTheSameMillisecondThenShouldGenerateIncreasingUUIDs() {
+        final TimeOrderedUUIDGenerator sut = new TimeOrderedUUIDGenerator(() -> SOMEWHERE_IN_TIME);
+
+        UUID previous = sut.next();
+        for (int i = 0; i < 10_000; i++) {
+            final UUID next = sut.next();
+            assertTrue(Long.compareUnsigned(previous.getMostSignificantBits(), next.getMostSignificantBits()) < 0);
+            previous = next;
+        }
+    }
+
+    @Test
+    public void givenAClockGoingBackwardsThenShouldKeepGeneratingIncreasingUUIDs() {
+        final AtomicLong clock = new AtomicLong(SOMEWHERE_IN_TIME);
+        final TimeOrderedUUIDGenerator sut = new TimeOrderedUUIDGenerator(clock::get);
+
+        final UUID before = sut.next();
+        clock.set(SOMEWHERE_IN_TIME - 1_000);
+        final UUID after = sut.next();
+
+        assertTrue(Long.compareUnsigned(before.getMostSignificantBits(), after.getMostSignificantBits()) < 0);
+        assertEquals(SOMEWHERE_IN_TIME, after.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    public void givenManyThreadsThenShouldNeverGenerateTheSameUUID() throws Exception {
+        final TimeOrderedUUIDGenerator sut = new TimeOrderedUUIDGenerator();
+        final Set<UUID> generated = ConcurrentHashMap.newKeySet();
+
+        try (final ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        generated.add(sut.next());
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertEquals(80_000, generated.size());
+    }
+}